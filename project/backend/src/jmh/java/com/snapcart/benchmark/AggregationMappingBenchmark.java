@@ -0,0 +1,87 @@
+package com.snapcart.benchmark;
+
+import com.snapcart.model.CategorySpending;
+import com.snapcart.model.ItemCount;
+import com.snapcart.model.MonthlySpendingSummary;
+import com.snapcart.service.AnalyticsService;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side cost of a filtered analytics request once Mongo has answered: mapping each
+ * aggregation result document onto its summary class, as MongoTemplate.aggregate does, and
+ * collecting the summaries with the AnalyticsService helpers into the maps it returns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AggregationMappingBenchmark {
+
+    // Result rows: months in the range, or categories
+    @Param({"12", "120"})
+    private int groups;
+
+    private MappingMongoConverter converter;
+    private List<Document> monthlyRows;
+    private List<Document> topItemRows;
+    private List<Document> categoryRows;
+
+    @Setup
+    public void setUp() {
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.afterPropertiesSet();
+
+        monthlyRows = new ArrayList<>(groups);
+        categoryRows = new ArrayList<>(groups);
+        for (int i = 0; i < groups; i++) {
+            monthlyRows.add(new Document("_id", String.format("%04d-%02d", 2020 + i / 12, 1 + i % 12))
+                    .append("totalAmount", 100.0 + i).append("count", 10L + i));
+            categoryRows.add(new Document("_id", "Category " + i)
+                    .append("totalAmount", 50.0 + i).append("count", 5L + i));
+        }
+        topItemRows = new ArrayList<>(10);
+        for (int i = 0; i < 10; i++) {
+            topItemRows.add(new Document("_id", "Item " + i).append("count", 100L - i).append("totalPrice", 3.5 * i));
+        }
+    }
+
+    @Benchmark
+    public Map<String, Double> monthlySpending() {
+        List<MonthlySpendingSummary> summaries = new ArrayList<>(monthlyRows.size());
+        for (Document row : monthlyRows) {
+            summaries.add(converter.read(MonthlySpendingSummary.class, row));
+        }
+        return AnalyticsService.monthlySpendingOf(summaries);
+    }
+
+    @Benchmark
+    public Map<String, Long> topItems() {
+        List<ItemCount> itemCounts = new ArrayList<>(topItemRows.size());
+        for (Document row : topItemRows) {
+            itemCounts.add(converter.read(ItemCount.class, row));
+        }
+        return AnalyticsService.topItemsOf(itemCounts);
+    }
+
+    @Benchmark
+    public Map<String, Double> categorySpending() {
+        List<CategorySpending> spendings = new ArrayList<>(categoryRows.size());
+        for (Document row : categoryRows) {
+            spendings.add(converter.read(CategorySpending.class, row));
+        }
+        return AnalyticsService.categorySpendingOf(spendings);
+    }
+}
@@ -0,0 +1,115 @@
+package com.snapcart.benchmark;
+
+import com.snapcart.model.AnalyticsData;
+import com.snapcart.model.Receipt;
+import com.snapcart.model.ReceiptItem;
+import com.snapcart.repository.ReceiptRepository;
+import com.snapcart.service.AnalyticsRollupService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The analytics paths production runs: building a user's rollup from a receipt scan, applying one
+ * receipt edit as a delta and rebuilding the snapshot the next dashboard read returns, and merging
+ * a year of per-month top-item sketches. The repository is a stub that streams synthetic receipts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class AnalyticsRollupBenchmark {
+
+    private static final String USER = "benchmark";
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int receiptCount;
+
+    @Param({"5"})
+    private int itemsPerReceipt;
+
+    @Param({"256"})
+    private int sketchCapacity;
+
+    private AnalyticsRollupService rollupService;
+    private List<Receipt> receipts;
+    private List<Receipt> edits;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        receipts = SyntheticReceipts.receipts(receiptCount, itemsPerReceipt, 42L);
+        edits = new ArrayList<>(receipts.size());
+        for (Receipt receipt : receipts) {
+            receipt.setUserId(USER);
+            edits.add(edited(receipt));
+        }
+
+        rollupService = new AnalyticsRollupService();
+        ReflectionTestUtils.setField(rollupService, "receiptRepository", streaming(receipts));
+        ReflectionTestUtils.setField(rollupService, "maxUsers", 10);
+        ReflectionTestUtils.setField(rollupService, "sketchCapacity", sketchCapacity);
+        rollupService.init();
+        rollupService.getSnapshot(USER);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public AnalyticsData buildRollup() {
+        rollupService.rebuild(USER);
+        return rollupService.getSnapshot(USER);
+    }
+
+    // Edits a receipt and reverts it, so the rollup stays the same size across iterations
+    @Benchmark
+    public AnalyticsData editThenSnapshot() {
+        int index = next;
+        next = (next + 1) % receipts.size();
+        rollupService.recordUpdated(receipts.get(index), edits.get(index));
+        AnalyticsData snapshot = rollupService.getSnapshot(USER);
+        rollupService.recordUpdated(edits.get(index), receipts.get(index));
+        return snapshot;
+    }
+
+    @Benchmark
+    public Map<String, Long> topItemsForYear() {
+        return rollupService.getTopItems(USER, YearMonth.of(2023, 1), YearMonth.of(2023, 12));
+    }
+
+    // Same receipt with another category, a new price on the first item and one more item
+    private static Receipt edited(Receipt receipt) {
+        List<ReceiptItem> items = new ArrayList<>();
+        for (ReceiptItem item : receipt.getItems()) {
+            items.add(new ReceiptItem(item.getName(), item.getPrice(), item.getQuantity()));
+        }
+        items.get(0).setPrice(items.get(0).getPrice() + 1);
+        items.add(new ReceiptItem("Paper Bag", 0.10, 1));
+
+        Receipt edited = new Receipt(receipt.getFilename(), null, null, items, receipt.getTotalAmount() + 1.10,
+                receipt.getStore());
+        edited.setId(receipt.getId());
+        edited.setUserId(receipt.getUserId());
+        edited.setCategory("Household".equals(receipt.getCategory()) ? "General" : "Household");
+        edited.setCreatedDate(receipt.getCreatedDate());
+        return edited;
+    }
+
+    private static ReceiptRepository streaming(List<Receipt> receipts) {
+        return (ReceiptRepository) Proxy.newProxyInstance(ReceiptRepository.class.getClassLoader(),
+                new Class<?>[]{ReceiptRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "streamForRollup" -> receipts.stream();
+                    case "toString" -> "ReceiptRepository stub";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
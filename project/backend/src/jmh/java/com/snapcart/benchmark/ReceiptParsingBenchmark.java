@@ -0,0 +1,72 @@
+package com.snapcart.benchmark;
+
+import com.snapcart.model.ReceiptItem;
+import com.snapcart.service.ItemNameCanonicalizer;
+import com.snapcart.service.OCRService;
+import com.snapcart.service.ReceiptTextParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReceiptParsingBenchmark {
+
+    private static final int CORPUS_SIZE = 256;
+
+    @Param({"10", "50"})
+    private int itemsPerReceipt;
+
+    private final OCRService ocrService = new OCRService();
+    private final ItemNameCanonicalizer itemNameCanonicalizer = new ItemNameCanonicalizer();
+    private String[] corpus;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        ReflectionTestUtils.setField(itemNameCanonicalizer, "resourceLoader", new DefaultResourceLoader());
+        ReflectionTestUtils.setField(itemNameCanonicalizer, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(itemNameCanonicalizer, "enabled", true);
+        ReflectionTestUtils.setField(itemNameCanonicalizer, "dictionaryLocation", "classpath:product-dictionary.csv");
+        ReflectionTestUtils.setField(itemNameCanonicalizer, "lookupCacheSize", 10000);
+        itemNameCanonicalizer.init();
+
+        Random random = new Random(42);
+        corpus = new String[CORPUS_SIZE];
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            corpus[i] = SyntheticReceipts.receiptText(random, itemsPerReceipt);
+        }
+    }
+
+    private String nextText() {
+        next = (next + 1) & (CORPUS_SIZE - 1);
+        return corpus[next];
+    }
+
+    // What ReceiptService.buildReceipt runs on every upload
+    @Benchmark
+    public ReceiptTextParser.ParseResult parseReceipt() {
+        return ocrService.parseReceipt(nextText());
+    }
+
+    @Benchmark
+    public List<ReceiptItem> parseAndCanonicalizeItems() {
+        List<ReceiptItem> items = ocrService.parseReceipt(nextText()).getItems();
+        itemNameCanonicalizer.canonicalize(items);
+        return items;
+    }
+
+    @Benchmark
+    public String extractStoreName() {
+        return ocrService.extractStoreName(nextText());
+    }
+}
@@ -0,0 +1,102 @@
+package com.snapcart.benchmark;
+
+import com.snapcart.model.Receipt;
+import com.snapcart.model.ReceiptItem;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic generators for OCR-like receipt text and Receipt collections, so the
+ * benchmarks run without Mongo or Vision.
+ */
+public final class SyntheticReceipts {
+
+    private static final String[] STORES = {
+            "FRESH MART", "Green Grocer", "CITY SUPERMARKET", "Corner Deli", "Value Foods"
+    };
+
+    private static final String[] PRODUCTS = {
+            "MILK 2L", "Bread Wholemeal", "Eggs Dozen", "Organic Bananas", "CHEESE CHEDDAR",
+            "Coffee Beans", "Tomato Sauce", "Rice 5kg", "Apple Juice", "Chicken Breast",
+            "Greek Yogurt", "Olive Oil", "Pasta Penne", "Butter Salted", "Orange Juice",
+            "Dish Soap", "Paper Towels", "Toothpaste", "Cereal Oats", "Frozen Peas"
+    };
+
+    private static final String[] CATEGORIES = {
+            "General", "Groceries", "Household", "Dining", "Personal Care"
+    };
+
+    private SyntheticReceipts() {}
+
+    public static String receiptText(Random random, int itemCount) {
+        StringBuilder text = new StringBuilder(64 + itemCount * 24);
+        text.append(STORES[random.nextInt(STORES.length)]).append('\n');
+        text.append(random.nextInt(999) + 1).append(" Main Street\n");
+        text.append("Tel 555-").append(1000 + random.nextInt(9000)).append('\n');
+        text.append("RECEIPT #").append(100000 + random.nextInt(900000)).append('\n');
+
+        double subtotal = 0;
+        for (int i = 0; i < itemCount; i++) {
+            String name = itemName(random);
+            int cents = 50 + random.nextInt(4950);
+            subtotal += cents / 100.0;
+            switch (random.nextInt(4)) {
+                case 0 -> text.append(name).append("  $").append(price(cents));
+                case 1 -> text.append(name).append(' ').append(price(cents));
+                case 2 -> text.append(1 + random.nextInt(3)).append(" x ").append(name).append(' ')
+                        .append(price(cents)).append(" A");
+                default -> text.append(name).append(" ....... ").append(price(cents));
+            }
+            text.append('\n');
+        }
+
+        text.append("SUBTOTAL ").append(String.format("%.2f", subtotal)).append('\n');
+        text.append("TAX ").append(String.format("%.2f", subtotal * 0.08)).append('\n');
+        text.append("TOTAL ").append(String.format("%.2f", subtotal * 1.08)).append('\n');
+        text.append("CARD **** ").append(1000 + random.nextInt(9000)).append('\n');
+        text.append("Thank you for shopping!\n");
+        return text.toString();
+    }
+
+    public static List<Receipt> receipts(int count, int itemsPerReceipt, long seed) {
+        Random random = new Random(seed);
+        LocalDateTime start = LocalDateTime.of(2023, 1, 1, 0, 0);
+        List<Receipt> receipts = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            List<ReceiptItem> items = new ArrayList<>(itemsPerReceipt);
+            double total = 0;
+            for (int j = 0; j < itemsPerReceipt; j++) {
+                double price = (50 + random.nextInt(4950)) / 100.0;
+                total += price;
+                items.add(new ReceiptItem(itemName(random), price, 1));
+            }
+
+            Receipt receipt = new Receipt("receipt-" + i + ".jpg", null, null, items, total,
+                    STORES[random.nextInt(STORES.length)]);
+            receipt.setId(Integer.toHexString(i));
+            receipt.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            receipt.setCreatedDate(start.plusMinutes(random.nextInt(60 * 24 * 730)));
+            receipts.add(receipt);
+        }
+        return receipts;
+    }
+
+    // Skewed towards a few popular products, with a long tail of OCR-garbled variants
+    private static String itemName(Random random) {
+        String product = PRODUCTS[Math.min(PRODUCTS.length - 1, (int) Math.abs(random.nextGaussian() * 5))];
+        if (random.nextInt(10) == 0) {
+            char[] chars = product.toCharArray();
+            chars[random.nextInt(chars.length)] = (char) ('A' + random.nextInt(26));
+            return new String(chars);
+        }
+        return product;
+    }
+
+    private static String price(int cents) {
+        return (cents / 100) + "." + (cents % 100 < 10 ? "0" : "") + (cents % 100);
+    }
+}
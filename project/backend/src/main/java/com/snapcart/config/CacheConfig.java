@@ -0,0 +1,15 @@
+package com.snapcart.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+// Caffeine-backed caches; names, size and TTL come from spring.cache.* in application.properties
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String ANALYTICS_SUMMARY = "analytics-summary";
+    public static final String ANALYTICS_MONTHLY = "analytics-monthly";
+    public static final String ANALYTICS_TOP_ITEMS = "analytics-top-items";
+    public static final String ANALYTICS_CATEGORIES = "analytics-categories";
+}
@@ -0,0 +1,34 @@
+package com.snapcart.config;
+
+import com.snapcart.controller.CurrentUser;
+import com.snapcart.util.UserIds;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.MissingRequestHeaderException;
+import org.springframework.web.bind.ServletRequestBindingException;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+// Resolves @CurrentUser parameters; a missing or malformed header is a 400
+public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(CurrentUser.class) && parameter.getParameterType() == String.class;
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory)
+            throws ServletRequestBindingException {
+        String userId = webRequest.getHeader(UserIds.HEADER);
+        if (userId == null) {
+            throw new MissingRequestHeaderException(UserIds.HEADER, parameter);
+        }
+        if (!UserIds.isValid(userId)) {
+            throw new ServletRequestBindingException("Invalid " + UserIds.HEADER + " header");
+        }
+        return userId;
+    }
+}
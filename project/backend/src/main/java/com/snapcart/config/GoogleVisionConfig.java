@@ -1,29 +1,45 @@
 package com.snapcart.config;
 
+import com.google.api.gax.retrying.RetrySettings;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.vision.v1.ImageAnnotatorClient;
 import com.google.cloud.vision.v1.ImageAnnotatorSettings;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.ClassPathResource;
+import org.threeten.bp.Duration;
 
 import java.io.IOException;
 
 @Configuration
+@ConditionalOnProperty(name = "snapcart.ocr.engine", havingValue = "vision", matchIfMissing = true)
 public class GoogleVisionConfig {
 
     @Value("${google.cloud.vision.credentials.location}")
     private String credentialsLocation;
 
+    @Value("${snapcart.ocr.resilience.timeout-ms:10000}")
+    private long timeoutMs;
+
     @Bean
     public ImageAnnotatorClient imageAnnotatorClient() throws IOException {
         GoogleCredentials credentials = GoogleCredentials
             .fromStream(new ClassPathResource("service-account-key.json").getInputStream());
         
-        ImageAnnotatorSettings settings = ImageAnnotatorSettings.newBuilder()
-            .setCredentialsProvider(() -> credentials)
+        ImageAnnotatorSettings.Builder builder = ImageAnnotatorSettings.newBuilder()
+            .setCredentialsProvider(() -> credentials);
+        
+        // The client default allows a call to retry for minutes; bound it by the OCR deadline
+        Duration deadline = Duration.ofMillis(timeoutMs);
+        RetrySettings retrySettings = builder.batchAnnotateImagesSettings().getRetrySettings().toBuilder()
+            .setTotalTimeout(deadline)
+            .setInitialRpcTimeout(deadline)
+            .setMaxRpcTimeout(deadline)
             .build();
+        builder.batchAnnotateImagesSettings().setRetrySettings(retrySettings);
+        ImageAnnotatorSettings settings = builder.build();
             
         return ImageAnnotatorClient.create(settings);
     }
@@ -0,0 +1,51 @@
+package com.snapcart.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class IngestionConfig {
+
+    @Value("${snapcart.ingestion.workers:4}")
+    private int workers;
+
+    @Value("${snapcart.ingestion.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${snapcart.batch.concurrency:4}")
+    private int batchConcurrency;
+
+    // Bounded queue + AbortPolicy: a full queue rejects new jobs instead of growing without limit
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor ingestionExecutor() {
+        return new ThreadPoolExecutor(
+                workers, workers,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("receipt-ingest-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Holds background jobs that are waiting out an OCR outage, so they don't occupy an ingestion
+    // worker; when the delay is up the job goes back on the ingestion queue
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService ingestionRetryScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("receipt-retry-"));
+    }
+
+    // Shared by all batch uploads, so batchConcurrency caps OCR work across requests;
+    // each batch bounds its own queued entries, so the queue stays short
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService batchExecutor() {
+        return Executors.newFixedThreadPool(batchConcurrency, new CustomizableThreadFactory("receipt-batch-"));
+    }
+}
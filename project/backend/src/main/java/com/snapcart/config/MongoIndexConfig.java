@@ -0,0 +1,136 @@
+package com.snapcart.config;
+
+import com.snapcart.model.OcrCacheEntry;
+import com.snapcart.model.Receipt;
+import com.snapcart.model.ReceiptJob;
+import com.snapcart.repository.ReceiptAnalyticsRepositoryImpl;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Indexes backing the repository finders, created (idempotently) when the application starts
+@Configuration
+public class MongoIndexConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoIndexConfig.class);
+
+    // Indexes replaced by the userId-prefixed (and, for store and category, case-insensitive) ones below
+    private static final List<String> SUPERSEDED_RECEIPT_INDEXES = List.of("createdDate_id_desc", "store", "category", "contentHash", "userId_store", "userId_category");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${snapcart.receipts.deduplicate:true}")
+    private boolean deduplicate;
+
+    @Value("${snapcart.ocr.cache.ttl-minutes:1440}")
+    private long ocrCacheTtlMinutes;
+
+    @PostConstruct
+    public void ensureIndexes() {
+        // Every receipt query is scoped to one user, so userId leads each index
+        IndexOperations receipts = mongoTemplate.indexOps(Receipt.class);
+        dropIndexes(receipts, SUPERSEDED_RECEIPT_INDEXES);
+        // Newest-first listing, keyset pagination and recent receipts
+        receipts.ensureIndex(new Index()
+                .on("userId", Sort.Direction.ASC)
+                .on("createdDate", Sort.Direction.DESC)
+                .on("_id", Sort.Direction.DESC)
+                .named("userId_createdDate_id_desc"));
+        // Case-insensitive, for the store and category filters of the analytics pipelines
+        receipts.ensureIndex(new Index()
+                .on("userId", Sort.Direction.ASC)
+                .on("store", Sort.Direction.ASC)
+                .collation(ReceiptAnalyticsRepositoryImpl.CASE_INSENSITIVE)
+                .named("userId_store_ci"));
+        receipts.ensureIndex(new Index()
+                .on("userId", Sort.Direction.ASC)
+                .on("category", Sort.Direction.ASC)
+                .collation(ReceiptAnalyticsRepositoryImpl.CASE_INSENSITIVE)
+                .named("userId_category_ci"));
+        ensureContentHashIndex(receipts);
+        // Blobs are shared across users; the blob sweep looks up whether any receipt still references one
+        receipts.ensureIndex(new Index().on("imageRef", Sort.Direction.ASC).sparse().named("imageRef"));
+        receipts.ensureIndex(new Index().on("textRef", Sort.Direction.ASC).sparse().named("textRef"));
+
+        // Entries expire with the in-memory tier's TTL, so the collection does not grow without bound
+        ensureTtlIndex(mongoTemplate.indexOps(OcrCacheEntry.class), "createdDate",
+                Duration.ofMinutes(ocrCacheTtlMinutes));
+
+        // Job lookups go through _id; the startup sweep of interrupted jobs covers this instance's jobs
+        IndexOperations jobs = mongoTemplate.indexOps(ReceiptJob.class);
+        dropIndexes(jobs, List.of("status"));
+        jobs.ensureIndex(new Index()
+                .on("nodeId", Sort.Direction.ASC)
+                .on("status", Sort.Direction.ASC)
+                .named("nodeId_status"));
+    }
+
+    /**
+     * With deduplication on, a unique index makes the database the arbiter between concurrent uploads
+     * of one image, which would otherwise both pass the duplicate check. Receipts without a hash are
+     * left out. If existing duplicates prevent building it, the plain index is used and a warning logged.
+     */
+    private void ensureContentHashIndex(IndexOperations receipts) {
+        Index plain = new Index()
+                .on("userId", Sort.Direction.ASC)
+                .on("contentHash", Sort.Direction.ASC)
+                .named("userId_contentHash");
+        if (!deduplicate) {
+            dropIndexes(receipts, List.of("userId_contentHash_unique"));
+            receipts.ensureIndex(plain);
+            return;
+        }
+        try {
+            receipts.ensureIndex(new Index()
+                    .on("userId", Sort.Direction.ASC)
+                    .on("contentHash", Sort.Direction.ASC)
+                    .unique()
+                    .partial(PartialIndexFilter.of(Criteria.where("contentHash").exists(true)))
+                    .named("userId_contentHash_unique"));
+            dropIndexes(receipts, List.of("userId_contentHash"));
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Receipts already contain duplicate images; concurrent re-uploads are not deduplicated " +
+                    "until they are removed", e);
+            receipts.ensureIndex(plain);
+        }
+    }
+
+    // An existing index with a different expiry is rebuilt, since its options cannot be changed in place
+    private void ensureTtlIndex(IndexOperations indexOps, String field, Duration expireAfter) {
+        String name = field + "_ttl";
+        for (IndexInfo index : indexOps.getIndexInfo()) {
+            if (name.equals(index.getName()) && !index.getExpireAfter().equals(Optional.of(expireAfter))) {
+                indexOps.dropIndex(name);
+            }
+        }
+        indexOps.ensureIndex(new Index()
+                .on(field, Sort.Direction.ASC)
+                .expire(expireAfter.toSeconds(), TimeUnit.SECONDS)
+                .named(name));
+    }
+
+    private void dropIndexes(IndexOperations indexOps, List<String> names) {
+        for (IndexInfo index : indexOps.getIndexInfo()) {
+            if (names.contains(index.getName())) {
+                indexOps.dropIndex(index.getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.snapcart.config;
+
+import com.snapcart.model.DataMigration;
+import com.snapcart.model.Receipt;
+import com.snapcart.model.ReceiptJob;
+import com.snapcart.util.UserIds;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * One-off data migrations. Each is recorded in the migrations collection once it completes, so later
+ * starts skip it instead of rescanning the collections. The migrations are idempotent, so instances
+ * that start together before the first one records it only repeat a no-op.
+ */
+@Configuration
+public class MongoMigrations {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoMigrations.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    public void migrate() {
+        runOnce("assign-legacy-user", () -> {
+            assignLegacyDocuments(Receipt.class);
+            assignLegacyDocuments(ReceiptJob.class);
+        });
+    }
+
+    // Also used by the migrations that live with the feature they belong to, e.g. ReceiptVersionMigration
+    void runOnce(String name, Runnable migration) {
+        if (mongoTemplate.exists(new Query(Criteria.where("name").is(name)), DataMigration.class)) {
+            return;
+        }
+        migration.run();
+        mongoTemplate.save(new DataMigration(name));
+        log.info("Completed data migration '{}'", name);
+    }
+
+    // Documents written before receipts were partitioned belong to the default user
+    private void assignLegacyDocuments(Class<?> entityClass) {
+        long assigned = mongoTemplate.updateMulti(
+                new Query(Criteria.where("userId").exists(false)),
+                new Update().set("userId", UserIds.DEFAULT_USER),
+                entityClass).getModifiedCount();
+        if (assigned > 0) {
+            log.info("Assigned {} {} documents to user '{}'",
+                    assigned, entityClass.getSimpleName(), UserIds.DEFAULT_USER);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.snapcart.config;
+
+import com.snapcart.controller.CurrentUser;
+import com.snapcart.util.UserIds;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.reactive.BindingContext;
+import org.springframework.web.reactive.result.method.SyncHandlerMethodArgumentResolver;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebInputException;
+
+// WebFlux counterpart of CurrentUserArgumentResolver
+public class ReactiveCurrentUserArgumentResolver implements SyncHandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(CurrentUser.class) && parameter.getParameterType() == String.class;
+    }
+
+    @Override
+    public Object resolveArgumentValue(MethodParameter parameter, BindingContext bindingContext,
+                                       ServerWebExchange exchange) {
+        String userId = exchange.getRequest().getHeaders().getFirst(UserIds.HEADER);
+        if (userId == null) {
+            throw new ServerWebInputException("Missing request header '" + UserIds.HEADER + "'", parameter);
+        }
+        if (!UserIds.isValid(userId)) {
+            throw new ServerWebInputException("Invalid " + UserIds.HEADER + " header", parameter);
+        }
+        return userId;
+    }
+}
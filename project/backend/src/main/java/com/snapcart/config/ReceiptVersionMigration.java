@@ -0,0 +1,41 @@
+package com.snapcart.config;
+
+import com.snapcart.model.Receipt;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+// Gives receipts stored before @Version was added a version, once (see MongoMigrations)
+@Configuration
+public class ReceiptVersionMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptVersionMigration.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoMigrations mongoMigrations;
+
+    @PostConstruct
+    public void migrate() {
+        mongoMigrations.runOnce("version-legacy-receipts", this::versionLegacyReceipts);
+    }
+
+    // Spring Data treats a receipt without a version as new, so a save would insert a duplicate _id
+    private void versionLegacyReceipts() {
+        long versioned = mongoTemplate.updateMulti(
+                new Query(Criteria.where("version").exists(false)),
+                new Update().set("version", 0L),
+                Receipt.class).getModifiedCount();
+        if (versioned > 0) {
+            log.info("Set version 0 on {} receipts written before versioning", versioned);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.snapcart.controller;
+
+import com.snapcart.model.BackfillStatus;
+import com.snapcart.service.ItemBackfillService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+// Maintenance jobs that span every user's receipts; they need the admin token in X-Admin-Token
+@RestController
+@RequestMapping("/admin")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:3000"})
+public class AdminController {
+
+    @Autowired
+    private ItemBackfillService itemBackfillService;
+
+    // Empty disables the admin endpoints
+    @Value("${snapcart.admin.token:}")
+    private String adminToken;
+
+    @PostMapping("/items/recanonicalize")
+    public ResponseEntity<BackfillStatus> recanonicalizeItems(
+            @RequestHeader(value = "X-Admin-Token", required = false) String token) {
+        if (!authorized(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            return ResponseEntity.accepted().body(itemBackfillService.start());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(itemBackfillService.getStatus());
+        }
+    }
+
+    @GetMapping("/items/recanonicalize")
+    public ResponseEntity<BackfillStatus> getRecanonicalizeStatus(
+            @RequestHeader(value = "X-Admin-Token", required = false) String token) {
+        if (!authorized(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(itemBackfillService.getStatus());
+    }
+
+    private boolean authorized(String token) {
+        if (adminToken == null || adminToken.isEmpty() || token == null) {
+            return false;
+        }
+        // Constant time, so the token cannot be guessed byte by byte from response times
+        return MessageDigest.isEqual(adminToken.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,16 +1,23 @@
 package com.snapcart.controller;
 
 import com.snapcart.model.AnalyticsData;
-import com.snapcart.model.Receipt;
+import com.snapcart.model.AnalyticsFilter;
+import com.snapcart.model.AnalyticsUpdate;
 import com.snapcart.service.AnalyticsService;
+import com.snapcart.service.AnalyticsStreamService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
 import java.util.List;
 import java.util.Map;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/analytics")
 @CrossOrigin(origins = {"http://localhost:5173", "http://localhost:3000"})
 public class AnalyticsController {
@@ -18,40 +25,85 @@ public class AnalyticsController {
     @Autowired
     private AnalyticsService analyticsService;
 
+    @Autowired
+    private AnalyticsStreamService analyticsStreamService;
+
     @GetMapping("/summary")
-    public ResponseEntity<AnalyticsData> getAnalyticsSummary() {
+    public ResponseEntity<AnalyticsData> getAnalyticsSummary(
+            @CurrentUser String userId,
+            AnalyticsFilter filter) {
         try {
-            AnalyticsData analytics = analyticsService.getAnalyticsSummary();
+            filter.setUserId(userId);
+            AnalyticsData analytics = analyticsService.getAnalyticsSummary(filter);
             return ResponseEntity.ok(analytics);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    // Server-sent events: a snapshot, then one update per receipt change (see AnalyticsStreamService)
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<AnalyticsUpdate>> streamAnalytics(
+            @CurrentUser String userId) {
+        return analyticsStreamService.stream(userId);
+    }
+
+    @PostMapping("/rollup/rebuild")
+    public ResponseEntity<AnalyticsData> rebuildRollup(
+            @CurrentUser String userId) {
+        try {
+            analyticsService.rebuildRollup(userId);
+            return ResponseEntity.ok(analyticsService.getAnalyticsSummary(userId));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @GetMapping("/monthly")
-    public ResponseEntity<Map<String, Double>> getMonthlySpending() {
+    public ResponseEntity<Map<String, Double>> getMonthlySpending(
+            @CurrentUser String userId,
+            AnalyticsFilter filter) {
         try {
-            AnalyticsData analytics = analyticsService.getAnalyticsSummary();
-            return ResponseEntity.ok(analytics.getMonthlySpending());
+            filter.setUserId(userId);
+            return ResponseEntity.ok(analyticsService.getMonthlySpending(filter));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
     }
 
     @GetMapping("/top-items")
-    public ResponseEntity<Map<String, Long>> getTopItems() {
+    public ResponseEntity<Map<String, Long>> getTopItems(
+            @CurrentUser String userId,
+            AnalyticsFilter filter) {
+        try {
+            filter.setUserId(userId);
+            return ResponseEntity.ok(analyticsService.getTopItems(filter));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @GetMapping("/categories")
+    public ResponseEntity<Map<String, Double>> getCategorySpending(
+            @CurrentUser String userId,
+            AnalyticsFilter filter) {
         try {
-            AnalyticsData analytics = analyticsService.getAnalyticsSummary();
-            return ResponseEntity.ok(analytics.getTopItems());
+            filter.setUserId(userId);
+            return ResponseEntity.ok(analyticsService.getCategorySpending(filter));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
     }
 
     @GetMapping("/recent-receipts")
-    public ResponseEntity<List<Receipt>> getRecentReceipts(@RequestParam(defaultValue = "5") int limit) {
+    public ResponseEntity<List<?>> getRecentReceipts(
+            @CurrentUser String userId,
+            @RequestParam(defaultValue = "5") int limit,
+            @RequestParam(defaultValue = "summary") String view) {
         try {
-            List<Receipt> recentReceipts = analyticsService.getRecentReceipts(limit);
+            List<?> recentReceipts = "full".equalsIgnoreCase(view) ?
+                    analyticsService.getRecentReceipts(userId, limit) :
+                    analyticsService.getRecentReceiptSummaries(userId, limit);
             return ResponseEntity.ok(recentReceipts);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
@@ -0,0 +1,15 @@
+package com.snapcart.controller;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds the caller's user id, taken from the X-User-Id header. Requests without a valid id are
+ * rejected with 400 before the handler runs; see CurrentUserArgumentResolver and its reactive twin.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CurrentUser {
+}
@@ -0,0 +1,104 @@
+package com.snapcart.controller;
+
+import com.snapcart.model.AnalyticsData;
+import com.snapcart.model.AnalyticsFilter;
+import com.snapcart.model.AnalyticsUpdate;
+import com.snapcart.service.AnalyticsService;
+import com.snapcart.service.AnalyticsStreamService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * WebFlux version of AnalyticsController for the 'reactive' profile. Unfiltered reads are served
+ * from the in-memory rollups and filtered ones from the Caffeine cache, but a cold rollup or a cache
+ * miss queries Mongo through the blocking template, so every call runs on the bounded elastic
+ * scheduler instead of an event-loop thread.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/analytics")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:3000"})
+public class ReactiveAnalyticsController {
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private AnalyticsStreamService analyticsStreamService;
+
+    @GetMapping("/summary")
+    public Mono<ResponseEntity<AnalyticsData>> getAnalyticsSummary(
+            @CurrentUser String userId,
+            AnalyticsFilter filter) {
+        filter.setUserId(userId);
+        return offload(() -> analyticsService.getAnalyticsSummary(filter));
+    }
+
+    // Server-sent events: a snapshot, then one update per receipt change (see AnalyticsStreamService)
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<AnalyticsUpdate>> streamAnalytics(
+            @CurrentUser String userId) {
+        return analyticsStreamService.stream(userId);
+    }
+
+    @PostMapping("/rollup/rebuild")
+    public Mono<ResponseEntity<AnalyticsData>> rebuildRollup(
+            @CurrentUser String userId) {
+        return offload(() -> {
+            analyticsService.rebuildRollup(userId);
+            return analyticsService.getAnalyticsSummary(userId);
+        });
+    }
+
+    @GetMapping("/monthly")
+    public Mono<ResponseEntity<Map<String, Double>>> getMonthlySpending(
+            @CurrentUser String userId,
+            AnalyticsFilter filter) {
+        filter.setUserId(userId);
+        return offload(() -> analyticsService.getMonthlySpending(filter));
+    }
+
+    @GetMapping("/top-items")
+    public Mono<ResponseEntity<Map<String, Long>>> getTopItems(
+            @CurrentUser String userId,
+            AnalyticsFilter filter) {
+        filter.setUserId(userId);
+        return offload(() -> analyticsService.getTopItems(filter));
+    }
+
+    @GetMapping("/categories")
+    public Mono<ResponseEntity<Map<String, Double>>> getCategorySpending(
+            @CurrentUser String userId,
+            AnalyticsFilter filter) {
+        filter.setUserId(userId);
+        return offload(() -> analyticsService.getCategorySpending(filter));
+    }
+
+    @GetMapping("/recent-receipts")
+    public Mono<ResponseEntity<List<?>>> getRecentReceipts(
+            @CurrentUser String userId,
+            @RequestParam(defaultValue = "5") int limit,
+            @RequestParam(defaultValue = "summary") String view) {
+        return this.<List<?>>offload(() -> "full".equalsIgnoreCase(view) ?
+                analyticsService.getRecentReceipts(userId, limit) :
+                analyticsService.getRecentReceiptSummaries(userId, limit));
+    }
+
+    private <T> Mono<ResponseEntity<T>> offload(Callable<T> call) {
+        return Mono.fromCallable(call)
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(ResponseEntity::ok)
+                .onErrorResume(e -> Mono.just(ResponseEntity.internalServerError().build()));
+    }
+}
@@ -0,0 +1,225 @@
+package com.snapcart.controller;
+
+import com.snapcart.model.CursorPage;
+import com.snapcart.model.Receipt;
+import com.snapcart.model.ReceiptBulkRequest;
+import com.snapcart.model.ReceiptBulkResult;
+import com.snapcart.model.ReceiptJob;
+import com.snapcart.model.ReceiptPatch;
+import com.snapcart.ocr.OcrUnavailableException;
+import com.snapcart.service.ReactiveReceiptService;
+import com.snapcart.service.ReceiptDeferredException;
+import com.snapcart.storage.BlobResponseWriter;
+import com.snapcart.util.Uploads;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+// WebFlux version of ReceiptController for the 'reactive' profile; batch upload is servlet only
+@RestController
+@Profile("reactive")
+@RequestMapping("/receipts")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:3000"})
+public class ReactiveReceiptController {
+
+    @Autowired
+    private ReactiveReceiptService reactiveReceiptService;
+
+    @Value("${snapcart.upload.max-image-size:10MB}")
+    private DataSize maxImageSize;
+
+    @PostMapping("/upload")
+    public Mono<ResponseEntity<?>> uploadReceipt(@CurrentUser String userId,
+                                                 @RequestPart("file") FilePart file) {
+        return withImage(file, spooledFile -> reactiveReceiptService
+                .processOrDefer(userId, file.filename(), contentType(file), spooledFile)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(ReceiptDeferredException.class,
+                        // OCR is unavailable right now; the receipt will be processed in the background
+                        e -> Mono.just(ResponseEntity.accepted().body(e.getJob())))
+                .onErrorResume(OcrUnavailableException.class, e -> Mono.just(ResponseEntity
+                        .status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfterMillis() / 1000)))
+                        .body("Receipt processing is temporarily unavailable, please retry shortly")))
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body("Failed to process receipt: " + e.getMessage()))));
+    }
+
+    @PostMapping("/upload/async")
+    public Mono<ResponseEntity<?>> uploadReceiptAsync(@CurrentUser String userId,
+                                                      @RequestPart("file") FilePart file) {
+        return withImage(file, spooledFile -> reactiveReceiptService
+                .submit(userId, file.filename(), contentType(file), spooledFile)
+                .<ResponseEntity<?>>map(job -> ResponseEntity.accepted().body(job))
+                .onErrorResume(RejectedExecutionException.class, e -> Mono.just(ResponseEntity
+                        .status(HttpStatus.TOO_MANY_REQUESTS)
+                        .body("Too many receipts are being processed, please retry shortly")))
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body("Failed to queue receipt: " + e.getMessage()))));
+    }
+
+    @GetMapping("/jobs/{id}")
+    public Mono<ResponseEntity<ReceiptJob>> getJob(@CurrentUser String userId,
+                                                   @PathVariable String id) {
+        return reactiveReceiptService.getJob(userId, id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    // The newest receipts only, at most one page; /page walks further and /stream exports everything
+    @GetMapping
+    public Flux<?> getAllReceipts(@CurrentUser String userId,
+                                  @RequestParam(defaultValue = "100") int limit,
+                                  @RequestParam(defaultValue = "summary") String view) {
+        Mono<? extends CursorPage<?>> page = isFullView(view) ?
+                reactiveReceiptService.getReceiptPage(userId, null, limit) :
+                reactiveReceiptService.getReceiptSummaryPage(userId, null, limit);
+        return page.flatMapIterable(CursorPage::getItems);
+    }
+
+    @GetMapping("/page")
+    public Mono<ResponseEntity<CursorPage<?>>> getReceiptPage(@CurrentUser String userId,
+                                                              @RequestParam(required = false) String cursor,
+                                                              @RequestParam(defaultValue = "20") int limit,
+                                                              @RequestParam(defaultValue = "summary") String view) {
+        Mono<? extends CursorPage<?>> page = isFullView(view) ?
+                reactiveReceiptService.getReceiptPage(userId, cursor, limit) :
+                reactiveReceiptService.getReceiptSummaryPage(userId, cursor, limit);
+        return page.map(ResponseEntity::<CursorPage<?>>ok)
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest().build()));
+    }
+
+    @GetMapping("/search")
+    public Flux<?> searchReceipts(@CurrentUser String userId,
+                                  @RequestParam("q") String query,
+                                  @RequestParam(defaultValue = "20") int limit,
+                                  @RequestParam(defaultValue = "summary") String view) {
+        return isFullView(view) ?
+                reactiveReceiptService.searchReceipts(userId, query, limit) :
+                reactiveReceiptService.searchReceiptSummaries(userId, query, limit);
+    }
+
+    // Newline-delimited JSON, one receipt per line, with backpressure down to the Mongo cursor
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    public Flux<?> streamReceipts(@CurrentUser String userId,
+                                  @RequestParam(defaultValue = "summary") String view) {
+        return isFullView(view) ?
+                reactiveReceiptService.streamAllReceipts(userId) :
+                reactiveReceiptService.streamAllReceiptSummaries(userId);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Receipt>> getReceiptById(@CurrentUser String userId,
+                                                        @PathVariable String id) {
+        return reactiveReceiptService.getReceiptById(userId, id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    // Range requests are answered by WebFlux's resource writer; file blobs go out with zero-copy
+    @GetMapping("/{id}/image")
+    public Mono<ResponseEntity<Resource>> getReceiptImage(@CurrentUser String userId,
+                                                          @PathVariable String id) {
+        return reactiveReceiptService.getReceiptImage(userId, id)
+                .map(blob -> ResponseEntity.ok()
+                        .eTag("\"" + blob.getKey() + "\"")
+                        .header(HttpHeaders.CACHE_CONTROL, "private, max-age=31536000, immutable")
+                        .header(BlobResponseWriter.NOSNIFF_HEADER, "nosniff")
+                        .header(HttpHeaders.CONTENT_DISPOSITION, BlobResponseWriter.contentDisposition(blob))
+                        .contentType(blob.getContentType() != null ?
+                                MediaType.parseMediaType(blob.getContentType()) : MediaType.APPLICATION_OCTET_STREAM)
+                        .body(blob.getResource()))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<Receipt>> updateReceipt(@CurrentUser String userId,
+                                                       @PathVariable String id,
+                                                       @RequestBody Receipt receipt) {
+        return reactiveReceiptService.updateReceipt(userId, id, receipt)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorResume(OptimisticLockingFailureException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).build()))
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build()));
+    }
+
+    @PatchMapping("/{id}")
+    public Mono<ResponseEntity<Receipt>> patchReceipt(@CurrentUser String userId,
+                                                      @PathVariable String id,
+                                                      @RequestBody ReceiptPatch patch) {
+        return reactiveReceiptService.patchReceipt(userId, id, patch)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorResume(OptimisticLockingFailureException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).build()))
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest().build()))
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build()));
+    }
+
+    @PostMapping("/bulk")
+    public Mono<ResponseEntity<ReceiptBulkResult>> bulkUpdate(@CurrentUser String userId,
+                                                              @RequestBody ReceiptBulkRequest request) {
+        return reactiveReceiptService.bulkUpdate(userId, request)
+                .map(ResponseEntity::ok)
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest().build()))
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build()));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteReceipt(@CurrentUser String userId,
+                                                    @PathVariable String id) {
+        return reactiveReceiptService.deleteReceipt(userId, id)
+                .then(Mono.just(ResponseEntity.ok().<Void>build()))
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build()));
+    }
+
+    // Spools the part to disk and checks its size before handing the file to the handler, which owns it
+    private Mono<ResponseEntity<?>> withImage(FilePart file, Function<Path, Mono<ResponseEntity<?>>> handler) {
+        return Uploads.spoolToTempFile(file).flatMap(spooledFile -> {
+            ResponseEntity<?> rejection;
+            try {
+                long size = Files.size(spooledFile);
+                if (size == 0) {
+                    rejection = ResponseEntity.badRequest().body("Please select a file to upload");
+                } else if (size > maxImageSize.toBytes()) {
+                    rejection = ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                            .body("File exceeds the " + maxImageSize.toMegabytes() + "MB limit");
+                } else {
+                    return handler.apply(spooledFile);
+                }
+                Files.deleteIfExists(spooledFile);
+            } catch (IOException e) {
+                return Mono.error(e);
+            }
+            return Mono.just(rejection);
+        });
+    }
+
+    private String contentType(FilePart file) {
+        MediaType contentType = file.headers().getContentType();
+        return contentType != null ? contentType.toString() : null;
+    }
+
+    // List endpoints return ReceiptSummary unless the caller asks for view=full
+    private boolean isFullView(String view) {
+        return "full".equalsIgnoreCase(view);
+    }
+}
@@ -1,17 +1,45 @@
 package com.snapcart.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.snapcart.model.BatchUploadResult;
+import com.snapcart.model.CursorPage;
 import com.snapcart.model.Receipt;
+import com.snapcart.model.ReceiptBulkRequest;
+import com.snapcart.model.ReceiptBulkResult;
+import com.snapcart.model.ReceiptJob;
+import com.snapcart.model.ReceiptPatch;
+import com.snapcart.ocr.OcrUnavailableException;
+import com.snapcart.service.BatchUploadService;
+import com.snapcart.service.ReceiptDeferredException;
+import com.snapcart.service.ReceiptIngestionService;
 import com.snapcart.service.ReceiptService;
+import com.snapcart.storage.BlobResponseWriter;
+import com.snapcart.storage.StoredBlob;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+import java.util.zip.ZipException;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/receipts")
 @CrossOrigin(origins = {"http://localhost:5173", "http://localhost:3000"})
 public class ReceiptController {
@@ -19,53 +47,242 @@ public class ReceiptController {
     @Autowired
     private ReceiptService receiptService;
 
+    @Autowired
+    private ReceiptIngestionService receiptIngestionService;
+
+    @Autowired
+    private BatchUploadService batchUploadService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BlobResponseWriter blobResponseWriter;
+
+    @Value("${snapcart.upload.max-image-size:10MB}")
+    private DataSize maxImageSize;
+
     @PostMapping("/upload")
-    public ResponseEntity<?> uploadReceipt(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<?> uploadReceipt(@CurrentUser String userId,
+                                           @RequestParam("file") MultipartFile file) {
         try {
             if (file.isEmpty()) {
                 return ResponseEntity.badRequest().body("Please select a file to upload");
             }
+            if (file.getSize() > maxImageSize.toBytes()) {
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                        .body("File exceeds the " + maxImageSize.toMegabytes() + "MB limit");
+            }
             
-            Receipt receipt = receiptService.processReceipt(file);
+            Receipt receipt = receiptIngestionService.processOrDefer(userId, file);
             return ResponseEntity.ok(receipt);
             
+        } catch (ReceiptDeferredException e) {
+            // OCR is unavailable right now; the receipt will be processed in the background
+            return ResponseEntity.accepted().body(e.getJob());
+        } catch (OcrUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfterMillis() / 1000)))
+                    .body("Receipt processing is temporarily unavailable, please retry shortly");
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Failed to process receipt: " + e.getMessage());
         }
     }
 
+    @PostMapping("/upload/async")
+    public ResponseEntity<?> uploadReceiptAsync(@CurrentUser String userId,
+                                                @RequestParam("file") MultipartFile file) {
+        try {
+            if (file.isEmpty()) {
+                return ResponseEntity.badRequest().body("Please select a file to upload");
+            }
+            if (file.getSize() > maxImageSize.toBytes()) {
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                        .body("File exceeds the " + maxImageSize.toMegabytes() + "MB limit");
+            }
+
+            ReceiptJob job = receiptIngestionService.submit(userId, file);
+            return ResponseEntity.accepted().body(job);
+
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .body("Too many receipts are being processed, please retry shortly");
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Failed to queue receipt: " + e.getMessage());
+        }
+    }
+
+    // Many images and/or ZIP archives of images; returns one result per image in upload order
+    @PostMapping("/upload/batch")
+    public ResponseEntity<?> uploadReceiptBatch(@CurrentUser String userId,
+                                                @RequestParam("files") List<MultipartFile> files) {
+        try {
+            List<BatchUploadResult> results = batchUploadService.processBatch(userId, files);
+            if (results.isEmpty()) {
+                return ResponseEntity.badRequest().body("Please select files to upload");
+            }
+            return ResponseEntity.ok(results);
+
+        } catch (IllegalArgumentException | ZipException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Failed to process receipts: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ReceiptJob> getJob(@CurrentUser String userId,
+                                             @PathVariable String id) {
+        return receiptIngestionService.getJob(userId, id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // The newest receipts only, at most one page; /page walks further and /stream exports everything
     @GetMapping
-    public ResponseEntity<List<Receipt>> getAllReceipts() {
-        List<Receipt> receipts = receiptService.getAllReceipts();
+    public ResponseEntity<List<?>> getAllReceipts(@CurrentUser String userId,
+                                                  @RequestParam(defaultValue = "100") int limit,
+                                                  @RequestParam(defaultValue = "summary") String view) {
+        CursorPage<?> page = isFullView(view) ?
+                receiptService.getReceiptPage(userId, null, limit) :
+                receiptService.getReceiptSummaryPage(userId, null, limit);
+        return ResponseEntity.ok(page.getItems());
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<?>> getReceiptPage(@CurrentUser String userId,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestParam(defaultValue = "20") int limit,
+                                                        @RequestParam(defaultValue = "summary") String view) {
+        try {
+            CursorPage<?> page = isFullView(view) ?
+                    receiptService.getReceiptPage(userId, cursor, limit) :
+                    receiptService.getReceiptSummaryPage(userId, cursor, limit);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Prefix and typo-tolerant search over store and item names, best match first
+    @GetMapping("/search")
+    public ResponseEntity<List<?>> searchReceipts(
+            @CurrentUser String userId,
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "summary") String view) {
+        List<?> receipts = isFullView(view) ?
+                receiptService.searchReceipts(userId, query, limit) :
+                receiptService.searchReceiptSummaries(userId, query, limit);
         return ResponseEntity.ok(receipts);
     }
 
+    // Newline-delimited JSON written straight from the Mongo cursor, one receipt per line
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamReceipts(
+            @CurrentUser String userId,
+            @RequestParam(defaultValue = "summary") String view) {
+        boolean fullView = isFullView(view);
+        StreamingResponseBody body = out -> {
+            try (Stream<?> receipts = fullView ?
+                    receiptService.streamAllReceipts(userId) :
+                    receiptService.streamAllReceiptSummaries(userId)) {
+                Iterator<?> iterator = receipts.iterator();
+                while (iterator.hasNext()) {
+                    out.write(objectMapper.writeValueAsBytes(iterator.next()));
+                    out.write('\n');
+                }
+            }
+            out.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<Receipt> getReceiptById(@PathVariable String id) {
-        Optional<Receipt> receipt = receiptService.getReceiptById(id);
+    public ResponseEntity<Receipt> getReceiptById(@CurrentUser String userId,
+                                                  @PathVariable String id) {
+        Optional<Receipt> receipt = receiptService.getReceiptById(userId, id);
         return receipt.map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/{id}/image")
+    public void getReceiptImage(@CurrentUser String userId,
+                                @PathVariable String id, HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
+        Optional<StoredBlob> image = receiptService.getReceiptImage(userId, id);
+        if (image.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        blobResponseWriter.write(image.get(), request, response);
+    }
+
     @PutMapping("/{id}")
-    public ResponseEntity<Receipt> updateReceipt(@PathVariable String id, 
+    public ResponseEntity<Receipt> updateReceipt(@CurrentUser String userId,
+                                               @PathVariable String id, 
                                                @RequestBody Receipt receipt) {
         try {
-            Receipt updatedReceipt = receiptService.updateReceipt(id, receipt);
-            return ResponseEntity.ok(updatedReceipt);
+            return receiptService.updateReceipt(userId, id, receipt)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @PatchMapping("/{id}")
+    public ResponseEntity<Receipt> patchReceipt(@CurrentUser String userId,
+                                                @PathVariable String id,
+                                                @RequestBody ReceiptPatch patch) {
+        try {
+            return receiptService.patchReceipt(userId, id, patch)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @PostMapping("/bulk")
+    public ResponseEntity<ReceiptBulkResult> bulkUpdate(@CurrentUser String userId,
+                                                        @RequestBody ReceiptBulkRequest request) {
+        try {
+            return ResponseEntity.ok(receiptService.bulkUpdate(userId, request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteReceipt(@PathVariable String id) {
+    public ResponseEntity<Void> deleteReceipt(@CurrentUser String userId,
+                                              @PathVariable String id) {
         try {
-            receiptService.deleteReceipt(id);
+            receiptService.deleteReceipt(userId, id);
             return ResponseEntity.ok().build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
+
+    // List endpoints return ReceiptSummary unless the caller asks for view=full
+    private boolean isFullView(String view) {
+        return "full".equalsIgnoreCase(view);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.snapcart.model;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+public class AnalyticsFilter {
+    // Set from the request's user, never bound from query parameters
+    private String userId;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;
+
+    private String store;
+    private String category;
+
+    // Constructors
+    public AnalyticsFilter() {}
+
+    public AnalyticsFilter(String userId, LocalDate from, LocalDate to, String store, String category) {
+        this.userId = userId;
+        this.from = from;
+        this.to = to;
+        this.store = store;
+        this.category = category;
+    }
+
+    public static AnalyticsFilter forUser(String userId) {
+        return new AnalyticsFilter(userId, null, null, null, null);
+    }
+
+    // True when nothing narrows the user's receipts down
+    public boolean isEmpty() {
+        return from == null && to == null && isBlank(store) && isBlank(category);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    // Getters and Setters
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public LocalDate getFrom() { return from; }
+    public void setFrom(LocalDate from) { this.from = from; }
+
+    public LocalDate getTo() { return to; }
+    public void setTo(LocalDate to) { this.to = to; }
+
+    public String getStore() { return store; }
+    public void setStore(String store) { this.store = store; }
+
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AnalyticsFilter)) return false;
+        AnalyticsFilter that = (AnalyticsFilter) o;
+        return Objects.equals(userId, that.userId) &&
+               Objects.equals(from, that.from) &&
+               Objects.equals(to, that.to) &&
+               Objects.equals(store, that.store) &&
+               Objects.equals(category, that.category);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId, from, to, store, category);
+    }
+}
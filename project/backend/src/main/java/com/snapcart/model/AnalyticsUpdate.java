@@ -0,0 +1,44 @@
+package com.snapcart.model;
+
+/**
+ * One event on the analytics stream. The first event of a subscription is a SNAPSHOT carrying the
+ * full summary; every later event carries the receipt that changed and only the parts of the
+ * summary it changed (see AnalyticsStreamService).
+ */
+public class AnalyticsUpdate {
+
+    public enum Type {
+        SNAPSHOT,
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private Type type;
+    private String receiptId;
+    private ReceiptSummary receipt;
+    private AnalyticsData analytics;
+
+    // Constructors
+    public AnalyticsUpdate() {}
+
+    public AnalyticsUpdate(Type type, String receiptId, ReceiptSummary receipt, AnalyticsData analytics) {
+        this.type = type;
+        this.receiptId = receiptId;
+        this.receipt = receipt;
+        this.analytics = analytics;
+    }
+
+    // Getters and Setters
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+
+    public String getReceiptId() { return receiptId; }
+    public void setReceiptId(String receiptId) { this.receiptId = receiptId; }
+
+    public ReceiptSummary getReceipt() { return receipt; }
+    public void setReceipt(ReceiptSummary receipt) { this.receipt = receipt; }
+
+    public AnalyticsData getAnalytics() { return analytics; }
+    public void setAnalytics(AnalyticsData analytics) { this.analytics = analytics; }
+}
@@ -0,0 +1,53 @@
+package com.snapcart.model;
+
+import java.time.LocalDateTime;
+
+// Progress of a background backfill over the receipts collection
+public class BackfillStatus {
+
+    public enum State {
+        IDLE,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private State state;
+    private long scanned;
+    private long updated;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+
+    // Constructors
+    public BackfillStatus() {}
+
+    public BackfillStatus(State state, long scanned, long updated, LocalDateTime startedAt,
+                          LocalDateTime finishedAt, String error) {
+        this.state = state;
+        this.scanned = scanned;
+        this.updated = updated;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+        this.error = error;
+    }
+
+    // Getters and Setters
+    public State getState() { return state; }
+    public void setState(State state) { this.state = state; }
+
+    public long getScanned() { return scanned; }
+    public void setScanned(long scanned) { this.scanned = scanned; }
+
+    public long getUpdated() { return updated; }
+    public void setUpdated(long updated) { this.updated = updated; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
@@ -0,0 +1,41 @@
+package com.snapcart.model;
+
+public class BatchUploadResult {
+
+    public enum Status {
+        CREATED,
+        DUPLICATE,
+        // OCR was unavailable; the receipt is processed by the ingestion job jobId
+        QUEUED,
+        FAILED
+    }
+
+    private String filename;
+    private Status status;
+    private String receiptId;
+    private String jobId;
+    private String error;
+
+    // Constructors
+    public BatchUploadResult() {}
+
+    public BatchUploadResult(String filename) {
+        this.filename = filename;
+    }
+
+    // Getters and Setters
+    public String getFilename() { return filename; }
+    public void setFilename(String filename) { this.filename = filename; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public String getReceiptId() { return receiptId; }
+    public void setReceiptId(String receiptId) { this.receiptId = receiptId; }
+
+    public String getJobId() { return jobId; }
+    public void setJobId(String jobId) { this.jobId = jobId; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
@@ -0,0 +1,29 @@
+package com.snapcart.model;
+
+import org.springframework.data.annotation.Id;
+
+public class CategorySpending {
+    @Id
+    private String category;
+    private Double totalAmount;
+    private Long count;
+
+    // Constructors
+    public CategorySpending() {}
+
+    public CategorySpending(String category, Double totalAmount, Long count) {
+        this.category = category;
+        this.totalAmount = totalAmount;
+        this.count = count;
+    }
+
+    // Getters and Setters
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    public Double getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(Double totalAmount) { this.totalAmount = totalAmount; }
+
+    public Long getCount() { return count; }
+    public void setCount(Long count) { this.count = count; }
+}
@@ -0,0 +1,31 @@
+package com.snapcart.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+// Marker for a one-off data migration that has completed
+@Document(collection = "migrations")
+public class DataMigration {
+
+    @Id
+    private String name;
+
+    private LocalDateTime completedDate;
+
+    // Constructors
+    public DataMigration() {}
+
+    public DataMigration(String name) {
+        this.name = name;
+        this.completedDate = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public LocalDateTime getCompletedDate() { return completedDate; }
+    public void setCompletedDate(LocalDateTime completedDate) { this.completedDate = completedDate; }
+}
@@ -0,0 +1,29 @@
+package com.snapcart.model;
+
+import org.springframework.data.annotation.Id;
+
+public class ItemCount {
+    @Id
+    private String name;
+    private Long count;
+    private Double totalPrice;
+
+    // Constructors
+    public ItemCount() {}
+
+    public ItemCount(String name, Long count, Double totalPrice) {
+        this.name = name;
+        this.count = count;
+        this.totalPrice = totalPrice;
+    }
+
+    // Getters and Setters
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public Long getCount() { return count; }
+    public void setCount(Long count) { this.count = count; }
+
+    public Double getTotalPrice() { return totalPrice; }
+    public void setTotalPrice(Double totalPrice) { this.totalPrice = totalPrice; }
+}
@@ -0,0 +1,29 @@
+package com.snapcart.model;
+
+import org.springframework.data.annotation.Id;
+
+public class MonthlySpendingSummary {
+    @Id
+    private String month;
+    private Double totalAmount;
+    private Long count;
+
+    // Constructors
+    public MonthlySpendingSummary() {}
+
+    public MonthlySpendingSummary(String month, Double totalAmount, Long count) {
+        this.month = month;
+        this.totalAmount = totalAmount;
+        this.count = count;
+    }
+
+    // Getters and Setters
+    public String getMonth() { return month; }
+    public void setMonth(String month) { this.month = month; }
+
+    public Double getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(Double totalAmount) { this.totalAmount = totalAmount; }
+
+    public Long getCount() { return count; }
+    public void setCount(Long count) { this.count = count; }
+}
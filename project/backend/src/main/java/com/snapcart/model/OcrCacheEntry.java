@@ -0,0 +1,36 @@
+package com.snapcart.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Document(collection = "ocr_cache")
+public class OcrCacheEntry {
+
+    // Engine name and SHA-256 of the image bytes, e.g. "vision:9f2c..."
+    @Id
+    private String contentHash;
+
+    private String extractedText;
+    private LocalDateTime createdDate;
+
+    // Constructors
+    public OcrCacheEntry() {}
+
+    public OcrCacheEntry(String contentHash, String extractedText) {
+        this.contentHash = contentHash;
+        this.extractedText = extractedText;
+        this.createdDate = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+
+    public String getExtractedText() { return extractedText; }
+    public void setExtractedText(String extractedText) { this.extractedText = extractedText; }
+
+    public LocalDateTime getCreatedDate() { return createdDate; }
+    public void setCreatedDate(LocalDateTime createdDate) { this.createdDate = createdDate; }
+}
@@ -1,9 +1,11 @@
 package com.snapcart.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Version;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -14,6 +16,9 @@ public class Receipt {
     @Id
     private String id;
     
+    // Owner of the receipt; every query is scoped by it
+    private String userId;
+    
     private String filename;
     private String imageUrl;
     private String extractedText;
@@ -21,12 +26,27 @@ public class Receipt {
     private Double totalAmount;
     private String store;
     private String category;
+    // Set by the server only; request bodies cannot point a receipt at another blob
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String contentHash;
+    // Blob store keys; extractedText is only stored inline for receipts created before textRef existed
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String imageRef;
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String imageContentType;
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String textRef;
     
     @CreatedDate
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private LocalDateTime createdDate;
     
     @LastModifiedDate
     private LocalDateTime lastModifiedDate;
+    
+    // Optimistic lock: every write bumps it, and PUT/PATCH fail with 409 when the client's copy is stale
+    @Version
+    private Long version;
 
     // Constructors
     public Receipt() {}
@@ -45,6 +65,9 @@ public class Receipt {
     // Getters and Setters
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
+    
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
 
     public String getFilename() { return filename; }
     public void setFilename(String filename) { this.filename = filename; }
@@ -67,9 +90,24 @@ public class Receipt {
     public String getCategory() { return category; }
     public void setCategory(String category) { this.category = category; }
 
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+
+    public String getImageRef() { return imageRef; }
+    public void setImageRef(String imageRef) { this.imageRef = imageRef; }
+
+    public String getImageContentType() { return imageContentType; }
+    public void setImageContentType(String imageContentType) { this.imageContentType = imageContentType; }
+
+    public String getTextRef() { return textRef; }
+    public void setTextRef(String textRef) { this.textRef = textRef; }
+
     public LocalDateTime getCreatedDate() { return createdDate; }
     public void setCreatedDate(LocalDateTime createdDate) { this.createdDate = createdDate; }
 
     public LocalDateTime getLastModifiedDate() { return lastModifiedDate; }
     public void setLastModifiedDate(LocalDateTime lastModifiedDate) { this.lastModifiedDate = lastModifiedDate; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.snapcart.model;
+
+import java.util.List;
+
+// Body of POST /receipts/bulk; a receipt listed under both is deleted
+public class ReceiptBulkRequest {
+
+    public static class CategoryChange {
+        private List<String> ids;
+        private String category;
+
+        // Getters and Setters
+        public List<String> getIds() { return ids; }
+        public void setIds(List<String> ids) { this.ids = ids; }
+
+        public String getCategory() { return category; }
+        public void setCategory(String category) { this.category = category; }
+    }
+
+    private List<CategoryChange> recategorize;
+    private List<String> deleteIds;
+
+    // Constructors
+    public ReceiptBulkRequest() {}
+
+    // Getters and Setters
+    public List<CategoryChange> getRecategorize() { return recategorize; }
+    public void setRecategorize(List<CategoryChange> recategorize) { this.recategorize = recategorize; }
+
+    public List<String> getDeleteIds() { return deleteIds; }
+    public void setDeleteIds(List<String> deleteIds) { this.deleteIds = deleteIds; }
+}
@@ -0,0 +1,27 @@
+package com.snapcart.model;
+
+// Counts reported by the single bulkWrite behind POST /receipts/bulk
+public class ReceiptBulkResult {
+    private int matched;
+    private int modified;
+    private int deleted;
+
+    // Constructors
+    public ReceiptBulkResult() {}
+
+    public ReceiptBulkResult(int matched, int modified, int deleted) {
+        this.matched = matched;
+        this.modified = modified;
+        this.deleted = deleted;
+    }
+
+    // Getters and Setters
+    public int getMatched() { return matched; }
+    public void setMatched(int matched) { this.matched = matched; }
+
+    public int getModified() { return modified; }
+    public void setModified(int modified) { this.modified = modified; }
+
+    public int getDeleted() { return deleted; }
+    public void setDeleted(int deleted) { this.deleted = deleted; }
+}
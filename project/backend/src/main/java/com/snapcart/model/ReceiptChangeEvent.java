@@ -0,0 +1,65 @@
+package com.snapcart.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+// A receipt write announced to the other instances through the capped receipt_changes collection
+@Document(collection = "receipt_changes")
+public class ReceiptChangeEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        // Receipts of every user were rewritten in bulk, e.g. by the item backfill
+        CLEARED
+    }
+
+    @Id
+    private String id;
+
+    // Instance that made the write; it has already applied it
+    private String nodeId;
+    private Type type;
+    private String userId;
+    private String receiptId;
+    // The receipt after the write; null for deletes
+    private ReceiptSummary receipt;
+    private LocalDateTime createdDate;
+
+    // Constructors
+    public ReceiptChangeEvent() {}
+
+    public ReceiptChangeEvent(String nodeId, Type type, String userId, String receiptId, ReceiptSummary receipt) {
+        this.nodeId = nodeId;
+        this.type = type;
+        this.userId = userId;
+        this.receiptId = receiptId;
+        this.receipt = receipt;
+        this.createdDate = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getNodeId() { return nodeId; }
+    public void setNodeId(String nodeId) { this.nodeId = nodeId; }
+
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public String getReceiptId() { return receiptId; }
+    public void setReceiptId(String receiptId) { this.receiptId = receiptId; }
+
+    public ReceiptSummary getReceipt() { return receipt; }
+    public void setReceipt(ReceiptSummary receipt) { this.receipt = receipt; }
+
+    public LocalDateTime getCreatedDate() { return createdDate; }
+    public void setCreatedDate(LocalDateTime createdDate) { this.createdDate = createdDate; }
+}
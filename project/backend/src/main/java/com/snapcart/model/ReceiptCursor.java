@@ -0,0 +1,50 @@
+package com.snapcart.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset position in the (createdDate desc, id desc) receipt ordering, encoded as an
+ * opaque URL-safe token.
+ */
+public class ReceiptCursor {
+    private static final String NO_DATE = "-";
+
+    private final LocalDateTime createdDate;
+    private final String id;
+
+    public ReceiptCursor(LocalDateTime createdDate, String id) {
+        this.createdDate = createdDate;
+        this.id = id;
+    }
+
+    public static ReceiptCursor after(Receipt receipt) {
+        return new ReceiptCursor(receipt.getCreatedDate(), receipt.getId());
+    }
+
+    public static ReceiptCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            String date = raw.substring(0, separator);
+            return new ReceiptCursor(NO_DATE.equals(date) ? null : LocalDateTime.parse(date),
+                    raw.substring(separator + 1));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    public String encode() {
+        String raw = (createdDate != null ? createdDate.toString() : NO_DATE) + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getCreatedDate() { return createdDate; }
+
+    public String getId() { return id; }
+}
@@ -5,6 +5,8 @@ public class ReceiptItem {
     private Double price;
     private Integer quantity;
     private String category;
+    // Set when the name matched the product dictionary
+    private String productId;
 
     // Constructors
     public ReceiptItem() {}
@@ -29,6 +31,9 @@ public class ReceiptItem {
     public String getCategory() { return category; }
     public void setCategory(String category) { this.category = category; }
 
+    public String getProductId() { return productId; }
+    public void setProductId(String productId) { this.productId = productId; }
+
     public Double getTotalPrice() {
         return price != null && quantity != null ? price * quantity : price;
     }
@@ -0,0 +1,69 @@
+package com.snapcart.model;
+
+import java.util.List;
+
+/**
+ * Body of PATCH /receipts/{id}. Null fields are left unchanged. Item edits address items by their
+ * position in the receipt as of {@code version}; removals match items by name. When items change
+ * and no totalAmount is given, the total is recomputed from the items.
+ */
+public class ReceiptPatch {
+
+    public static class ItemEdit {
+        private Integer index;
+        private String name;
+        private Double price;
+        private Integer quantity;
+        private String category;
+
+        // Getters and Setters
+        public Integer getIndex() { return index; }
+        public void setIndex(Integer index) { this.index = index; }
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+
+        public Double getPrice() { return price; }
+        public void setPrice(Double price) { this.price = price; }
+
+        public Integer getQuantity() { return quantity; }
+        public void setQuantity(Integer quantity) { this.quantity = quantity; }
+
+        public String getCategory() { return category; }
+        public void setCategory(String category) { this.category = category; }
+    }
+
+    // Version the client last read; when null the patch applies to whatever version is current
+    private Long version;
+    private String store;
+    private String category;
+    private Double totalAmount;
+    private List<ItemEdit> editItems;
+    private List<ReceiptItem> addItems;
+    private List<String> removeItems;
+
+    // Constructors
+    public ReceiptPatch() {}
+
+    // Getters and Setters
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
+    public String getStore() { return store; }
+    public void setStore(String store) { this.store = store; }
+
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    public Double getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(Double totalAmount) { this.totalAmount = totalAmount; }
+
+    public List<ItemEdit> getEditItems() { return editItems; }
+    public void setEditItems(List<ItemEdit> editItems) { this.editItems = editItems; }
+
+    public List<ReceiptItem> getAddItems() { return addItems; }
+    public void setAddItems(List<ReceiptItem> addItems) { this.addItems = addItems; }
+
+    public List<String> getRemoveItems() { return removeItems; }
+    public void setRemoveItems(List<String> removeItems) { this.removeItems = removeItems; }
+}
@@ -0,0 +1,54 @@
+package com.snapcart.model;
+
+import org.springframework.data.annotation.Id;
+
+import java.time.LocalDateTime;
+
+// Lightweight view of a receipt without extractedText or items, read with a Mongo projection
+public class ReceiptSummary {
+    @Id
+    private String id;
+    private String store;
+    private Double totalAmount;
+    private String category;
+    private LocalDateTime createdDate;
+    private Integer itemCount;
+
+    // Constructors
+    public ReceiptSummary() {}
+
+    public ReceiptSummary(String id, String store, Double totalAmount, String category,
+                          LocalDateTime createdDate, Integer itemCount) {
+        this.id = id;
+        this.store = store;
+        this.totalAmount = totalAmount;
+        this.category = category;
+        this.createdDate = createdDate;
+        this.itemCount = itemCount;
+    }
+
+    public static ReceiptSummary of(Receipt receipt) {
+        return new ReceiptSummary(receipt.getId(), receipt.getStore(), receipt.getTotalAmount(),
+                receipt.getCategory(), receipt.getCreatedDate(),
+                receipt.getItems() != null ? receipt.getItems().size() : 0);
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getStore() { return store; }
+    public void setStore(String store) { this.store = store; }
+
+    public Double getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(Double totalAmount) { this.totalAmount = totalAmount; }
+
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    public LocalDateTime getCreatedDate() { return createdDate; }
+    public void setCreatedDate(LocalDateTime createdDate) { this.createdDate = createdDate; }
+
+    public Integer getItemCount() { return itemCount; }
+    public void setItemCount(Integer itemCount) { this.itemCount = itemCount; }
+}
@@ -0,0 +1,21 @@
+package com.snapcart.model;
+
+public class SpendingTotals {
+    private Double totalSpent;
+    private Long count;
+
+    // Constructors
+    public SpendingTotals() {}
+
+    public SpendingTotals(Double totalSpent, Long count) {
+        this.totalSpent = totalSpent;
+        this.count = count;
+    }
+
+    // Getters and Setters
+    public Double getTotalSpent() { return totalSpent; }
+    public void setTotalSpent(Double totalSpent) { this.totalSpent = totalSpent; }
+
+    public Long getCount() { return count; }
+    public void setCount(Long count) { this.count = count; }
+}
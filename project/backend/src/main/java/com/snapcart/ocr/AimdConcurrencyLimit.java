@@ -0,0 +1,55 @@
+package com.snapcart.ocr;
+
+/**
+ * Additive-increase/multiplicative-decrease limit on in-flight calls. A call that finishes
+ * under the latency target while the limit is in use raises the limit by roughly one per
+ * round trip; a timeout, error or slow call cuts it by {@code backoffRatio}.
+ */
+class AimdConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyTargetNanos;
+    private final double backoffRatio;
+
+    private double limit;
+    private int inFlight;
+
+    AimdConcurrencyLimit(int initialLimit, int minLimit, int maxLimit,
+                         long latencyTargetNanos, double backoffRatio) {
+        this.limit = Math.min(maxLimit, Math.max(minLimit, initialLimit));
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTargetNanos = latencyTargetNanos;
+        this.backoffRatio = backoffRatio;
+    }
+
+    synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    synchronized void release() {
+        inFlight--;
+    }
+
+    synchronized void onSample(long latencyNanos, boolean dropped) {
+        if (dropped || latencyNanos > latencyTargetNanos) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (inFlight * 2 >= (int) limit) {
+            // Only grow while the limit is actually being used
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+}
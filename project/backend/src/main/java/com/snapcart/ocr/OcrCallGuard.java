@@ -0,0 +1,220 @@
+package com.snapcart.ocr;
+
+import com.snapcart.util.ThreadAllocation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Resilience layer for OCR calls: a deadline per call, a circuit breaker that fails fast
+ * while the engine is unhealthy, and an AIMD limit on in-flight calls. Rejected and timed-out
+ * calls throw {@link OcrUnavailableException} so callers can defer the work instead of blocking.
+ * Calls run on a dedicated pool so a hung engine call can be abandoned at its deadline; it keeps
+ * its concurrency permit until it actually returns. {@link #callAsync} is the non-blocking form.
+ */
+@Component
+public class OcrCallGuard {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${snapcart.ocr.resilience.timeout-ms:10000}")
+    private long timeoutMs;
+
+    @Value("${snapcart.ocr.resilience.breaker.window-size:20}")
+    private int breakerWindowSize;
+
+    @Value("${snapcart.ocr.resilience.breaker.minimum-calls:10}")
+    private int breakerMinimumCalls;
+
+    @Value("${snapcart.ocr.resilience.breaker.failure-rate-threshold:0.5}")
+    private double breakerFailureRateThreshold;
+
+    @Value("${snapcart.ocr.resilience.breaker.open-duration-ms:30000}")
+    private long breakerOpenDurationMs;
+
+    @Value("${snapcart.ocr.resilience.breaker.trial-calls:3}")
+    private int breakerTrialCalls;
+
+    @Value("${snapcart.ocr.resilience.limit.initial:8}")
+    private int initialLimit;
+
+    @Value("${snapcart.ocr.resilience.limit.min:1}")
+    private int minLimit;
+
+    @Value("${snapcart.ocr.resilience.limit.max:32}")
+    private int maxLimit;
+
+    @Value("${snapcart.ocr.resilience.limit.latency-target-ms:3000}")
+    private long latencyTargetMs;
+
+    @Value("${snapcart.ocr.resilience.limit.backoff-ratio:0.75}")
+    private double backoffRatio;
+
+    private CircuitBreaker circuitBreaker;
+    private AimdConcurrencyLimit concurrencyLimit;
+    private ExecutorService callPool;
+    private ScheduledThreadPoolExecutor deadlines;
+
+    private Counter breakerRejections;
+    private Counter limitRejections;
+    private Counter timeouts;
+    private DistributionSummary callAllocatedBytes;
+
+    @PostConstruct
+    public void init() {
+        circuitBreaker = new CircuitBreaker(breakerWindowSize, breakerMinimumCalls, breakerFailureRateThreshold,
+                TimeUnit.MILLISECONDS.toNanos(breakerOpenDurationMs), breakerTrialCalls);
+        concurrencyLimit = new AimdConcurrencyLimit(initialLimit, minLimit, maxLimit,
+                TimeUnit.MILLISECONDS.toNanos(latencyTargetMs), backoffRatio);
+        // In-flight calls never exceed maxLimit, so the pool never queues
+        callPool = Executors.newFixedThreadPool(maxLimit, new CustomizableThreadFactory("ocr-call-"));
+        deadlines = new ScheduledThreadPoolExecutor(1, new CustomizableThreadFactory("ocr-deadline-"));
+        deadlines.setRemoveOnCancelPolicy(true);
+
+        breakerRejections = Counter.builder("snapcart.ocr.rejected").tag("reason", "breaker-open")
+                .register(meterRegistry);
+        limitRejections = Counter.builder("snapcart.ocr.rejected").tag("reason", "concurrency-limit")
+                .register(meterRegistry);
+        timeouts = Counter.builder("snapcart.ocr.timeouts")
+                .description("OCR calls abandoned at their deadline")
+                .register(meterRegistry);
+        // Measured on the ocr-call thread, so it covers reading the image and building the engine request
+        callAllocatedBytes = DistributionSummary.builder("snapcart.ocr.call.allocated")
+                .baseUnit("bytes")
+                .description("Heap allocated by one OCR engine call")
+                .register(meterRegistry);
+        Gauge.builder("snapcart.ocr.breaker.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("0 = closed, 1 = half-open, 2 = open")
+                .register(meterRegistry);
+        Gauge.builder("snapcart.ocr.concurrency.limit", concurrencyLimit, AimdConcurrencyLimit::getLimit)
+                .register(meterRegistry);
+        Gauge.builder("snapcart.ocr.concurrency.inflight", concurrencyLimit, AimdConcurrencyLimit::getInFlight)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        callPool.shutdownNow();
+        deadlines.shutdownNow();
+    }
+
+    public String call(Callable<String> ocrCall) throws IOException {
+        CompletableFuture<String> result = callAsync(ocrCall);
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for OCR", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("OCR failed", cause);
+        }
+    }
+
+    /**
+     * Same guarantees as {@link #call} without a waiting thread: the deadline is a scheduled task,
+     * so reactive callers only hold an ocr-call thread while the engine itself runs. Rejections
+     * complete the future with {@link OcrUnavailableException}; cancelling it abandons the call.
+     */
+    public CompletableFuture<String> callAsync(Callable<String> ocrCall) {
+        if (!concurrencyLimit.tryAcquire()) {
+            limitRejections.increment();
+            return CompletableFuture.failedFuture(new OcrUnavailableException("Too many OCR calls in flight", 1000));
+        }
+        long startNanos = System.nanoTime();
+        if (!circuitBreaker.tryAcquire(startNanos)) {
+            concurrencyLimit.release();
+            breakerRejections.increment();
+            return CompletableFuture.failedFuture(new OcrUnavailableException("OCR is temporarily unavailable",
+                    circuitBreaker.retryAfterMillis(startNanos)));
+        }
+
+        // Whichever of the call and the deadline finishes first records the outcome
+        AtomicBoolean settled = new AtomicBoolean();
+        // Claimed by the worker when it starts, or by the caller when cancelling a call that never ran
+        AtomicBoolean claimed = new AtomicBoolean();
+        CompletableFuture<String> result = new CompletableFuture<>();
+        Future<?> future;
+        try {
+            future = callPool.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return;
+                }
+                long allocatedBefore = ThreadAllocation.currentThreadAllocatedBytes();
+                try {
+                    String text = ocrCall.call();
+                    settle(settled, startNanos, false);
+                    result.complete(text);
+                } catch (Exception e) {
+                    settle(settled, startNanos, true);
+                    result.completeExceptionally(e);
+                } finally {
+                    concurrencyLimit.release();
+                    if (allocatedBefore >= 0) {
+                        callAllocatedBytes.record(ThreadAllocation.currentThreadAllocatedBytes() - allocatedBefore);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            concurrencyLimit.release();
+            circuitBreaker.release();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        ScheduledFuture<?> deadline = deadlines.schedule(() -> {
+            if (result.completeExceptionally(
+                    new OcrUnavailableException("OCR did not finish within " + timeoutMs + " ms", 1000))) {
+                cancel(future, claimed);
+                timeouts.increment();
+                settle(settled, startNanos, true);
+            }
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+        result.whenComplete((text, error) -> {
+            deadline.cancel(false);
+            if (result.isCancelled()) {
+                cancel(future, claimed);
+            }
+        });
+        return result;
+    }
+
+    private void cancel(Future<?> future, AtomicBoolean claimed) {
+        future.cancel(true);
+        if (claimed.compareAndSet(false, true)) {
+            concurrencyLimit.release();
+            circuitBreaker.release();
+        }
+    }
+
+    private void settle(AtomicBoolean settled, long startNanos, boolean failed) {
+        if (!settled.compareAndSet(false, true)) {
+            return;
+        }
+        long nowNanos = System.nanoTime();
+        if (failed) {
+            circuitBreaker.onFailure(nowNanos);
+        } else {
+            circuitBreaker.onSuccess();
+        }
+        concurrencyLimit.onSample(nowNanos - startNanos, failed);
+    }
+}
@@ -0,0 +1,15 @@
+package com.snapcart.ocr;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Turns a receipt image into raw text. The implementation is picked with
+ * {@code snapcart.ocr.engine}: {@code vision} (default), {@code stub} or {@code tesseract}.
+ */
+public interface OcrEngine {
+
+    String name();
+
+    String extractText(Path image) throws IOException;
+}
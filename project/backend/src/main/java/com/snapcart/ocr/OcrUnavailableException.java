@@ -0,0 +1,16 @@
+package com.snapcart.ocr;
+
+// OCR was not attempted or did not finish in time; the caller may retry after retryAfterMillis
+public class OcrUnavailableException extends RuntimeException {
+
+    private final long retryAfterMillis;
+
+    public OcrUnavailableException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,82 @@
+package com.snapcart.ocr;
+
+import com.snapcart.util.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Offline engine for load tests: returns canned receipt text from a fixture corpus after a
+ * simulated latency. The same image always maps to the same fixture and the same delay.
+ */
+@Component
+@ConditionalOnProperty(name = "snapcart.ocr.engine", havingValue = "stub")
+public class StubOcrEngine implements OcrEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(StubOcrEngine.class);
+
+    private final List<String> fixtures;
+    private final long latencyMs;
+    private final long jitterMs;
+
+    public StubOcrEngine(@Value("${snapcart.ocr.stub.fixtures:classpath:ocr-fixtures/*.txt}") String fixtureLocation,
+                         @Value("${snapcart.ocr.stub.latency-ms:300}") long latencyMs,
+                         @Value("${snapcart.ocr.stub.jitter-ms:100}") long jitterMs) throws IOException {
+        this.fixtures = loadFixtures(fixtureLocation);
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        log.info("Stub OCR engine loaded {} fixtures from {}", fixtures.size(), fixtureLocation);
+    }
+
+    @Override
+    public String name() {
+        return "stub";
+    }
+
+    @Override
+    public String extractText(Path image) throws IOException {
+        // The first 15 hex digits (60 bits) of the image hash pick the fixture and the delay
+        long seed = Long.parseUnsignedLong(Hashing.sha256Hex(image).substring(0, 15), 16);
+        long delay = latencyMs + (jitterMs > 0 ? seed % (jitterMs + 1) : 0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while simulating OCR latency", e);
+            }
+        }
+        return fixtures.get((int) (seed % fixtures.size()));
+    }
+
+    private static List<String> loadFixtures(String location) throws IOException {
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources(location);
+        // Sorted so fixture selection does not depend on classpath scanning order
+        Arrays.sort(resources, Comparator.comparing(Resource::getFilename,
+                Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        List<String> fixtures = new ArrayList<>(resources.length);
+        for (Resource resource : resources) {
+            try (InputStream in = resource.getInputStream()) {
+                fixtures.add(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        if (fixtures.isEmpty()) {
+            throw new IllegalStateException("No OCR fixtures found at " + location);
+        }
+        return List.copyOf(fixtures);
+    }
+}
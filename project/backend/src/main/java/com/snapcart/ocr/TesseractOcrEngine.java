@@ -0,0 +1,78 @@
+package com.snapcart.ocr;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local OCR through the {@code tesseract} command-line tool, for running without network
+ * access. Fails at startup when the binary cannot be run.
+ */
+@Component
+@ConditionalOnProperty(name = "snapcart.ocr.engine", havingValue = "tesseract")
+public class TesseractOcrEngine implements OcrEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(TesseractOcrEngine.class);
+
+    private final String command;
+    private final String language;
+    private final long timeoutSeconds;
+
+    public TesseractOcrEngine(@Value("${snapcart.ocr.tesseract.command:tesseract}") String command,
+                              @Value("${snapcart.ocr.tesseract.language:eng}") String language,
+                              @Value("${snapcart.ocr.tesseract.timeout-seconds:30}") long timeoutSeconds)
+            throws IOException {
+        this.command = command;
+        this.language = language;
+        this.timeoutSeconds = timeoutSeconds;
+        String version = run(List.of(command, "--version")).lines().findFirst().orElse("unknown version");
+        log.info("Using local OCR engine {}", version);
+    }
+
+    @Override
+    public String name() {
+        return "tesseract";
+    }
+
+    @Override
+    public String extractText(Path image) throws IOException {
+        // psm 4: a single column of text of variable sizes, which suits receipts
+        return run(List.of(command, image.toString(), "stdout", "-l", language, "--psm", "4"));
+    }
+
+    // Output goes to a temp file so the timeout holds even if the process stops writing
+    private String run(List<String> arguments) throws IOException {
+        Path output = Files.createTempFile("tesseract-", ".txt");
+        Process process = null;
+        try {
+            process = new ProcessBuilder(arguments)
+                    .redirectOutput(output.toFile())
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                throw new IOException(arguments.get(0) + " timed out after " + timeoutSeconds + "s");
+            }
+            if (process.exitValue() != 0) {
+                throw new IOException(arguments.get(0) + " exited with status " + process.exitValue());
+            }
+            return Files.readString(output, StandardCharsets.UTF_8);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running " + arguments.get(0), e);
+        } finally {
+            if (process != null) {
+                process.destroyForcibly();
+            }
+            Files.deleteIfExists(output);
+        }
+    }
+}
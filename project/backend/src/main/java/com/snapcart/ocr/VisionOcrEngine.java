@@ -0,0 +1,79 @@
+package com.snapcart.ocr;
+
+import com.google.cloud.vision.v1.*;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import com.snapcart.service.BatchingOcrClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Google Cloud Vision TEXT_DETECTION, optionally coalesced into batch calls by BatchingOcrClient
+@Component
+@ConditionalOnProperty(name = "snapcart.ocr.engine", havingValue = "vision", matchIfMissing = true)
+public class VisionOcrEngine implements OcrEngine {
+
+    @Autowired
+    private ImageAnnotatorClient imageAnnotatorClient;
+
+    @Autowired
+    private BatchingOcrClient batchingOcrClient;
+
+    @Value("${snapcart.ocr.batching.enabled:true}")
+    private boolean batchingEnabled;
+
+    @Override
+    public String name() {
+        return "vision";
+    }
+
+    @Override
+    public String extractText(Path image) throws IOException {
+        try (FileChannel channel = FileChannel.open(image, StandardOpenOption.READ)) {
+            // Map the image instead of reading it onto the heap; the ByteString wraps the
+            // mapping without copying, and the only copy is gRPC's request serialization
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return extractText(UnsafeByteOperations.unsafeWrap(mapped));
+        }
+    }
+
+    private String extractText(ByteString imgBytes) {
+        Image img = Image.newBuilder().setContent(imgBytes).build();
+        Feature feat = Feature.newBuilder().setType(Feature.Type.TEXT_DETECTION).build();
+        AnnotateImageRequest request = AnnotateImageRequest.newBuilder()
+                .addFeatures(feat)
+                .setImage(img)
+                .build();
+
+        AnnotateImageResponse res = annotate(request);
+
+        if (res.hasError()) {
+            throw new RuntimeException("Error: " + res.getError().getMessage());
+        }
+
+        for (EntityAnnotation annotation : res.getTextAnnotationsList()) {
+            return annotation.getDescription();
+        }
+        
+        return "";
+    }
+
+    private AnnotateImageResponse annotate(AnnotateImageRequest request) {
+        if (batchingEnabled) {
+            return batchingOcrClient.annotate(request);
+        }
+
+        BatchAnnotateImagesResponse response = imageAnnotatorClient
+                .batchAnnotateImages(Arrays.asList(request));
+        return response.getResponsesCount() > 0 ?
+                response.getResponses(0) : AnnotateImageResponse.getDefaultInstance();
+    }
+}
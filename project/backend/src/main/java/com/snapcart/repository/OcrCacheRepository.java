@@ -0,0 +1,9 @@
+package com.snapcart.repository;
+
+import com.snapcart.model.OcrCacheEntry;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OcrCacheRepository extends MongoRepository<OcrCacheEntry, String> {
+}
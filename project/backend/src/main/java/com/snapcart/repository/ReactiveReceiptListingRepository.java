@@ -0,0 +1,21 @@
+package com.snapcart.repository;
+
+import com.snapcart.model.Receipt;
+import com.snapcart.model.ReceiptCursor;
+import com.snapcart.model.ReceiptSummary;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+
+public interface ReactiveReceiptListingRepository {
+
+    Flux<Receipt> findPage(String userId, ReceiptCursor after, int limit);
+
+    Flux<Receipt> findAllNewestFirst(String userId);
+
+    Flux<ReceiptSummary> findSummaryPage(String userId, ReceiptCursor after, int limit);
+
+    Flux<ReceiptSummary> findSummariesNewestFirst(String userId);
+
+    Flux<ReceiptSummary> findSummariesByIds(String userId, Collection<String> ids);
+}
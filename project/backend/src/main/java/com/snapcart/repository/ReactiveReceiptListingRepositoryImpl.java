@@ -0,0 +1,77 @@
+package com.snapcart.repository;
+
+import com.snapcart.model.Receipt;
+import com.snapcart.model.ReceiptCursor;
+import com.snapcart.model.ReceiptSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static com.snapcart.repository.ReceiptListingRepositoryImpl.NEWEST_FIRST;
+import static com.snapcart.repository.ReceiptListingRepositoryImpl.STREAM_BATCH_SIZE;
+import static com.snapcart.repository.ReceiptListingRepositoryImpl.SUMMARY_PROJECTION;
+import static com.snapcart.repository.ReceiptListingRepositoryImpl.keysetAfter;
+import static com.snapcart.repository.ReceiptListingRepositoryImpl.ownedBy;
+
+// Same queries and pipelines as ReceiptListingRepositoryImpl, on the reactive driver
+public class ReactiveReceiptListingRepositoryImpl implements ReactiveReceiptListingRepository {
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Override
+    public Flux<Receipt> findPage(String userId, ReceiptCursor after, int limit) {
+        Query query = new Query(ownedBy(userId));
+        if (after != null) {
+            query.addCriteria(keysetAfter(after));
+        }
+        query.with(NEWEST_FIRST).limit(limit);
+        return reactiveMongoTemplate.find(query, Receipt.class);
+    }
+
+    // Documents are requested from the cursor as the subscriber asks for them
+    @Override
+    public Flux<Receipt> findAllNewestFirst(String userId) {
+        Query query = new Query(ownedBy(userId)).with(NEWEST_FIRST).cursorBatchSize(STREAM_BATCH_SIZE);
+        return reactiveMongoTemplate.find(query, Receipt.class);
+    }
+
+    @Override
+    public Flux<ReceiptSummary> findSummaryPage(String userId, ReceiptCursor after, int limit) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(Aggregation.match(ownedBy(userId)));
+        if (after != null) {
+            stages.add(Aggregation.match(keysetAfter(after)));
+        }
+        stages.add(Aggregation.sort(NEWEST_FIRST));
+        stages.add(Aggregation.limit(limit));
+        stages.add(SUMMARY_PROJECTION);
+
+        TypedAggregation<Receipt> aggregation = Aggregation.newAggregation(Receipt.class, stages);
+        return reactiveMongoTemplate.aggregate(aggregation, ReceiptSummary.class);
+    }
+
+    @Override
+    public Flux<ReceiptSummary> findSummariesNewestFirst(String userId) {
+        TypedAggregation<Receipt> aggregation = Aggregation.newAggregation(Receipt.class,
+                Aggregation.match(ownedBy(userId)), Aggregation.sort(NEWEST_FIRST), SUMMARY_PROJECTION)
+                .withOptions(AggregationOptions.builder().cursorBatchSize(STREAM_BATCH_SIZE).build());
+        return reactiveMongoTemplate.aggregate(aggregation, ReceiptSummary.class);
+    }
+
+    @Override
+    public Flux<ReceiptSummary> findSummariesByIds(String userId, Collection<String> ids) {
+        TypedAggregation<Receipt> aggregation = Aggregation.newAggregation(Receipt.class,
+                Aggregation.match(ownedBy(userId).and("id").in(ids)), SUMMARY_PROJECTION);
+        return reactiveMongoTemplate.aggregate(aggregation, ReceiptSummary.class);
+    }
+}
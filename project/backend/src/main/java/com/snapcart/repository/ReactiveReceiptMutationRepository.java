@@ -0,0 +1,16 @@
+package com.snapcart.repository;
+
+import com.mongodb.bulk.BulkWriteResult;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface ReactiveReceiptMutationRepository {
+
+    Mono<Boolean> updateAtVersion(String userId, String id, Long expectedVersion, Update update);
+
+    Mono<BulkWriteResult> bulkWrite(String userId, Map<String, ? extends Collection<String>> idsByCategory,
+                                    Collection<String> deleteIds);
+}
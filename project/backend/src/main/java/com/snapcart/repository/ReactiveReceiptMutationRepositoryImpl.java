@@ -0,0 +1,41 @@
+package com.snapcart.repository;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.snapcart.model.Receipt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+
+import static com.snapcart.repository.ReceiptMutationRepositoryImpl.atVersion;
+import static com.snapcart.repository.ReceiptMutationRepositoryImpl.ownedIn;
+import static com.snapcart.repository.ReceiptMutationRepositoryImpl.recategorize;
+
+// Same writes as ReceiptMutationRepositoryImpl, on the reactive driver
+public class ReactiveReceiptMutationRepositoryImpl implements ReactiveReceiptMutationRepository {
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Override
+    public Mono<Boolean> updateAtVersion(String userId, String id, Long expectedVersion, Update update) {
+        return reactiveMongoTemplate.updateFirst(atVersion(userId, id, expectedVersion), update, Receipt.class)
+                .map(result -> result.getMatchedCount() > 0);
+    }
+
+    @Override
+    public Mono<BulkWriteResult> bulkWrite(String userId, Map<String, ? extends Collection<String>> idsByCategory,
+                                           Collection<String> deleteIds) {
+        ReactiveBulkOperations bulk = reactiveMongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Receipt.class);
+        idsByCategory.forEach((category, ids) -> bulk.updateMulti(ownedIn(userId, ids), recategorize(category)));
+        if (!deleteIds.isEmpty()) {
+            bulk.remove(ownedIn(userId, deleteIds));
+        }
+        return bulk.execute();
+    }
+}
@@ -0,0 +1,25 @@
+package com.snapcart.repository;
+
+import com.snapcart.model.Receipt;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+// Reactive counterpart of ReceiptRepository used by the 'reactive' profile; same user-scoped finders
+@Repository
+public interface ReactiveReceiptRepository extends ReactiveMongoRepository<Receipt, String>, ReactiveReceiptListingRepository,
+        ReactiveReceiptMutationRepository {
+
+    Mono<Receipt> findFirstByUserIdAndContentHash(String userId, String contentHash);
+
+    Mono<Receipt> findByIdAndUserId(String id, String userId);
+
+    @Query(value = "{ '_id': ?0, 'userId': ?1 }", fields = "{ 'imageRef': 1, 'imageContentType': 1 }")
+    Mono<Receipt> findImageRefByIdAndUserId(String id, String userId);
+
+    Flux<Receipt> findByUserIdAndIdIn(String userId, Collection<String> ids);
+}
@@ -0,0 +1,20 @@
+package com.snapcart.repository;
+
+import com.snapcart.model.AnalyticsFilter;
+import com.snapcart.model.CategorySpending;
+import com.snapcart.model.ItemCount;
+import com.snapcart.model.MonthlySpendingSummary;
+import com.snapcart.model.SpendingTotals;
+
+import java.util.List;
+
+public interface ReceiptAnalyticsRepository {
+
+    SpendingTotals aggregateTotals(AnalyticsFilter filter);
+
+    List<MonthlySpendingSummary> aggregateMonthlySpending(AnalyticsFilter filter);
+
+    List<ItemCount> aggregateTopItems(AnalyticsFilter filter, int limit);
+
+    List<CategorySpending> aggregateCategorySpending(AnalyticsFilter filter);
+}
@@ -0,0 +1,133 @@
+package com.snapcart.repository;
+
+import com.snapcart.model.AnalyticsFilter;
+import com.snapcart.model.CategorySpending;
+import com.snapcart.model.ItemCount;
+import com.snapcart.model.MonthlySpendingSummary;
+import com.snapcart.model.Receipt;
+import com.snapcart.model.SpendingTotals;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+public class ReceiptAnalyticsRepositoryImpl implements ReceiptAnalyticsRepository {
+
+    /**
+     * Case-insensitive comparison for the store and category filters. The userId_store_ci and
+     * userId_category_ci indexes are built with it, so a filtered pipeline matches by equality on an
+     * index bound instead of scanning the user's receipts with a regex.
+     */
+    public static final Collation CASE_INSENSITIVE = Collation.of("en").strength(Collation.ComparisonLevel.secondary());
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public SpendingTotals aggregateTotals(AnalyticsFilter filter) {
+        List<AggregationOperation> stages = matchStages(filter);
+        stages.add(group().sum("totalAmount").as("totalSpent").count().as("count"));
+
+        SpendingTotals totals = mongoTemplate
+                .aggregate(aggregation(filter, stages), Receipt.class, SpendingTotals.class)
+                .getUniqueMappedResult();
+        return totals != null ? totals : new SpendingTotals(0.0, 0L);
+    }
+
+    @Override
+    public List<MonthlySpendingSummary> aggregateMonthlySpending(AnalyticsFilter filter) {
+        List<AggregationOperation> stages = matchStages(filter);
+        stages.add(project("totalAmount")
+                .and(DateOperators.DateToString.dateOf("createdDate")
+                        .toString("%Y-%m")
+                        .withTimezone(DateOperators.Timezone.valueOf(ZoneId.systemDefault().getId()))
+                        .onNullReturn("Unknown"))
+                .as("month"));
+        stages.add(group("month").sum("totalAmount").as("totalAmount").count().as("count"));
+        stages.add(sort(Sort.Direction.ASC, "_id"));
+
+        return mongoTemplate
+                .aggregate(aggregation(filter, stages), Receipt.class, MonthlySpendingSummary.class)
+                .getMappedResults();
+    }
+
+    @Override
+    public List<ItemCount> aggregateTopItems(AnalyticsFilter filter, int limit) {
+        List<AggregationOperation> stages = matchStages(filter);
+        stages.add(unwind("items"));
+        stages.add(match(Criteria.where("items.name").regex("\\S")));
+        stages.add(group("items.name").count().as("count").sum("items.price").as("totalPrice"));
+        stages.add(sort(Sort.Direction.DESC, "count"));
+        stages.add(limit(limit));
+
+        return mongoTemplate
+                .aggregate(aggregation(filter, stages), Receipt.class, ItemCount.class)
+                .getMappedResults();
+    }
+
+    @Override
+    public List<CategorySpending> aggregateCategorySpending(AnalyticsFilter filter) {
+        List<AggregationOperation> stages = matchStages(filter);
+        stages.add(project("totalAmount")
+                .and(ConditionalOperators.ifNull("category").then("General"))
+                .as("category"));
+        stages.add(group("category").sum("totalAmount").as("totalAmount").count().as("count"));
+
+        return mongoTemplate
+                .aggregate(aggregation(filter, stages), Receipt.class, CategorySpending.class)
+                .getMappedResults();
+    }
+
+    // Leading $match stage so the user scope and filter can use indexes before any grouping happens
+    private List<AggregationOperation> matchStages(AnalyticsFilter filter) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        List<Criteria> criteria = new ArrayList<>();
+        criteria.add(Criteria.where("userId").is(filter.getUserId()));
+        if (filter.getFrom() != null || filter.getTo() != null) {
+            Criteria createdDate = Criteria.where("createdDate");
+            if (filter.getFrom() != null) {
+                createdDate = createdDate.gte(filter.getFrom().atStartOfDay());
+            }
+            if (filter.getTo() != null) {
+                createdDate = createdDate.lt(filter.getTo().plusDays(1).atStartOfDay());
+            }
+            criteria.add(createdDate);
+        }
+        if (hasText(filter.getStore())) {
+            criteria.add(Criteria.where("store").is(filter.getStore().trim()));
+        }
+        if (hasText(filter.getCategory())) {
+            criteria.add(Criteria.where("category").is(filter.getCategory().trim()));
+        }
+
+        stages.add(match(new Criteria().andOperator(criteria)));
+        return stages;
+    }
+
+    // Store and category match case-insensitively through the collation. Only filtered pipelines
+    // carry it: the userId_createdDate index has none, so unfiltered ones keep using that index.
+    // Under the collation, categories differing only in case also group together.
+    private Aggregation aggregation(AnalyticsFilter filter, List<AggregationOperation> stages) {
+        Aggregation aggregation = newAggregation(stages);
+        if (hasText(filter.getStore()) || hasText(filter.getCategory())) {
+            aggregation = aggregation.withOptions(AggregationOptions.builder().collation(CASE_INSENSITIVE).build());
+        }
+        return aggregation;
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+}
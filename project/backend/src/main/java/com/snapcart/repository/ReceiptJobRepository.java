@@ -0,0 +1,17 @@
+package com.snapcart.repository;
+
+import com.snapcart.model.ReceiptJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReceiptJobRepository extends MongoRepository<ReceiptJob, String> {
+
+    Optional<ReceiptJob> findByIdAndUserId(String id, String userId);
+
+    List<ReceiptJob> findByNodeIdAndStatusIn(String nodeId, Collection<ReceiptJob.Status> statuses);
+}
@@ -0,0 +1,22 @@
+package com.snapcart.repository;
+
+import com.snapcart.model.Receipt;
+import com.snapcart.model.ReceiptCursor;
+import com.snapcart.model.ReceiptSummary;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface ReceiptListingRepository {
+
+    List<Receipt> findPage(String userId, ReceiptCursor after, int limit);
+
+    Stream<Receipt> streamAllNewestFirst(String userId);
+
+    List<ReceiptSummary> findSummaryPage(String userId, ReceiptCursor after, int limit);
+
+    Stream<ReceiptSummary> streamSummariesNewestFirst(String userId);
+
+    List<ReceiptSummary> findSummariesByIds(String userId, Collection<String> ids);
+}
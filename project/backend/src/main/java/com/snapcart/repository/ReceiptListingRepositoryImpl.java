@@ -0,0 +1,107 @@
+package com.snapcart.repository;
+
+import com.snapcart.model.Receipt;
+import com.snapcart.model.ReceiptCursor;
+import com.snapcart.model.ReceiptSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.ProjectionOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class ReceiptListingRepositoryImpl implements ReceiptListingRepository {
+
+    static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "createdDate")
+            .and(Sort.by(Sort.Direction.DESC, "id"));
+
+    static final int STREAM_BATCH_SIZE = 500;
+
+    // Only the summary fields leave the server; extractedText and items are never read out
+    static final ProjectionOperation SUMMARY_PROJECTION = Aggregation
+            .project("store", "totalAmount", "category", "createdDate")
+            .and(ArrayOperators.Size.lengthOfArray(
+                    ConditionalOperators.ifNull("items").then(Collections.emptyList())))
+            .as("itemCount");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public List<Receipt> findPage(String userId, ReceiptCursor after, int limit) {
+        Query query = new Query(ownedBy(userId));
+        if (after != null) {
+            query.addCriteria(keysetAfter(after));
+        }
+        query.with(NEWEST_FIRST).limit(limit);
+        return mongoTemplate.find(query, Receipt.class);
+    }
+
+    @Override
+    public Stream<Receipt> streamAllNewestFirst(String userId) {
+        Query query = new Query(ownedBy(userId)).with(NEWEST_FIRST).cursorBatchSize(STREAM_BATCH_SIZE);
+        return mongoTemplate.stream(query, Receipt.class);
+    }
+
+    @Override
+    public List<ReceiptSummary> findSummaryPage(String userId, ReceiptCursor after, int limit) {
+        List<AggregationOperation> stages = new ArrayList<>();
+        stages.add(Aggregation.match(ownedBy(userId)));
+        if (after != null) {
+            stages.add(Aggregation.match(keysetAfter(after)));
+        }
+        stages.add(Aggregation.sort(NEWEST_FIRST));
+        stages.add(Aggregation.limit(limit));
+        stages.add(SUMMARY_PROJECTION);
+
+        TypedAggregation<Receipt> aggregation = Aggregation.newAggregation(Receipt.class, stages);
+        return mongoTemplate.aggregate(aggregation, ReceiptSummary.class).getMappedResults();
+    }
+
+    @Override
+    public Stream<ReceiptSummary> streamSummariesNewestFirst(String userId) {
+        TypedAggregation<Receipt> aggregation = Aggregation.newAggregation(Receipt.class,
+                Aggregation.match(ownedBy(userId)), Aggregation.sort(NEWEST_FIRST), SUMMARY_PROJECTION)
+                .withOptions(AggregationOptions.builder().cursorBatchSize(STREAM_BATCH_SIZE).build());
+        return mongoTemplate.aggregateStream(aggregation, ReceiptSummary.class);
+    }
+
+    @Override
+    public List<ReceiptSummary> findSummariesByIds(String userId, Collection<String> ids) {
+        TypedAggregation<Receipt> aggregation = Aggregation.newAggregation(Receipt.class,
+                Aggregation.match(ownedBy(userId).and("id").in(ids)), SUMMARY_PROJECTION);
+        return mongoTemplate.aggregate(aggregation, ReceiptSummary.class).getMappedResults();
+    }
+
+    // Equality on the leading key of the (userId, createdDate, _id) index keeps the sort on the index
+    static Criteria ownedBy(String userId) {
+        return Criteria.where("userId").is(userId);
+    }
+
+    // Everything that sorts after the cursor; receipts without a createdDate sort last
+    static Criteria keysetAfter(ReceiptCursor after) {
+        if (after.getCreatedDate() == null) {
+            return new Criteria().andOperator(
+                    Criteria.where("createdDate").is(null),
+                    Criteria.where("id").lt(after.getId()));
+        }
+        return new Criteria().orOperator(
+                Criteria.where("createdDate").lt(after.getCreatedDate()),
+                new Criteria().andOperator(
+                        Criteria.where("createdDate").is(after.getCreatedDate()),
+                        Criteria.where("id").lt(after.getId())),
+                Criteria.where("createdDate").is(null));
+    }
+}
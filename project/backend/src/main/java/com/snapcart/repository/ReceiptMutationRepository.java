@@ -0,0 +1,17 @@
+package com.snapcart.repository;
+
+import com.mongodb.bulk.BulkWriteResult;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface ReceiptMutationRepository {
+
+    // Applies the update only if the receipt is still at expectedVersion; false when nothing matched
+    boolean updateAtVersion(String userId, String id, Long expectedVersion, Update update);
+
+    // Category reassignments and deletes for one user, sent as a single unordered bulkWrite
+    BulkWriteResult bulkWrite(String userId, Map<String, ? extends Collection<String>> idsByCategory,
+                              Collection<String> deleteIds);
+}
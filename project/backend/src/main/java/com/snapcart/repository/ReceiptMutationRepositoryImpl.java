@@ -0,0 +1,55 @@
+package com.snapcart.repository;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.snapcart.model.Receipt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+
+import static com.snapcart.repository.ReceiptListingRepositoryImpl.ownedBy;
+
+public class ReceiptMutationRepositoryImpl implements ReceiptMutationRepository {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean updateAtVersion(String userId, String id, Long expectedVersion, Update update) {
+        return mongoTemplate.updateFirst(atVersion(userId, id, expectedVersion), update, Receipt.class)
+                .getMatchedCount() > 0;
+    }
+
+    @Override
+    public BulkWriteResult bulkWrite(String userId, Map<String, ? extends Collection<String>> idsByCategory,
+                                     Collection<String> deleteIds) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Receipt.class);
+        idsByCategory.forEach((category, ids) -> bulk.updateMulti(ownedIn(userId, ids), recategorize(category)));
+        if (!deleteIds.isEmpty()) {
+            bulk.remove(ownedIn(userId, deleteIds));
+        }
+        return bulk.execute();
+    }
+
+    // A missing version matches null, so receipts written before versioning can still be patched
+    static Query atVersion(String userId, String id, Long expectedVersion) {
+        return new Query(ownedBy(userId).and("id").is(id).and("version").is(expectedVersion));
+    }
+
+    static Query ownedIn(String userId, Collection<String> ids) {
+        return new Query(ownedBy(userId).and("id").in(ids));
+    }
+
+    // Bulk writes bypass auditing and @Version, so both are maintained here
+    static Update recategorize(String category) {
+        return new Update()
+                .set("category", category)
+                .set("lastModifiedDate", LocalDateTime.now())
+                .inc("version", 1);
+    }
+}
@@ -2,33 +2,31 @@ package com.snapcart.repository;
 
 import com.snapcart.model.Receipt;
 import org.springframework.data.mongodb.repository.MongoRepository;
-import org.springframework.data.mongodb.repository.Aggregation;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ReceiptRepository extends MongoRepository<Receipt, String> {
+public interface ReceiptRepository extends MongoRepository<Receipt, String>, ReceiptAnalyticsRepository, ReceiptListingRepository,
+        ReceiptMutationRepository {
     
-    List<Receipt> findByCreatedDateBetween(LocalDateTime start, LocalDateTime end);
+    // Every finder is scoped to one user; the compound indexes all lead with userId
+    Optional<Receipt> findFirstByUserIdAndContentHash(String userId, String contentHash);
     
-    List<Receipt> findByStoreContainingIgnoreCase(String store);
+    Optional<Receipt> findByIdAndUserId(String id, String userId);
     
-    List<Receipt> findByCategoryIgnoreCase(String category);
+    @Query(value = "{ '_id': ?0, 'userId': ?1 }", fields = "{ 'imageRef': 1, 'imageContentType': 1 }")
+    Optional<Receipt> findImageRefByIdAndUserId(String id, String userId);
     
-    @Aggregation(pipeline = {
-        "{ $unwind: '$items' }",
-        "{ $group: { _id: '$items.name', count: { $sum: 1 }, totalPrice: { $sum: '$items.price' } } }",
-        "{ $sort: { count: -1 } }",
-        "{ $limit: 10 }"
-    })
-    List<Object> findTopItems();
+    @Query(value = "{ 'userId': ?0 }", fields = "{ 'extractedText': 0 }")
+    Stream<Receipt> streamForRollup(String userId);
     
-    @Aggregation(pipeline = {
-        "{ $group: { _id: { $dateToString: { format: '%Y-%m', date: '$createdDate' } }, " +
-        "totalAmount: { $sum: '$totalAmount' }, count: { $sum: 1 } } }",
-        "{ $sort: { '_id': 1 } }"
-    })
-    List<Object> getMonthlySpendingSummary();
-}
\ No newline at end of file
+    @Query(value = "{ 'userId': ?0 }", fields = "{ 'store': 1, 'items.name': 1 }")
+    Stream<Receipt> streamForSearch(String userId);
+    
+    List<Receipt> findByUserIdAndIdIn(String userId, Collection<String> ids);
+}
@@ -0,0 +1,324 @@
+package com.snapcart.service;
+
+import com.snapcart.model.AnalyticsData;
+import com.snapcart.model.Receipt;
+import com.snapcart.model.ReceiptItem;
+import com.snapcart.repository.ReceiptRepository;
+import com.snapcart.util.SpaceSavingSketch;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * In-process rollups of each user's analytics summary. A user's rollup is built from their
+ * receipts on first use and then kept current by the deltas receipt writes apply here, so the
+ * dashboard never has to scan the receipts collection. Only the most recently used users are
+ * held; an evicted rollup is simply rebuilt on the next request.
+ */
+@Service
+public class AnalyticsRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsRollupService.class);
+
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final int TOP_ITEMS_LIMIT = 10;
+
+    @Autowired
+    private ReceiptRepository receiptRepository;
+
+    @Value("${snapcart.analytics.rollup-max-users:1000}")
+    private int maxUsers;
+
+    // Counters per month per user; top-item counts overestimate by at most items / capacity
+    @Value("${snapcart.analytics.top-items.sketch-capacity:256}")
+    private int sketchCapacity;
+
+    // Access-ordered so the least recently used rollup is dropped first; guarded by this
+    private Map<String, Rollup> rollups;
+
+    @PostConstruct
+    public void init() {
+        rollups = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Rollup> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    // Drops every rollup; each is rebuilt from Mongo on its user's next request
+    public synchronized void clear() {
+        rollups.clear();
+    }
+
+    // Drops one user's rollup, e.g. after another instance wrote their receipts
+    public synchronized void evict(String userId) {
+        rollups.remove(userId);
+    }
+
+    // Recomputes the user's rollup from scratch
+    public void rebuild(String userId) {
+        synchronized (this) {
+            rollups.remove(userId);
+        }
+        load(userId);
+    }
+
+    public void recordCreated(Receipt receipt) {
+        record(receipt.getUserId(), null, receipt);
+    }
+
+    public void recordUpdated(Receipt before, Receipt after) {
+        record(after.getUserId(), before, after);
+    }
+
+    public void recordDeleted(Receipt receipt) {
+        record(receipt.getUserId(), receipt, null);
+    }
+
+    // Writes for users without a rollup need no delta; the build reads them from Mongo
+    private void record(String userId, Receipt before, Receipt after) {
+        Rollup rollup = existing(userId);
+        if (rollup == null) {
+            return;
+        }
+        synchronized (rollup) {
+            if (rollup.loaded) {
+                rollup.apply(before, -1);
+                rollup.apply(after, 1);
+            } else if (rollup.pending != null) {
+                rollup.pending.add(new Change(before, after));
+            }
+        }
+    }
+
+    public AnalyticsData getSnapshot(String userId) {
+        Rollup rollup = load(userId);
+        AnalyticsData current = rollup.snapshot;
+        if (current == null) {
+            synchronized (rollup) {
+                if (rollup.snapshot == null) {
+                    rollup.snapshot = rollup.buildSnapshot();
+                }
+                current = rollup.snapshot;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Approximate top items over whole months, merged from the per-month sketches without touching
+     * Mongo. {@code from} and {@code to} are inclusive and may be null for an open range.
+     */
+    public Map<String, Long> getTopItems(String userId, YearMonth from, YearMonth to) {
+        Rollup rollup = load(userId);
+        synchronized (rollup) {
+            return rollup.topItems(from, to);
+        }
+    }
+
+    private synchronized Rollup existing(String userId) {
+        return rollups.get(userId);
+    }
+
+    /**
+     * Returns the user's rollup, building it if needed. The scan holds only that user's build lock,
+     * so writes are not blocked by it; the ones that land meanwhile are queued and reconciled with
+     * what the scan saw, by receipt id and version, before the rollup is marked loaded.
+     */
+    private Rollup load(String userId) {
+        Rollup rollup;
+        synchronized (this) {
+            rollup = rollups.computeIfAbsent(userId, id -> new Rollup(sketchCapacity));
+        }
+        synchronized (rollup.buildLock) {
+            synchronized (rollup) {
+                if (rollup.loaded) {
+                    return rollup;
+                }
+                rollup.pending = new ArrayList<>();
+            }
+
+            // Readers wait on the build lock and writers only queue, so the totals are ours until loaded
+            long start = System.currentTimeMillis();
+            Map<String, Long> counted = new HashMap<>();
+            try (Stream<Receipt> receipts = receiptRepository.streamForRollup(userId)) {
+                receipts.forEach(receipt -> {
+                    rollup.apply(receipt, 1);
+                    counted.put(receipt.getId(), versionOf(receipt));
+                });
+            } catch (RuntimeException e) {
+                synchronized (rollup) {
+                    rollup.reset();
+                }
+                throw e;
+            }
+
+            synchronized (rollup) {
+                for (Change change : rollup.pending) {
+                    reconcile(rollup, counted, change);
+                }
+                rollup.pending = null;
+                rollup.loaded = true;
+            }
+            log.debug("Built analytics rollup for user {} from {} receipts in {} ms",
+                    userId, rollup.totalReceipts, System.currentTimeMillis() - start);
+        }
+        return rollup;
+    }
+
+    /**
+     * Applies a write that landed during the scan unless the scan already counted its result.
+     * counted maps each receipt id in the rollup to the version it was counted at.
+     */
+    static void reconcile(Rollup rollup, Map<String, Long> counted, Change change) {
+        Receipt receipt = change.after != null ? change.after : change.before;
+        Long current = counted.get(receipt.getId());
+        if (change.after != null ? current != null && current >= versionOf(change.after) : current == null) {
+            return;
+        }
+        if (current != null) {
+            rollup.apply(change.before, -1);
+        }
+        if (change.after != null) {
+            rollup.apply(change.after, 1);
+            counted.put(receipt.getId(), versionOf(change.after));
+        } else {
+            counted.remove(receipt.getId());
+        }
+    }
+
+    private static long versionOf(Receipt receipt) {
+        return receipt.getVersion() != null ? receipt.getVersion() : -1L;
+    }
+
+    // A write that arrived while the user's rollup was being built; before/after are null on create/delete
+    static final class Change {
+        private final Receipt before;
+        private final Receipt after;
+
+        Change(Receipt before, Receipt after) {
+            this.before = before;
+            this.after = after;
+        }
+    }
+
+    // One user's totals; guarded by its own monitor, built under buildLock
+    static class Rollup {
+        private final Object buildLock = new Object();
+        private final int sketchCapacity;
+        private boolean loaded;
+        // Writes queued while the build scans; null when no build is running
+        private List<Change> pending;
+        private double totalSpent;
+        private int totalReceipts;
+        private final Map<String, Bucket> monthlySpending = new TreeMap<>();
+        private final Map<String, Bucket> categorySpending = new HashMap<>();
+        // Bounded heavy-hitter counts per month ("yyyy-MM" or "Unknown"), merged for any range of months
+        private final NavigableMap<String, SpaceSavingSketch> itemSketches = new TreeMap<>();
+
+        private volatile AnalyticsData snapshot;
+
+        Rollup(int sketchCapacity) {
+            this.sketchCapacity = sketchCapacity;
+        }
+
+        private void reset() {
+            pending = null;
+            snapshot = null;
+            totalSpent = 0;
+            totalReceipts = 0;
+            monthlySpending.clear();
+            categorySpending.clear();
+            itemSketches.clear();
+        }
+
+        void apply(Receipt receipt, int sign) {
+            if (receipt == null) return;
+            snapshot = null;
+
+            double amount = receipt.getTotalAmount() != null ? receipt.getTotalAmount() : 0.0;
+            totalSpent += sign * amount;
+            totalReceipts += sign;
+
+            String month = receipt.getCreatedDate() != null ?
+                    receipt.getCreatedDate().format(MONTH_FORMATTER) : "Unknown";
+            adjust(monthlySpending, month, sign, amount);
+
+            String category = receipt.getCategory() != null ? receipt.getCategory() : "General";
+            adjust(categorySpending, category, sign, amount);
+
+            if (receipt.getItems() != null) {
+                SpaceSavingSketch sketch = itemSketches.computeIfAbsent(month,
+                        m -> new SpaceSavingSketch(sketchCapacity));
+                for (ReceiptItem item : receipt.getItems()) {
+                    String itemName = item.getName();
+                    if (itemName != null && !itemName.trim().isEmpty()) {
+                        if (sign > 0) {
+                            sketch.add(itemName, 1);
+                        } else {
+                            sketch.remove(itemName, 1);
+                        }
+                    }
+                }
+                if (sketch.isEmpty()) {
+                    itemSketches.remove(month);
+                }
+            }
+        }
+
+        private void adjust(Map<String, Bucket> buckets, String key, int sign, double amount) {
+            Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket());
+            bucket.amount += sign * amount;
+            bucket.count += sign;
+            if (bucket.count <= 0) {
+                buckets.remove(key);
+            }
+        }
+
+        private Map<String, Long> topItems(YearMonth from, YearMonth to) {
+            Map<String, SpaceSavingSketch> months = itemSketches;
+            if (from != null || to != null) {
+                // "Unknown" sorts after every "yyyy-MM" key, so an open upper bound must stop before it
+                String fromKey = from != null ? from.format(MONTH_FORMATTER) : "";
+                String toKey = to != null ? to.format(MONTH_FORMATTER) : "9999-12";
+                months = itemSketches.subMap(fromKey, true, toKey, true);
+            }
+            SpaceSavingSketch merged = new SpaceSavingSketch(sketchCapacity);
+            for (SpaceSavingSketch sketch : months.values()) {
+                merged.merge(sketch);
+            }
+            return merged.top(TOP_ITEMS_LIMIT);
+        }
+
+        private AnalyticsData buildSnapshot() {
+            Map<String, Double> monthly = new LinkedHashMap<>();
+            monthlySpending.forEach((month, bucket) -> monthly.put(month, bucket.amount));
+
+            Map<String, Long> topItems = topItems(null, null);
+
+            Map<String, Double> categories = new HashMap<>();
+            categorySpending.forEach((category, bucket) -> categories.put(category, bucket.amount));
+
+            Double averageReceiptAmount = totalReceipts > 0 ? totalSpent / totalReceipts : 0.0;
+
+            return new AnalyticsData(totalSpent, totalReceipts, averageReceiptAmount,
+                    Collections.unmodifiableMap(monthly),
+                    Collections.unmodifiableMap(topItems),
+                    Collections.unmodifiableMap(categories));
+        }
+    }
+
+    private static class Bucket {
+        private double amount;
+        private long count;
+    }
+}
@@ -1,104 +1,213 @@
 package com.snapcart.service;
 
+import com.snapcart.config.CacheConfig;
 import com.snapcart.model.AnalyticsData;
+import com.snapcart.model.AnalyticsFilter;
+import com.snapcart.model.CategorySpending;
+import com.snapcart.model.ItemCount;
+import com.snapcart.model.MonthlySpendingSummary;
 import com.snapcart.model.Receipt;
-import com.snapcart.model.ReceiptItem;
+import com.snapcart.model.SpendingTotals;
+import com.snapcart.model.ReceiptSummary;
 import com.snapcart.repository.ReceiptRepository;
+import com.snapcart.util.StageTimers;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.YearMonth;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public class AnalyticsService {
 
+    private static final int MAX_RECENT_RECEIPTS = 100;
+    private static final String[] ANALYTICS_CACHES = {CacheConfig.ANALYTICS_SUMMARY, CacheConfig.ANALYTICS_MONTHLY,
+            CacheConfig.ANALYTICS_TOP_ITEMS, CacheConfig.ANALYTICS_CATEGORIES};
+    private static final String FILTERED = "!#filter.isEmpty()";
+
     @Autowired
     private ReceiptRepository receiptRepository;
 
-    public AnalyticsData getAnalyticsSummary() {
-        List<Receipt> allReceipts = receiptRepository.findAll();
-        
-        Double totalSpent = allReceipts.stream()
-                .mapToDouble(receipt -> receipt.getTotalAmount() != null ? receipt.getTotalAmount() : 0.0)
-                .sum();
-        
-        Integer totalReceipts = allReceipts.size();
-        
+    @Autowired
+    private AnalyticsRollupService analyticsRollupService;
+
+    @Autowired
+    private RecentReceiptsBuffer recentReceiptsBuffer;
+
+    @Autowired
+    private ReceiptTextStore receiptTextStore;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Proxied self-reference so the filtered summary reuses the per-map caches
+    @Autowired
+    @Lazy
+    private AnalyticsService self;
+
+    private StageTimers methodTimers;
+    private StageTimers queryTimers;
+
+    @PostConstruct
+    public void registerMetrics() {
+        // Whole service calls, and separately the Mongo aggregation each one waits on
+        methodTimers = new StageTimers(meterRegistry, "snapcart.analytics.method", "method");
+        queryTimers = new StageTimers(meterRegistry, "snapcart.analytics.query", "query");
+    }
+
+    public AnalyticsData getAnalyticsSummary(String userId) {
+        return methodTimers.record("summary", () -> analyticsRollupService.getSnapshot(userId));
+    }
+
+    // Filtered results are cached briefly; unfiltered ones come from the user's rollup and need no cache.
+    // sync = true makes concurrent cold requests for the same filter share one computation.
+    // The filter always carries the user id, so cache entries are per user.
+    @Cacheable(cacheNames = CacheConfig.ANALYTICS_SUMMARY, sync = true, condition = FILTERED)
+    public AnalyticsData getAnalyticsSummary(AnalyticsFilter filter) {
+        if (filter.isEmpty()) {
+            return getAnalyticsSummary(filter.getUserId());
+        }
+        return methodTimers.record("filtered-summary", () -> getFilteredSummary(filter));
+    }
+
+    private AnalyticsData getFilteredSummary(AnalyticsFilter filter) {
+        SpendingTotals totals = queryTimers.record("totals", () -> receiptRepository.aggregateTotals(filter));
+        Double totalSpent = totals.getTotalSpent() != null ? totals.getTotalSpent() : 0.0;
+        Integer totalReceipts = totals.getCount() != null ? totals.getCount().intValue() : 0;
         Double averageReceiptAmount = totalReceipts > 0 ? totalSpent / totalReceipts : 0.0;
-        
-        Map<String, Double> monthlySpending = getMonthlySpending(allReceipts);
-        Map<String, Long> topItems = getTopItems(allReceipts);
-        Map<String, Double> categorySpending = getCategorySpending(allReceipts);
-        
+
         return new AnalyticsData(totalSpent, totalReceipts, averageReceiptAmount,
-                monthlySpending, topItems, categorySpending);
+                self.getMonthlySpending(filter), self.getTopItems(filter), self.getCategorySpending(filter));
+    }
+
+    @Cacheable(cacheNames = CacheConfig.ANALYTICS_MONTHLY, sync = true, condition = FILTERED)
+    public Map<String, Double> getMonthlySpending(AnalyticsFilter filter) {
+        if (filter.isEmpty()) {
+            return getAnalyticsSummary(filter.getUserId()).getMonthlySpending();
+        }
+
+        return methodTimers.record("monthly-spending", () -> monthlySpendingOf(queryTimers.record(
+                "monthly-spending", () -> receiptRepository.aggregateMonthlySpending(filter))));
     }
 
-    public Map<String, Double> getMonthlySpending(List<Receipt> receipts) {
+    @Cacheable(cacheNames = CacheConfig.ANALYTICS_TOP_ITEMS, sync = true, condition = FILTERED)
+    public Map<String, Long> getTopItems(AnalyticsFilter filter) {
+        if (filter.isEmpty()) {
+            return getAnalyticsSummary(filter.getUserId()).getTopItems();
+        }
+
+        if (isWholeMonths(filter)) {
+            return methodTimers.record("top-items-sketch", () -> analyticsRollupService.getTopItems(
+                    filter.getUserId(),
+                    filter.getFrom() != null ? YearMonth.from(filter.getFrom()) : null,
+                    filter.getTo() != null ? YearMonth.from(filter.getTo()) : null));
+        }
+
+        return methodTimers.record("top-items", () -> topItemsOf(queryTimers.record(
+                "top-items", () -> receiptRepository.aggregateTopItems(filter, 10))));
+    }
+
+    // Date-only filter starting on a month's first day and ending on a month's last day (either may be open)
+    private boolean isWholeMonths(AnalyticsFilter filter) {
+        boolean noOtherCriteria = (filter.getStore() == null || filter.getStore().trim().isEmpty()) &&
+                (filter.getCategory() == null || filter.getCategory().trim().isEmpty());
+        return noOtherCriteria &&
+                (filter.getFrom() == null || filter.getFrom().getDayOfMonth() == 1) &&
+                (filter.getTo() == null || filter.getTo().equals(YearMonth.from(filter.getTo()).atEndOfMonth()));
+    }
+
+    @Cacheable(cacheNames = CacheConfig.ANALYTICS_CATEGORIES, sync = true, condition = FILTERED)
+    public Map<String, Double> getCategorySpending(AnalyticsFilter filter) {
+        if (filter.isEmpty()) {
+            return getAnalyticsSummary(filter.getUserId()).getCategorySpending();
+        }
+
+        return methodTimers.record("category-spending", () -> categorySpendingOf(queryTimers.record(
+                "category-spending", () -> receiptRepository.aggregateCategorySpending(filter))));
+    }
+
+    // Aggregation rows to the maps the filtered analytics return (public for AggregationMappingBenchmark);
+    // months stay in the pipeline's order
+    public static Map<String, Double> monthlySpendingOf(List<MonthlySpendingSummary> summaries) {
         Map<String, Double> monthlySpending = new LinkedHashMap<>();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM");
-        
-        receipts.stream()
-                .collect(Collectors.groupingBy(
-                        receipt -> receipt.getCreatedDate() != null ? 
-                                receipt.getCreatedDate().format(formatter) : "Unknown",
-                        Collectors.summingDouble(receipt -> 
-                                receipt.getTotalAmount() != null ? receipt.getTotalAmount() : 0.0)
-                ))
-                .entrySet()
-                .stream()
-                .sorted(Map.Entry.comparingByKey())
-                .forEach(entry -> monthlySpending.put(entry.getKey(), entry.getValue()));
-        
+        for (MonthlySpendingSummary summary : summaries) {
+            monthlySpending.put(summary.getMonth(), summary.getTotalAmount());
+        }
         return monthlySpending;
     }
 
-    public Map<String, Long> getTopItems(List<Receipt> receipts) {
-        Map<String, Long> itemCounts = new HashMap<>();
-        
-        receipts.stream()
-                .filter(receipt -> receipt.getItems() != null)
-                .flatMap(receipt -> receipt.getItems().stream())
-                .forEach(item -> {
-                    String itemName = item.getName();
-                    if (itemName != null && !itemName.trim().isEmpty()) {
-                        itemCounts.merge(itemName, 1L, Long::sum);
-                    }
-                });
-        
-        return itemCounts.entrySet()
-                .stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                .limit(10)
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (e1, e2) -> e1,
-                        LinkedHashMap::new
-                ));
-    }
-
-    public Map<String, Double> getCategorySpending(List<Receipt> receipts) {
-        return receipts.stream()
-                .collect(Collectors.groupingBy(
-                        receipt -> receipt.getCategory() != null ? receipt.getCategory() : "General",
-                        Collectors.summingDouble(receipt -> 
-                                receipt.getTotalAmount() != null ? receipt.getTotalAmount() : 0.0)
-                ));
-    }
-
-    public List<Receipt> getRecentReceipts(int limit) {
-        return receiptRepository.findAll()
-                .stream()
-                .sorted((r1, r2) -> {
-                    if (r1.getCreatedDate() == null) return 1;
-                    if (r2.getCreatedDate() == null) return -1;
-                    return r2.getCreatedDate().compareTo(r1.getCreatedDate());
-                })
-                .limit(limit)
-                .collect(Collectors.toList());
+    // Most frequent first, as the pipeline sorted them
+    public static Map<String, Long> topItemsOf(List<ItemCount> itemCounts) {
+        Map<String, Long> topItems = new LinkedHashMap<>();
+        for (ItemCount itemCount : itemCounts) {
+            topItems.put(itemCount.getName(), itemCount.getCount());
+        }
+        return topItems;
+    }
+
+    public static Map<String, Double> categorySpendingOf(List<CategorySpending> spendings) {
+        Map<String, Double> categorySpending = new HashMap<>();
+        for (CategorySpending spending : spendings) {
+            categorySpending.put(spending.getCategory(), spending.getTotalAmount());
+        }
+        return categorySpending;
+    }
+
+    // Called on every receipt write; drops only the writing user's entries
+    public void evictCachedAnalytics(String userId) {
+        for (String cacheName : ANALYTICS_CACHES) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache instanceof CaffeineCache caffeineCache) {
+                caffeineCache.getNativeCache().asMap().keySet().removeIf(key ->
+                        key instanceof AnalyticsFilter filter && userId.equals(filter.getUserId()));
+            } else if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    // After bulk rewrites that bypass ReceiptService, e.g. the item-name backfill
+    @CacheEvict(cacheNames = {CacheConfig.ANALYTICS_SUMMARY, CacheConfig.ANALYTICS_MONTHLY,
+            CacheConfig.ANALYTICS_TOP_ITEMS, CacheConfig.ANALYTICS_CATEGORIES}, allEntries = true)
+    public void evictAllCachedAnalytics() {
+    }
+
+    public void rebuildRollup(String userId) {
+        methodTimers.record("rebuild-rollup", () -> {
+            analyticsRollupService.rebuild(userId);
+            return null;
+        });
+    }
+
+    public List<ReceiptSummary> getRecentReceiptSummaries(String userId, int limit) {
+        int size = clampRecentLimit(limit);
+        return methodTimers.record("recent-receipt-summaries", () -> recentReceiptsBuffer.latest(userId, size)
+                .orElseGet(() -> queryTimers.record("recent-receipt-summaries",
+                        () -> receiptRepository.findSummaryPage(userId, null, size))));
+    }
+
+    // Served by the userId/createdDate/_id index with a server-side limit
+    public List<Receipt> getRecentReceipts(String userId, int limit) {
+        return methodTimers.record("recent-receipts", () -> {
+            List<Receipt> receipts = queryTimers.record("recent-receipts",
+                    () -> receiptRepository.findPage(userId, null, clampRecentLimit(limit)));
+            receipts.forEach(receiptTextStore::hydrate);
+            return receipts;
+        });
+    }
+
+    private int clampRecentLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_RECENT_RECEIPTS));
     }
 }
\ No newline at end of file
@@ -0,0 +1,218 @@
+package com.snapcart.service;
+
+import com.snapcart.model.AnalyticsData;
+import com.snapcart.model.AnalyticsUpdate;
+import com.snapcart.model.Receipt;
+import com.snapcart.model.ReceiptSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes analytics changes to dashboard subscribers as server-sent events. Receipt writes reach
+ * this service through ReceiptService's read-model updates, the same in-process path that feeds the
+ * rollups, and writes made by other instances through ReceiptChangeFeed, so it works on a
+ * standalone MongoDB without change streams.
+ *
+ * <p>Each change is turned into one update on a single notifier thread: the user's rollup snapshot
+ * is diffed against the last one sent, and the result goes to all of that user's subscribers, so
+ * the work per change does not grow with the number of clients. An update carries the new totals,
+ * only the months and categories whose amounts changed (0 when one emptied out), and the top items
+ * only when the ranking changed. Values are absolute, not differences, so applying an update that
+ * the initial snapshot already included is harmless.
+ */
+@Service
+public class AnalyticsStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsStreamService.class);
+
+    @Autowired
+    private AnalyticsRollupService analyticsRollupService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Updates a subscriber may fall behind by before its stream is closed; the client reconnects for a fresh snapshot
+    @Value("${snapcart.analytics.stream.buffer-size:64}")
+    private int bufferSize;
+
+    // Comment events that keep idle connections open through proxies
+    @Value("${snapcart.analytics.stream.heartbeat-seconds:15}")
+    private long heartbeatSeconds;
+
+    private final ExecutorService notifier = Executors.newSingleThreadExecutor(
+            new CustomizableThreadFactory("analytics-stream-"));
+
+    // Read by writers to skip users nobody watches; entries are only changed on the notifier thread
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("snapcart.analytics.stream.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open analytics event streams")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        notifier.shutdownNow();
+    }
+
+    // A snapshot event followed by one event per change to the user's receipts, with periodic heartbeats
+    public Flux<ServerSentEvent<AnalyticsUpdate>> stream(String userId) {
+        Flux<ServerSentEvent<AnalyticsUpdate>> heartbeats = Flux.interval(Duration.ofSeconds(heartbeatSeconds))
+                .map(tick -> ServerSentEvent.<AnalyticsUpdate>builder().comment("heartbeat").build());
+        // Heartbeats stop with the updates, so a closed subscription ends the response
+        return subscribe(userId).map(this::toEvent)
+                .publish(updates -> Flux.merge(updates, heartbeats.takeUntilOther(updates.then(Mono.just(true)))));
+    }
+
+    private Flux<AnalyticsUpdate> subscribe(String userId) {
+        return Flux.defer(() -> {
+            Sinks.Many<AnalyticsUpdate> sink = Sinks.many().unicast()
+                    .onBackpressureBuffer(new ArrayBlockingQueue<>(bufferSize));
+            notifier.execute(() -> open(userId, sink));
+            return sink.asFlux().doFinally(signal -> {
+                try {
+                    notifier.execute(() -> close(userId, sink));
+                } catch (RejectedExecutionException e) {
+                    // Shutting down; the channel goes with the service
+                }
+            });
+        });
+    }
+
+    // Called for every receipt write after the rollup has applied it; before/after are null on create/delete
+    public void record(Receipt before, Receipt after) {
+        Receipt changed = after != null ? after : before;
+        AnalyticsUpdate.Type type = before == null ? AnalyticsUpdate.Type.CREATED :
+                after == null ? AnalyticsUpdate.Type.DELETED : AnalyticsUpdate.Type.UPDATED;
+        record(changed.getUserId(), type, changed.getId(), after != null ? ReceiptSummary.of(after) : null);
+    }
+
+    // A write made by another instance, announced through ReceiptChangeFeed; receipt is null on delete
+    public void record(String userId, AnalyticsUpdate.Type type, String receiptId, ReceiptSummary receipt) {
+        if (!channels.containsKey(userId)) {
+            return;
+        }
+        try {
+            notifier.execute(() -> publish(userId, type, receiptId, receipt));
+        } catch (RejectedExecutionException e) {
+            log.debug("Analytics stream is shut down; dropping update for receipt {}", receiptId);
+        }
+    }
+
+    private void open(String userId, Sinks.Many<AnalyticsUpdate> sink) {
+        try {
+            AnalyticsData snapshot = analyticsRollupService.getSnapshot(userId);
+            Channel channel = channels.computeIfAbsent(userId, id -> new Channel(snapshot));
+            channel.subscribers.add(sink);
+            subscriberCount.incrementAndGet();
+            sink.tryEmitNext(new AnalyticsUpdate(AnalyticsUpdate.Type.SNAPSHOT, null, null, snapshot));
+        } catch (RuntimeException e) {
+            log.warn("Could not open analytics stream for user {}", userId, e);
+            sink.tryEmitError(e);
+        }
+    }
+
+    private void close(String userId, Sinks.Many<AnalyticsUpdate> sink) {
+        Channel channel = channels.get(userId);
+        if (channel != null && channel.subscribers.remove(sink)) {
+            subscriberCount.decrementAndGet();
+            if (channel.subscribers.isEmpty()) {
+                channels.remove(userId);
+            }
+        }
+    }
+
+    private void publish(String userId, AnalyticsUpdate.Type type, String receiptId, ReceiptSummary receipt) {
+        Channel channel = channels.get(userId);
+        if (channel == null) {
+            return;
+        }
+        AnalyticsData current;
+        try {
+            current = analyticsRollupService.getSnapshot(userId);
+        } catch (RuntimeException e) {
+            log.warn("Could not compute analytics update for user {}", userId, e);
+            return;
+        }
+        AnalyticsUpdate update = new AnalyticsUpdate(type, receiptId, receipt, delta(channel.lastSent, current));
+        channel.lastSent = current;
+
+        for (Sinks.Many<AnalyticsUpdate> sink : new ArrayList<>(channel.subscribers)) {
+            if (sink.tryEmitNext(update).isFailure()) {
+                // Fell behind or already gone; completing makes the client reconnect and resync
+                sink.tryEmitComplete();
+                close(userId, sink);
+            }
+        }
+    }
+
+    // Totals always; month and category entries only where they changed, 0.0 where they disappeared
+    static AnalyticsData delta(AnalyticsData previous, AnalyticsData current) {
+        AnalyticsData delta = new AnalyticsData();
+        delta.setTotalSpent(current.getTotalSpent());
+        delta.setTotalReceipts(current.getTotalReceipts());
+        delta.setAverageReceiptAmount(current.getAverageReceiptAmount());
+        delta.setMonthlySpending(changedEntries(previous.getMonthlySpending(), current.getMonthlySpending()));
+        delta.setCategorySpending(changedEntries(previous.getCategorySpending(), current.getCategorySpending()));
+        if (!previous.getTopItems().equals(current.getTopItems())) {
+            delta.setTopItems(current.getTopItems());
+        }
+        return delta;
+    }
+
+    private static Map<String, Double> changedEntries(Map<String, Double> previous, Map<String, Double> current) {
+        Map<String, Double> changed = new TreeMap<>();
+        current.forEach((key, amount) -> {
+            if (!amount.equals(previous.get(key))) {
+                changed.put(key, amount);
+            }
+        });
+        for (String key : previous.keySet()) {
+            if (!current.containsKey(key)) {
+                changed.put(key, 0.0);
+            }
+        }
+        return changed;
+    }
+
+    private ServerSentEvent<AnalyticsUpdate> toEvent(AnalyticsUpdate update) {
+        return ServerSentEvent.builder(update)
+                .event(update.getType().name().toLowerCase(Locale.ROOT))
+                .build();
+    }
+
+    // One user's subscribers; only touched on the notifier thread
+    private static final class Channel {
+        private final List<Sinks.Many<AnalyticsUpdate>> subscribers = new ArrayList<>();
+        // Last summary sent to this user's subscribers, the base of the next delta
+        private AnalyticsData lastSent;
+
+        private Channel(AnalyticsData lastSent) {
+            this.lastSent = lastSent;
+        }
+    }
+}
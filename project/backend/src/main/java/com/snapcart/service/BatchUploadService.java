@@ -0,0 +1,284 @@
+package com.snapcart.service;
+
+import com.snapcart.model.BatchUploadResult;
+import com.snapcart.model.Receipt;
+import com.snapcart.model.ReceiptJob;
+import com.snapcart.ocr.OcrUnavailableException;
+import com.snapcart.util.Uploads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Processes a batch of receipt images, given as separate files and/or ZIP archives. ZIP entries
+ * are streamed one at a time to temp files; OCR and parsing run in parallel on the batch executor,
+ * and all new receipts are inserted together once every entry has been prepared. An entry whose
+ * OCR is unavailable is handed to the ingestion queue instead, and its result carries the job id.
+ */
+@Service
+public class BatchUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchUploadService.class);
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Autowired
+    private ReceiptIngestionService receiptIngestionService;
+
+    @Autowired
+    @Qualifier("batchExecutor")
+    private ExecutorService batchExecutor;
+
+    @Value("${snapcart.batch.concurrency:4}")
+    private int concurrency;
+
+    @Value("${snapcart.batch.max-files:500}")
+    private int maxFiles;
+
+    @Value("${snapcart.upload.max-image-size:10MB}")
+    private DataSize maxImageSize;
+
+    /**
+     * Returns one result per image, in upload order. Throws {@link IllegalArgumentException}
+     * when the batch holds more than {@code snapcart.batch.max-files} images; nothing is saved then.
+     */
+    public List<BatchUploadResult> processBatch(String userId, List<MultipartFile> files)
+            throws IOException, InterruptedException {
+        // Entries spooled to disk but not yet prepared; keeps a large ZIP from being unpacked ahead of OCR
+        Semaphore inFlight = new Semaphore(concurrency * 2);
+        List<Entry> entries = new ArrayList<>();
+        try {
+            for (MultipartFile file : files) {
+                if (file.isEmpty()) {
+                    continue;
+                }
+                if (isZip(file)) {
+                    try (ZipInputStream zip = new ZipInputStream(file.getInputStream())) {
+                        ZipEntry zipEntry;
+                        while ((zipEntry = zip.getNextEntry()) != null) {
+                            if (!zipEntry.isDirectory() && !isHiddenEntry(zipEntry.getName())) {
+                                addEntry(entries, userId, fileName(zipEntry.getName()), null, zip, inFlight);
+                            }
+                        }
+                    }
+                } else {
+                    addEntry(entries, userId, file.getOriginalFilename(), file, null, inFlight);
+                }
+            }
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            cancel(entries);
+            throw e;
+        }
+
+        return complete(entries);
+    }
+
+    private void addEntry(List<Entry> entries, String userId, String filename, MultipartFile file,
+                          InputStream zipEntryStream, Semaphore inFlight) throws IOException, InterruptedException {
+        if (entries.size() >= maxFiles) {
+            throw new IllegalArgumentException("A batch may contain at most " + maxFiles + " receipts");
+        }
+
+        Entry entry = new Entry(filename, contentTypeOf(filename, file));
+        entries.add(entry);
+
+        long maxBytes = maxImageSize.toBytes();
+        if (file != null && file.getSize() > maxBytes) {
+            entry.fail("File exceeds the " + maxImageSize.toMegabytes() + "MB limit");
+            return;
+        }
+
+        inFlight.acquire();
+        Path spooledFile;
+        try {
+            spooledFile = file != null ?
+                    Uploads.spoolToTempFile(file) :
+                    Uploads.spoolToTempFile(zipEntryStream, maxBytes);
+        } catch (IOException e) {
+            inFlight.release();
+            entry.fail(e.getMessage());
+            return;
+        }
+
+        entry.spooledFile = spooledFile;
+        entry.prepared = batchExecutor.submit(() -> {
+            boolean queued = false;
+            try {
+                return receiptService.prepareReceipt(userId, entry.result.getFilename(), entry.contentType,
+                        spooledFile);
+            } catch (OcrUnavailableException e) {
+                // Read by complete() after get(), which orders it after this write
+                entry.job = receiptIngestionService.defer(userId, entry.result.getFilename(), entry.contentType,
+                        spooledFile, e);
+                queued = true;
+                return null;
+            } finally {
+                inFlight.release();
+                if (!queued) {
+                    deleteQuietly(spooledFile);
+                }
+            }
+        });
+    }
+
+    private List<BatchUploadResult> complete(List<Entry> entries) throws InterruptedException {
+        List<Entry> toInsert = new ArrayList<>();
+        // First entry per content hash; identical images within the batch are saved once
+        Map<String, Entry> firstByHash = new HashMap<>();
+        List<Entry> batchDuplicates = new ArrayList<>();
+
+        for (Entry entry : entries) {
+            if (entry.prepared == null) {
+                continue;
+            }
+            try {
+                Receipt receipt = entry.prepared.get();
+                entry.receipt = receipt;
+                if (receipt == null) {
+                    entry.queue(entry.job.getId());
+                } else if (receipt.getId() != null) {
+                    entry.succeed(BatchUploadResult.Status.DUPLICATE, receipt.getId());
+                } else if (firstByHash.putIfAbsent(receipt.getContentHash(), entry) != null) {
+                    batchDuplicates.add(entry);
+                } else {
+                    toInsert.add(entry);
+                }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                log.warn("Batch entry {} failed", entry.result.getFilename(), cause);
+                entry.fail(cause.getMessage());
+            }
+        }
+
+        insert(toInsert);
+
+        for (Entry duplicate : batchDuplicates) {
+            BatchUploadResult original = firstByHash.get(duplicate.receipt.getContentHash()).result;
+            if (original.getStatus() == BatchUploadResult.Status.FAILED) {
+                duplicate.fail(original.getError());
+            } else {
+                duplicate.succeed(BatchUploadResult.Status.DUPLICATE, original.getReceiptId());
+            }
+        }
+
+        List<BatchUploadResult> results = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            results.add(entry.result);
+        }
+        return results;
+    }
+
+    private void insert(List<Entry> toInsert) {
+        List<Receipt> receipts = new ArrayList<>(toInsert.size());
+        for (Entry entry : toInsert) {
+            receipts.add(entry.receipt);
+        }
+
+        try {
+            List<Receipt> saved = receiptService.saveNewReceipts(receipts);
+            for (int i = 0; i < toInsert.size(); i++) {
+                toInsert.get(i).succeed(BatchUploadResult.Status.CREATED, saved.get(i).getId());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not save batch of {} receipts", receipts.size(), e);
+            for (Entry entry : toInsert) {
+                entry.fail("Could not save receipt: " + e.getMessage());
+            }
+        }
+    }
+
+    private void cancel(List<Entry> entries) {
+        for (Entry entry : entries) {
+            // A task that never started never deletes its own spooled file
+            if (entry.prepared != null && entry.prepared.cancel(false)) {
+                deleteQuietly(entry.spooledFile);
+            }
+        }
+    }
+
+    private boolean isZip(MultipartFile file) {
+        String contentType = file.getContentType();
+        String filename = file.getOriginalFilename();
+        return "application/zip".equals(contentType) ||
+               "application/x-zip-compressed".equals(contentType) ||
+               (filename != null && filename.toLowerCase().endsWith(".zip"));
+    }
+
+    // Directories are skipped by the caller; this drops macOS resource forks and dotfiles
+    private boolean isHiddenEntry(String name) {
+        return name.startsWith("__MACOSX/") || fileName(name).startsWith(".");
+    }
+
+    private String fileName(String entryName) {
+        return entryName.substring(entryName.lastIndexOf('/') + 1);
+    }
+
+    private String contentTypeOf(String filename, MultipartFile file) {
+        if (file != null && file.getContentType() != null) {
+            return file.getContentType();
+        }
+        return filename != null ?
+                MediaTypeFactory.getMediaType(filename).map(MediaType::toString).orElse(null) :
+                null;
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled upload {}", file, e);
+        }
+    }
+
+    private static class Entry {
+        private final BatchUploadResult result;
+        private final String contentType;
+        private Path spooledFile;
+        private Future<Receipt> prepared;
+        private Receipt receipt;
+        private ReceiptJob job;
+
+        private Entry(String filename, String contentType) {
+            this.result = new BatchUploadResult(filename);
+            this.contentType = contentType;
+        }
+
+        private void succeed(BatchUploadResult.Status status, String receiptId) {
+            result.setStatus(status);
+            result.setReceiptId(receiptId);
+        }
+
+        private void queue(String jobId) {
+            result.setStatus(BatchUploadResult.Status.QUEUED);
+            result.setJobId(jobId);
+        }
+
+        private void fail(String error) {
+            result.setStatus(BatchUploadResult.Status.FAILED);
+            result.setError(error);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.snapcart.service;
+
+import com.google.cloud.vision.v1.AnnotateImageRequest;
+import com.google.cloud.vision.v1.AnnotateImageResponse;
+import com.google.cloud.vision.v1.BatchAnnotateImagesResponse;
+import com.google.cloud.vision.v1.ImageAnnotatorClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Coalesces concurrent OCR requests into a single batchAnnotateImages call. A request waits
+ * at most {@code max-wait-ms} for company, and a batch is sent as soon as it reaches
+ * {@code max-batch-size} (the Vision API accepts up to 16 images per call) or the next image
+ * would take it past {@code max-batch-bytes}; that image then opens the next batch.
+ */
+@Service
+@ConditionalOnProperty(name = "snapcart.ocr.engine", havingValue = "vision", matchIfMissing = true)
+public class BatchingOcrClient {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchingOcrClient.class);
+
+    @Autowired
+    private ImageAnnotatorClient imageAnnotatorClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${snapcart.ocr.batching.max-batch-size:16}")
+    private int maxBatchSize;
+
+    // Serialized request size; an image larger than this on its own is still sent, alone
+    @Value("${snapcart.ocr.batching.max-batch-bytes:8MB}")
+    private DataSize maxBatchBytes;
+
+    @Value("${snapcart.ocr.batching.max-wait-ms:20}")
+    private long maxWaitMs;
+
+    @Value("${snapcart.ocr.batching.senders:4}")
+    private int senders;
+
+    private final BlockingQueue<PendingRequest> pending = new LinkedBlockingQueue<>();
+    private ExecutorService senderPool;
+    private Thread dispatcher;
+    private volatile boolean running;
+    // Polled by the dispatcher but did not fit its batch; only touched by the dispatcher thread
+    private PendingRequest carried;
+
+    private Counter batchCounter;
+    private Counter imageErrorCounter;
+    private Counter rpcFailureCounter;
+    private DistributionSummary batchSize;
+    private DistributionSummary batchFillRatio;
+    private DistributionSummary batchBytes;
+
+    @PostConstruct
+    public void start() {
+        batchCounter = Counter.builder("snapcart.ocr.batches")
+                .description("batchAnnotateImages calls sent")
+                .register(meterRegistry);
+        imageErrorCounter = Counter.builder("snapcart.ocr.batch.image.errors")
+                .description("Images that failed inside an otherwise successful batch")
+                .register(meterRegistry);
+        rpcFailureCounter = Counter.builder("snapcart.ocr.batch.failures")
+                .description("batchAnnotateImages calls that failed as a whole")
+                .register(meterRegistry);
+        batchSize = DistributionSummary.builder("snapcart.ocr.batch.size")
+                .description("Images per batchAnnotateImages call")
+                .register(meterRegistry);
+        batchFillRatio = DistributionSummary.builder("snapcart.ocr.batch.fill.ratio")
+                .description("Batch size relative to the configured maximum")
+                .register(meterRegistry);
+        batchBytes = DistributionSummary.builder("snapcart.ocr.batch.bytes")
+                .baseUnit("bytes")
+                .description("Serialized size of the images in one batchAnnotateImages call")
+                .register(meterRegistry);
+
+        senderPool = Executors.newFixedThreadPool(senders, new CustomizableThreadFactory("ocr-batch-"));
+        running = true;
+        dispatcher = new Thread(this::dispatchLoop, "ocr-batch-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        dispatcher.interrupt();
+        senderPool.shutdown();
+
+        List<PendingRequest> abandoned = new ArrayList<>();
+        pending.drainTo(abandoned);
+        for (PendingRequest request : abandoned) {
+            request.future.completeExceptionally(new IllegalStateException("OCR client is shutting down"));
+        }
+    }
+
+    public CompletableFuture<AnnotateImageResponse> submit(AnnotateImageRequest request) {
+        PendingRequest pendingRequest = new PendingRequest(request);
+        if (!running) {
+            pendingRequest.future.completeExceptionally(new IllegalStateException("OCR client is not running"));
+        } else {
+            pending.add(pendingRequest);
+        }
+        return pendingRequest.future;
+    }
+
+    public AnnotateImageResponse annotate(AnnotateImageRequest request) {
+        try {
+            return submit(request).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void dispatchLoop() {
+        try {
+            while (running) {
+                try {
+                    List<PendingRequest> batch = nextBatch();
+                    senderPool.execute(() -> send(batch));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (RejectedExecutionException e) {
+                    log.warn("OCR batch rejected during shutdown", e);
+                }
+            }
+        } finally {
+            if (carried != null) {
+                carried.future.completeExceptionally(new IllegalStateException("OCR client is shutting down"));
+            }
+        }
+    }
+
+    private List<PendingRequest> nextBatch() throws InterruptedException {
+        List<PendingRequest> batch = new ArrayList<>(maxBatchSize);
+        PendingRequest first = carried != null ? carried : pending.take();
+        carried = null;
+        batch.add(first);
+        long bytes = first.size;
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        while (batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            PendingRequest next = remaining > 0 ? pending.poll(remaining, TimeUnit.NANOSECONDS) : pending.poll();
+            if (next == null) break;
+            if (bytes + next.size > maxBatchBytes.toBytes()) {
+                carried = next;
+                break;
+            }
+            batch.add(next);
+            bytes += next.size;
+        }
+        return batch;
+    }
+
+    private void send(List<PendingRequest> batch) {
+        List<AnnotateImageRequest> requests = new ArrayList<>(batch.size());
+        for (PendingRequest request : batch) {
+            requests.add(request.request);
+        }
+
+        batchCounter.increment();
+        batchSize.record(batch.size());
+        batchFillRatio.record((double) batch.size() / maxBatchSize);
+        long bytes = 0;
+        for (PendingRequest request : batch) {
+            bytes += request.size;
+        }
+        batchBytes.record(bytes);
+
+        BatchAnnotateImagesResponse response;
+        try {
+            response = imageAnnotatorClient.batchAnnotateImages(requests);
+        } catch (RuntimeException e) {
+            rpcFailureCounter.increment();
+            for (PendingRequest request : batch) {
+                request.future.completeExceptionally(e);
+            }
+            return;
+        }
+
+        // Responses come back in request order; errors are reported per image, so one bad
+        // image only fails its own caller
+        List<AnnotateImageResponse> responses = response.getResponsesList();
+        for (int i = 0; i < batch.size(); i++) {
+            PendingRequest request = batch.get(i);
+            if (i >= responses.size()) {
+                request.future.completeExceptionally(
+                        new IllegalStateException("Missing OCR response for batched image"));
+                continue;
+            }
+            AnnotateImageResponse imageResponse = responses.get(i);
+            if (imageResponse.hasError()) {
+                imageErrorCounter.increment();
+            }
+            request.future.complete(imageResponse);
+        }
+    }
+
+    private static final class PendingRequest {
+        private final AnnotateImageRequest request;
+        private final long size;
+        private final CompletableFuture<AnnotateImageResponse> future = new CompletableFuture<>();
+
+        private PendingRequest(AnnotateImageRequest request) {
+            this.request = request;
+            this.size = request.getSerializedSize();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.snapcart.service;
+
+import com.snapcart.model.Receipt;
+import com.snapcart.storage.BlobStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reclaims blobs that no receipt references any more. Blobs are content-addressed and shared
+ * between receipts (and users), so deleting a receipt cannot delete its blobs; instead this
+ * periodically walks the store, looks up each chunk of keys among the receipts' imageRef and
+ * textRef, and removes the ones nobody references. Blobs stored within the grace period are
+ * skipped, since their receipt may not be saved yet.
+ */
+@Service
+public class BlobSweepService {
+
+    private static final Logger log = LoggerFactory.getLogger(BlobSweepService.class);
+
+    // Keys looked up per receipts query
+    private static final int CHUNK_SIZE = 500;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${snapcart.storage.sweep.enabled:true}")
+    private boolean enabled;
+
+    @Value("${snapcart.storage.sweep.interval-minutes:60}")
+    private long intervalMinutes;
+
+    @Value("${snapcart.storage.sweep.grace-minutes:1440}")
+    private long graceMinutes;
+
+    private ScheduledExecutorService scheduler;
+    private Counter removed;
+
+    @PostConstruct
+    public void start() {
+        removed = Counter.builder("snapcart.storage.sweep.removed")
+                .description("Unreferenced blobs removed from the blob store")
+                .register(meterRegistry);
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("blob-sweep-"));
+        scheduler.scheduleWithFixedDelay(this::sweepQuietly, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    // Returns the number of blobs removed
+    public long sweep() throws IOException {
+        Instant storedBefore = Instant.now().minus(Duration.ofMinutes(graceMinutes));
+        Set<String> chunk = new LinkedHashSet<>();
+        long[] swept = new long[1];
+        try {
+            blobStore.forEachKey(storedBefore, key -> {
+                chunk.add(key);
+                if (chunk.size() == CHUNK_SIZE) {
+                    swept[0] += sweep(chunk, storedBefore);
+                    chunk.clear();
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        swept[0] += sweep(chunk, storedBefore);
+        return swept[0];
+    }
+
+    private long sweep(Set<String> keys, Instant storedBefore) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        List<String> candidates = new ArrayList<>(keys);
+        Query query = new Query(new Criteria().orOperator(
+                Criteria.where("imageRef").in(candidates), Criteria.where("textRef").in(candidates)));
+        query.fields().include("imageRef").include("textRef");
+        Set<String> referenced = new HashSet<>();
+        for (Receipt receipt : mongoTemplate.find(query, Receipt.class)) {
+            referenced.add(receipt.getImageRef());
+            referenced.add(receipt.getTextRef());
+        }
+
+        long swept = 0;
+        for (String key : candidates) {
+            if (!referenced.contains(key)) {
+                try {
+                    // The store keeps it if the same bytes were stored again since the walk
+                    if (blobStore.delete(key, storedBefore)) {
+                        swept++;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+        removed.increment(swept);
+        return swept;
+    }
+
+    private void sweepQuietly() {
+        try {
+            long swept = sweep();
+            if (swept > 0) {
+                log.info("Blob sweep removed {} unreferenced blobs", swept);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Blob sweep failed", e);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.snapcart.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shrinks receipt photos before OCR using only javax.imageio and java.awt: downscale to a
+ * target long edge, convert to grayscale, optionally crop to the bright paper region, and
+ * re-encode as JPEG. The stored original image is left untouched.
+ */
+@Service
+public class ImagePreprocessor {
+
+    private static final Logger log = LoggerFactory.getLogger(ImagePreprocessor.class);
+
+    // Crop only when the detected paper region is clearly smaller than the frame, but not tiny
+    private static final double MIN_CROP_AREA_RATIO = 0.2;
+    private static final double MAX_CROP_AREA_RATIO = 0.9;
+    private static final double CROP_MARGIN_RATIO = 0.02;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${snapcart.ocr.preprocess.enabled:true}")
+    private boolean enabled;
+
+    @Value("${snapcart.ocr.preprocess.max-long-edge:1600}")
+    private int maxLongEdge;
+
+    @Value("${snapcart.ocr.preprocess.grayscale:true}")
+    private boolean grayscale;
+
+    @Value("${snapcart.ocr.preprocess.crop:true}")
+    private boolean crop;
+
+    @Value("${snapcart.ocr.preprocess.jpeg-quality:0.85}")
+    private float jpegQuality;
+
+    @Value("${snapcart.ocr.preprocess.min-input-bytes:262144}")
+    private long minInputBytes;
+
+    private DistributionSummary bytesSaved;
+    private Timer preprocessTimer;
+    private Counter skipped;
+
+    @PostConstruct
+    public void registerMetrics() {
+        bytesSaved = DistributionSummary.builder("snapcart.ocr.preprocess.bytes.saved")
+                .baseUnit("bytes")
+                .description("Bytes removed from an image before it is sent to OCR")
+                .register(meterRegistry);
+        preprocessTimer = Timer.builder("snapcart.ocr.preprocess.duration")
+                .description("Time spent decoding, shrinking and re-encoding an image")
+                .register(meterRegistry);
+        skipped = Counter.builder("snapcart.ocr.preprocess.skipped")
+                .description("Images sent to OCR as uploaded (small, undecodable or not shrinkable)")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Writes a smaller OCR-ready copy of the image to a temp file, which the caller must delete.
+     * Returns empty when the original should be sent as-is.
+     */
+    public Optional<Path> preprocess(Path image) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        long startNanos = System.nanoTime();
+        Path output = null;
+        try {
+            long inputBytes = Files.size(image);
+            if (inputBytes < minInputBytes) {
+                skipped.increment();
+                return Optional.empty();
+            }
+
+            BufferedImage decoded = decode(image);
+            if (decoded == null) {
+                skipped.increment();
+                return Optional.empty();
+            }
+
+            BufferedImage prepared = scale(decoded);
+            if (crop && prepared.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+                prepared = cropToPaper(prepared);
+            }
+
+            output = Files.createTempFile("receipt-ocr-", ".jpg");
+            encodeJpeg(prepared, output);
+
+            long outputBytes = Files.size(output);
+            if (outputBytes >= inputBytes) {
+                Files.deleteIfExists(output);
+                skipped.increment();
+                return Optional.empty();
+            }
+
+            bytesSaved.record(inputBytes - outputBytes);
+            return Optional.of(output);
+        } catch (IOException | RuntimeException e) {
+            // Preprocessing is an optimization; fall back to the original image
+            log.warn("Could not preprocess {}, sending it as uploaded", image, e);
+            deleteQuietly(output);
+            skipped.increment();
+            return Optional.empty();
+        } finally {
+            preprocessTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Decodes with source subsampling so a 12MP photo is never fully materialized on the heap
+    private BufferedImage decode(Path image) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(image.toFile())) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int longEdge = Math.max(reader.getWidth(0), reader.getHeight(0));
+                // Keep at least 2x the target so the final smooth downscale still has detail to work with
+                int subsampling = Math.max(1, longEdge / (maxLongEdge * 2));
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Downscale and grayscale conversion in a single draw
+    private BufferedImage scale(BufferedImage source) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double factor = Math.min(1.0, (double) maxLongEdge / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * factor));
+        int targetHeight = Math.max(1, (int) Math.round(height * factor));
+
+        BufferedImage target = new BufferedImage(targetWidth, targetHeight,
+                grayscale ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * Crops to the rows and columns brighter than the image mean, i.e. white paper on a darker
+     * table. Leaves the image alone when the region looks implausible (too small or the whole frame).
+     */
+    private BufferedImage cropToPaper(BufferedImage gray) {
+        int width = gray.getWidth();
+        int height = gray.getHeight();
+        byte[] pixels = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+
+        long[] rowSums = new long[height];
+        long[] columnSums = new long[width];
+        long total = 0;
+        for (int y = 0; y < height; y++) {
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                int value = pixels[offset + x] & 0xFF;
+                rowSums[y] += value;
+                columnSums[x] += value;
+            }
+            total += rowSums[y];
+        }
+        double mean = (double) total / ((long) width * height);
+
+        int top = firstAbove(rowSums, width, mean, false);
+        int bottom = firstAbove(rowSums, width, mean, true);
+        int left = firstAbove(columnSums, height, mean, false);
+        int right = firstAbove(columnSums, height, mean, true);
+        if (top < 0 || left < 0) {
+            return gray;
+        }
+
+        int marginX = (int) (width * CROP_MARGIN_RATIO);
+        int marginY = (int) (height * CROP_MARGIN_RATIO);
+        left = Math.max(0, left - marginX);
+        top = Math.max(0, top - marginY);
+        right = Math.min(width - 1, right + marginX);
+        bottom = Math.min(height - 1, bottom + marginY);
+
+        int cropWidth = right - left + 1;
+        int cropHeight = bottom - top + 1;
+        double areaRatio = (double) cropWidth * cropHeight / ((double) width * height);
+        if (areaRatio < MIN_CROP_AREA_RATIO || areaRatio > MAX_CROP_AREA_RATIO) {
+            return gray;
+        }
+        return gray.getSubimage(left, top, cropWidth, cropHeight);
+    }
+
+    private int firstAbove(long[] sums, int count, double mean, boolean fromEnd) {
+        for (int i = 0; i < sums.length; i++) {
+            int index = fromEnd ? sums.length - 1 - i : i;
+            if ((double) sums[index] / count > mean) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private void encodeJpeg(BufferedImage image, Path output) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            throw new IOException("No JPEG encoder available");
+        }
+
+        ImageWriter writer = writers.next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(output.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete preprocessed image {}", file, e);
+        }
+    }
+}
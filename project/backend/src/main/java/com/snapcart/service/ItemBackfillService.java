@@ -0,0 +1,175 @@
+package com.snapcart.service;
+
+import com.snapcart.model.BackfillStatus;
+import com.snapcart.model.Receipt;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Re-canonicalizes item names of existing receipts, e.g. after the product dictionary changed.
+ * Walks the receipts collection in _id order one chunk at a time, reading only the items and the
+ * version, and writes back the receipts whose items changed with one unordered bulk write per chunk.
+ */
+@Service
+public class ItemBackfillService {
+
+    private static final Logger log = LoggerFactory.getLogger(ItemBackfillService.class);
+
+    // Bulk writes per chunk before receipts that keep conflicting are left for the next run
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ItemNameCanonicalizer itemNameCanonicalizer;
+
+    @Autowired
+    private AnalyticsRollupService analyticsRollupService;
+
+    @Autowired
+    private ReceiptSearchIndex receiptSearchIndex;
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private ReceiptChangeFeed receiptChangeFeed;
+
+    @Value("${snapcart.items.backfill.chunk-size:500}")
+    private int chunkSize;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(
+            new CustomizableThreadFactory("item-backfill-"));
+
+    // Written only by the backfill thread; read by status requests
+    private volatile BackfillStatus status = new BackfillStatus(BackfillStatus.State.IDLE, 0, 0, null, null, null);
+
+    /**
+     * Starts a backfill in the background and returns its initial status. Throws
+     * {@link IllegalStateException} when one is already running.
+     */
+    public synchronized BackfillStatus start() {
+        if (status.getState() == BackfillStatus.State.RUNNING) {
+            throw new IllegalStateException("An item backfill is already running");
+        }
+        status = new BackfillStatus(BackfillStatus.State.RUNNING, 0, 0, LocalDateTime.now(), null, null);
+        BackfillStatus started = status;
+        runner.execute(() -> run(started.getStartedAt()));
+        return started;
+    }
+
+    public BackfillStatus getStatus() {
+        return status;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+
+    private void run(LocalDateTime startedAt) {
+        long scanned = 0;
+        long updated = 0;
+        try {
+            String lastId = null;
+            List<Receipt> chunk;
+            do {
+                Query query = new Query();
+                if (lastId != null) {
+                    query.addCriteria(Criteria.where("id").gt(lastId));
+                }
+                query.with(Sort.by(Sort.Direction.ASC, "id")).limit(chunkSize);
+                query.fields().include("items").include("version");
+                chunk = mongoTemplate.find(query, Receipt.class);
+
+                List<Receipt> changed = new ArrayList<>();
+                for (Receipt receipt : chunk) {
+                    if (itemNameCanonicalizer.canonicalize(receipt.getItems())) {
+                        changed.add(receipt);
+                    }
+                }
+                updated += rewrite(changed);
+
+                scanned += chunk.size();
+                if (!chunk.isEmpty()) {
+                    lastId = chunk.get(chunk.size() - 1).getId();
+                }
+                status = new BackfillStatus(BackfillStatus.State.RUNNING, scanned, updated, startedAt, null, null);
+            } while (chunk.size() == chunkSize && !Thread.currentThread().isInterrupted());
+
+            status = new BackfillStatus(BackfillStatus.State.COMPLETED, scanned, updated, startedAt,
+                    LocalDateTime.now(), null);
+            log.info("Item backfill scanned {} receipts and updated {}", scanned, updated);
+        } catch (RuntimeException e) {
+            log.warn("Item backfill failed after {} receipts", scanned, e);
+            status = new BackfillStatus(BackfillStatus.State.FAILED, scanned, updated, startedAt,
+                    LocalDateTime.now(), e.getMessage());
+        } finally {
+            if (updated > 0) {
+                // The in-memory read models were built from the old names, here and on every other instance
+                analyticsRollupService.clear();
+                receiptSearchIndex.clear();
+                analyticsService.evictAllCachedAnalytics();
+                receiptChangeFeed.publishCleared();
+            }
+        }
+    }
+
+    /**
+     * Writes back the canonicalized items, each guarded by the version they were read at so a
+     * concurrent edit is never overwritten. Receipts that moved on in the meantime are read again
+     * and rewritten if their items still need it. Returns the number of receipts written.
+     */
+    private long rewrite(List<Receipt> changed) {
+        long written = 0;
+        for (int attempt = 1; !changed.isEmpty(); attempt++) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Receipt.class);
+            for (Receipt receipt : changed) {
+                bulk.updateOne(new Query(Criteria.where("id").is(receipt.getId()).and("version").is(receipt.getVersion())),
+                        new Update().set("items", receipt.getItems()).inc("version", 1));
+            }
+            int matched = bulk.execute().getMatchedCount();
+            written += matched;
+            if (matched == changed.size()) {
+                break;
+            }
+            if (attempt == MAX_ATTEMPTS) {
+                log.warn("Item backfill skipped {} receipts that kept changing underneath it", changed.size() - matched);
+                break;
+            }
+
+            // The receipts written above are canonical now, so only the conflicting ones come back
+            List<String> ids = new ArrayList<>(changed.size());
+            for (Receipt receipt : changed) {
+                ids.add(receipt.getId());
+            }
+            Query reread = new Query(Criteria.where("id").in(ids));
+            reread.fields().include("items").include("version");
+            changed = new ArrayList<>();
+            for (Receipt receipt : mongoTemplate.find(reread, Receipt.class)) {
+                if (itemNameCanonicalizer.canonicalize(receipt.getItems())) {
+                    changed.add(receipt);
+                }
+            }
+        }
+        return written;
+    }
+}
@@ -0,0 +1,256 @@
+package com.snapcart.service;
+
+import com.snapcart.model.ReceiptItem;
+import com.snapcart.util.SearchText;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.text.Normalizer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Turns raw OCR'd item names into canonical ones so "MILK 2L", "Milk  2l" and "MlLK 2L" count as
+ * one item. Names are case and whitespace folded with common OCR confusables fixed, then looked up
+ * in the product dictionary; a hit sets the item's productId and the dictionary's canonical name.
+ * Recent lookups are kept in an LRU, and equal canonical names share a single String instance.
+ */
+@Service
+public class ItemNameCanonicalizer {
+
+    private static final Logger log = LoggerFactory.getLogger(ItemNameCanonicalizer.class);
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${snapcart.items.canonicalize:true}")
+    private boolean enabled;
+
+    @Value("${snapcart.items.dictionary:classpath:product-dictionary.csv}")
+    private String dictionaryLocation;
+
+    @Value("${snapcart.items.lookup-cache-size:10000}")
+    private int lookupCacheSize;
+
+    private ProductDictionary dictionary;
+
+    // Raw name -> result, access-ordered so the least recently used lookup is dropped first
+    private Map<String, CanonicalName> lookups;
+    // Canonical name -> its shared instance; bounded like the lookup cache
+    private Map<String, String> interned;
+
+    private Counter cacheHits;
+    private Counter dictionaryHits;
+    private Counter unmatched;
+
+    @PostConstruct
+    public void init() {
+        lookups = lruMap(lookupCacheSize);
+        interned = lruMap(lookupCacheSize);
+        dictionary = loadDictionary();
+
+        cacheHits = Counter.builder("snapcart.items.lookups").tag("result", "cache-hit")
+                .register(meterRegistry);
+        dictionaryHits = Counter.builder("snapcart.items.lookups").tag("result", "dictionary")
+                .register(meterRegistry);
+        unmatched = Counter.builder("snapcart.items.lookups").tag("result", "unmatched")
+                .description("Item names not found in the product dictionary")
+                .register(meterRegistry);
+    }
+
+    // Rewrites name and productId in place; returns true when any item changed
+    public boolean canonicalize(List<ReceiptItem> items) {
+        if (!enabled || items == null) {
+            return false;
+        }
+        boolean changed = false;
+        for (ReceiptItem item : items) {
+            if (item.getName() == null) {
+                continue;
+            }
+            CanonicalName canonical = lookup(item.getName());
+            if (!canonical.name.equals(item.getName()) || !Objects.equals(canonical.productId, item.getProductId())) {
+                item.setName(canonical.name);
+                item.setProductId(canonical.productId);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private CanonicalName lookup(String rawName) {
+        synchronized (lookups) {
+            CanonicalName cached = lookups.get(rawName);
+            if (cached != null) {
+                cacheHits.increment();
+                return cached;
+            }
+        }
+
+        String folded = fold(rawName);
+        ProductDictionary.Product product = dictionary.longestMatch(matchKey(folded));
+        CanonicalName canonical;
+        if (product != null) {
+            dictionaryHits.increment();
+            canonical = new CanonicalName(product.getProductId(), product.getName());
+        } else {
+            unmatched.increment();
+            canonical = new CanonicalName(null, intern(folded));
+        }
+
+        synchronized (lookups) {
+            lookups.put(rawName, canonical);
+        }
+        return canonical;
+    }
+
+    private String intern(String name) {
+        synchronized (interned) {
+            String existing = interned.putIfAbsent(name, name);
+            return existing != null ? existing : name;
+        }
+    }
+
+    /**
+     * Upper-cased name with runs of whitespace collapsed and OCR confusables fixed by context:
+     * a digit between letters becomes the letter it resembles ("M1LK", "C0FFEE"), a lower-case l
+     * inside an otherwise upper-case word becomes I ("MlLK"), and O or l between digits becomes a
+     * digit ("1O0G" becomes "100G").
+     */
+    static String fold(String rawName) {
+        String normalized = Normalizer.normalize(rawName, Normalizer.Form.NFKC).trim();
+        StringBuilder folded = new StringBuilder(normalized.length());
+        for (String word : normalized.split("\\s+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (folded.length() > 0) {
+                folded.append(' ');
+            }
+            folded.append(fixConfusables(word));
+        }
+        return folded.toString().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Key the dictionary is indexed by: the words of a {@link #fold folded} name, lower-cased and
+     * accent free, with characters OCR mixes up mapped to one representative, so "MILK", "MIIK" and
+     * "M1LK" share a key.
+     */
+    static String matchKey(String foldedName) {
+        StringBuilder key = new StringBuilder(foldedName.length());
+        for (String word : SearchText.tokens(foldedName)) {
+            if (key.length() > 0) {
+                key.append(' ');
+            }
+            for (int i = 0; i < word.length(); i++) {
+                key.append(confusableClass(word.charAt(i)));
+            }
+        }
+        return key.toString();
+    }
+
+    private static String fixConfusables(String word) {
+        boolean upperCaseWord = isUpperCaseWord(word);
+        char[] chars = word.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            boolean letterNeighbours = i > 0 && i < chars.length - 1 &&
+                    Character.isLetter(chars[i - 1]) && Character.isLetter(chars[i + 1]);
+            boolean digitNeighbours = i > 0 && i < chars.length - 1 &&
+                    Character.isDigit(chars[i - 1]) && Character.isDigit(chars[i + 1]);
+            char c = chars[i];
+            if (letterNeighbours) {
+                switch (c) {
+                    case '0' -> chars[i] = 'O';
+                    case '1', '|', '!' -> chars[i] = 'I';
+                    case '5' -> chars[i] = 'S';
+                    case '8' -> chars[i] = 'B';
+                    case 'l' -> chars[i] = upperCaseWord ? 'I' : c;
+                    default -> { }
+                }
+            } else if (digitNeighbours) {
+                switch (c) {
+                    case 'O', 'o' -> chars[i] = '0';
+                    case 'l', 'I', '|' -> chars[i] = '1';
+                    default -> { }
+                }
+            }
+        }
+        return new String(chars);
+    }
+
+    // At least two upper-case letters and no lower-case letter other than l
+    private static boolean isUpperCaseWord(String word) {
+        int upperCase = 0;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (Character.isUpperCase(c)) {
+                upperCase++;
+            } else if (Character.isLowerCase(c) && c != 'l') {
+                return false;
+            }
+        }
+        return upperCase >= 2;
+    }
+
+    private static char confusableClass(char c) {
+        return switch (c) {
+            case 'i', '1' -> 'l';
+            case '0' -> 'o';
+            case '5' -> 's';
+            case '8' -> 'b';
+            default -> c;
+        };
+    }
+
+    private ProductDictionary loadDictionary() {
+        Resource resource = resourceLoader.getResource(dictionaryLocation);
+        if (!resource.exists()) {
+            log.warn("Product dictionary {} not found; item names will only be folded", dictionaryLocation);
+            return new ProductDictionary();
+        }
+        try (InputStream in = resource.getInputStream()) {
+            ProductDictionary loaded = ProductDictionary.load(in);
+            log.info("Loaded {} product names from {}", loaded.size(), dictionaryLocation);
+            return loaded;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load product dictionary " + dictionaryLocation, e);
+        }
+    }
+
+    private static <V> Map<String, V> lruMap(int maxEntries) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    private static final class CanonicalName {
+        private final String productId;
+        private final String name;
+
+        private CanonicalName(String productId, String name) {
+            this.productId = productId;
+            this.name = name;
+        }
+    }
+}
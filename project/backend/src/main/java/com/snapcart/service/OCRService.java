@@ -1,149 +1,114 @@
 package com.snapcart.service;
 
-import com.google.cloud.vision.v1.*;
-import com.google.protobuf.ByteString;
 import com.snapcart.model.ReceiptItem;
+import com.snapcart.ocr.OcrCallGuard;
+import com.snapcart.ocr.OcrEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class OCRService {
 
     @Autowired
-    private ImageAnnotatorClient imageAnnotatorClient;
-
-    public String extractTextFromImage(MultipartFile file) throws IOException {
-        byte[] data = file.getBytes();
-        ByteString imgBytes = ByteString.copyFrom(data);
-
-        Image img = Image.newBuilder().setContent(imgBytes).build();
-        Feature feat = Feature.newBuilder().setType(Feature.Type.TEXT_DETECTION).build();
-        AnnotateImageRequest request = AnnotateImageRequest.newBuilder()
-                .addFeatures(feat)
-                .setImage(img)
-                .build();
-
-        BatchAnnotateImagesResponse response = imageAnnotatorClient
-                .batchAnnotateImages(Arrays.asList(request));
-        
-        List<AnnotateImageResponse> responses = response.getResponsesList();
-
-        for (AnnotateImageResponse res : responses) {
-            if (res.hasError()) {
-                throw new RuntimeException("Error: " + res.getError().getMessage());
-            }
+    private OcrEngine ocrEngine;
 
-            for (EntityAnnotation annotation : res.getTextAnnotationsList()) {
-                return annotation.getDescription();
-            }
-        }
-        
-        return "";
+    @Autowired
+    private OcrCallGuard ocrCallGuard;
+
+    @Autowired
+    private OcrResultCache ocrResultCache;
+
+    @Autowired
+    private ImagePreprocessor imagePreprocessor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ReceiptTextParser receiptTextParser = new ReceiptTextParser();
+
+    private Timer originalOcrTimer;
+    private Timer preprocessedOcrTimer;
+
+    @PostConstruct
+    public void registerMetrics() {
+        // Compare OCR latency with and without preprocessing
+        originalOcrTimer = Timer.builder("snapcart.ocr.latency")
+                .tag("engine", ocrEngine.name())
+                .tag("preprocessed", "false")
+                .register(meterRegistry);
+        preprocessedOcrTimer = Timer.builder("snapcart.ocr.latency")
+                .tag("engine", ocrEngine.name())
+                .tag("preprocessed", "true")
+                .register(meterRegistry);
     }
 
-    public List<ReceiptItem> parseReceiptItems(String text) {
-        List<ReceiptItem> items = new ArrayList<>();
-        
-        // Enhanced regex patterns for better extraction
-        Pattern pricePattern = Pattern.compile("\\$?([0-9]+\\.?[0-9]*)", Pattern.CASE_INSENSITIVE);
-        Pattern itemPattern = Pattern.compile("^([A-Za-z][A-Za-z0-9\\s\\-&']{2,30}).*?\\$?([0-9]+\\.?[0-9]*)$", Pattern.MULTILINE);
-        
-        String[] lines = text.split("\n");
-        
-        for (String line : lines) {
-            line = line.trim();
-            if (line.isEmpty() || line.length() < 3) continue;
-            
-            // Skip common receipt headers/footers
-            if (isHeaderFooterLine(line)) continue;
-            
-            Matcher itemMatcher = itemPattern.matcher(line);
-            if (itemMatcher.find()) {
-                String itemName = itemMatcher.group(1).trim();
-                String priceStr = itemMatcher.group(2);
-                
-                try {
-                    Double price = Double.parseDouble(priceStr);
-                    if (price > 0 && price < 1000) { // reasonable price range
-                        items.add(new ReceiptItem(itemName, price, 1));
-                    }
-                } catch (NumberFormatException e) {
-                    // Skip invalid prices
-                }
-            }
+    public String extractTextFromImage(Path imagePath, String contentHash) throws IOException {
+        Optional<String> cached = ocrResultCache.get(contentHash);
+        if (cached.isPresent()) {
+            return cached.get();
         }
-        
-        // Fallback: extract prices from lines
-        if (items.isEmpty()) {
-            items = extractItemsWithFallback(lines);
+
+        // Cached under the original image's hash; the preprocessed copy is only sent to OCR
+        Optional<Path> preprocessed = imagePreprocessor.preprocess(imagePath);
+        Path ocrInput = preprocessed.orElse(imagePath);
+        String text;
+        try {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            text = ocrCallGuard.call(() -> ocrEngine.extractText(ocrInput));
+            sample.stop(preprocessed.isPresent() ? preprocessedOcrTimer : originalOcrTimer);
+        } finally {
+            if (preprocessed.isPresent()) {
+                Files.deleteIfExists(preprocessed.get());
+            }
         }
-        
-        return items;
+        ocrResultCache.put(contentHash, text);
+        return text;
     }
-    
-    private List<ReceiptItem> extractItemsWithFallback(String[] lines) {
-        List<ReceiptItem> items = new ArrayList<>();
-        Pattern pricePattern = Pattern.compile("\\$?([0-9]+\\.[0-9]{2})");
-        
-        for (String line : lines) {
-            line = line.trim();
-            if (isHeaderFooterLine(line)) continue;
-            
-            Matcher priceMatcher = pricePattern.matcher(line);
-            if (priceMatcher.find()) {
-                String priceStr = priceMatcher.group(1);
-                String itemName = line.replaceAll("\\$?[0-9]+\\.[0-9]{2}", "").trim();
-                
-                if (!itemName.isEmpty() && itemName.length() > 2) {
-                    try {
-                        Double price = Double.parseDouble(priceStr);
-                        if (price > 0 && price < 1000) {
-                            items.add(new ReceiptItem(itemName, price, 1));
-                        }
-                    } catch (NumberFormatException e) {
-                        // Skip invalid prices
-                    }
-                }
-            }
+
+    /**
+     * Non-blocking form of {@link #extractTextFromImage}: the cache lookup and preprocessing run on
+     * the calling thread, the engine call on the guard's pool, and nothing waits for it.
+     */
+    public CompletableFuture<String> extractTextFromImageAsync(Path imagePath, String contentHash) throws IOException {
+        Optional<String> cached = ocrResultCache.get(contentHash);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached.get());
         }
-        
-        return items;
+
+        Optional<Path> preprocessed = imagePreprocessor.preprocess(imagePath);
+        Path ocrInput = preprocessed.orElse(imagePath);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return ocrCallGuard.callAsync(() -> ocrEngine.extractText(ocrInput))
+                .whenComplete((text, error) -> {
+                    if (preprocessed.isPresent()) {
+                        preprocessed.get().toFile().delete();
+                    }
+                    if (error == null) {
+                        sample.stop(preprocessed.isPresent() ? preprocessedOcrTimer : originalOcrTimer);
+                        ocrResultCache.put(contentHash, text);
+                    }
+                });
     }
-    
-    private boolean isHeaderFooterLine(String line) {
-        String lowerLine = line.toLowerCase();
-        return lowerLine.contains("total") || 
-               lowerLine.contains("subtotal") ||
-               lowerLine.contains("tax") ||
-               lowerLine.contains("change") ||
-               lowerLine.contains("cash") ||
-               lowerLine.contains("card") ||
-               lowerLine.contains("receipt") ||
-               lowerLine.contains("thank") ||
-               lowerLine.length() < 3 ||
-               lowerLine.matches(".*[0-9]{3,}.*"); // Skip long numbers (like transaction IDs)
+
+    public List<ReceiptItem> parseReceiptItems(String text) {
+        return receiptTextParser.parseItems(text);
+    }
+
+    public ReceiptTextParser.ParseResult parseReceipt(String text) {
+        return receiptTextParser.parse(text);
     }
     
     public String extractStoreName(String text) {
-        String[] lines = text.split("\n");
-        
-        // Usually store name is in the first few lines
-        for (int i = 0; i < Math.min(5, lines.length); i++) {
-            String line = lines[i].trim();
-            if (line.length() > 3 && line.length() < 50 && 
-                !line.matches(".*[0-9]+.*") && // No numbers
-                !line.toLowerCase().contains("receipt")) {
-                return line;
-            }
-        }
-        
-        return "Unknown Store";
+        return receiptTextParser.extractStoreName(text);
     }
     
     public Double calculateTotal(List<ReceiptItem> items) {
@@ -0,0 +1,151 @@
+package com.snapcart.service;
+
+import com.snapcart.model.OcrCacheEntry;
+import com.snapcart.ocr.OcrEngine;
+import com.snapcart.repository.OcrCacheRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Two-tier cache of OCR output keyed by the engine name and the SHA-256 of the image bytes, so
+ * text from one engine (e.g. the stub's fixtures) is never served by another: a bounded in-memory
+ * LRU in front of the ocr_cache collection, so hits survive restarts. Both tiers expire entries
+ * after the TTL; in the collection a TTL index on createdDate (see MongoIndexConfig) removes them.
+ */
+@Service
+public class OcrResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(OcrResultCache.class);
+
+    @Autowired
+    private OcrCacheRepository ocrCacheRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private OcrEngine ocrEngine;
+
+    @Value("${snapcart.ocr.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${snapcart.ocr.cache.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${snapcart.ocr.cache.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    private Map<String, CachedText> memory;
+
+    private Counter memoryHits;
+    private Counter storeHits;
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedText> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        memoryHits = Counter.builder("snapcart.ocr.cache.requests").tag("result", "memory-hit")
+                .register(meterRegistry);
+        storeHits = Counter.builder("snapcart.ocr.cache.requests").tag("result", "store-hit")
+                .register(meterRegistry);
+        misses = Counter.builder("snapcart.ocr.cache.requests").tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("snapcart.ocr.cache.size", this, OcrResultCache::memorySize)
+                .description("Entries held in the in-memory OCR cache tier")
+                .register(meterRegistry);
+    }
+
+    public Optional<String> get(String contentHash) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        String key = key(contentHash);
+        synchronized (memory) {
+            CachedText cached = memory.get(key);
+            if (cached != null) {
+                if (!cached.isExpired(ttlMinutes)) {
+                    memoryHits.increment();
+                    return Optional.of(cached.text);
+                }
+                memory.remove(key);
+            }
+        }
+
+        try {
+            Optional<OcrCacheEntry> stored = ocrCacheRepository.findById(key);
+            if (stored.isPresent()) {
+                storeHits.increment();
+                remember(key, stored.get().getExtractedText());
+                return Optional.ofNullable(stored.get().getExtractedText());
+            }
+        } catch (RuntimeException e) {
+            log.warn("OCR cache lookup failed for {}", contentHash, e);
+        }
+
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public void put(String contentHash, String extractedText) {
+        if (!enabled) {
+            return;
+        }
+
+        String key = key(contentHash);
+        remember(key, extractedText);
+        try {
+            ocrCacheRepository.save(new OcrCacheEntry(key, extractedText));
+        } catch (RuntimeException e) {
+            log.warn("Could not persist OCR cache entry {}", contentHash, e);
+        }
+    }
+
+    private String key(String contentHash) {
+        return ocrEngine.name() + ":" + contentHash;
+    }
+
+    private void remember(String key, String extractedText) {
+        if (extractedText == null) return;
+        synchronized (memory) {
+            memory.put(key, new CachedText(extractedText));
+        }
+    }
+
+    private int memorySize() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    private static final class CachedText {
+        private final String text;
+        private final long cachedAtNanos = System.nanoTime();
+
+        private CachedText(String text) {
+            this.text = text;
+        }
+
+        private boolean isExpired(long ttlMinutes) {
+            return System.nanoTime() - cachedAtNanos > TimeUnit.MINUTES.toNanos(ttlMinutes);
+        }
+    }
+}
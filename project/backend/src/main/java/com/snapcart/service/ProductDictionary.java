@@ -0,0 +1,111 @@
+package com.snapcart.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Known products keyed by match key (see {@link ItemNameCanonicalizer#matchKey}), stored in a
+ * character trie so a lookup walks the name once and finds the longest known product name the
+ * item starts with, e.g. "whole milk 1 gal store brand" resolves to "whole milk 1 gal".
+ * Immutable once loaded and safe to share between threads.
+ */
+class ProductDictionary {
+
+    static final class Product {
+        private final String productId;
+        private final String name;
+
+        Product(String productId, String name) {
+            this.productId = productId;
+            this.name = name;
+        }
+
+        String getProductId() { return productId; }
+        String getName() { return name; }
+    }
+
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        private Product product;
+    }
+
+    private final Node root = new Node();
+    private int size;
+
+    /**
+     * Reads {@code productId,Canonical Name,alias|alias|...} lines; blank lines and lines starting
+     * with {@code #} are skipped. The canonical name is always an alias of itself.
+     */
+    static ProductDictionary load(InputStream in) throws IOException {
+        ProductDictionary dictionary = new ProductDictionary();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",", 3);
+                if (fields.length < 2 || fields[0].isBlank() || fields[1].isBlank()) {
+                    throw new IOException("Malformed product dictionary line " + lineNumber + ": " + line);
+                }
+
+                Product product = new Product(fields[0].trim(), fields[1].trim());
+                dictionary.put(keyOf(product.getName()), product);
+                if (fields.length == 3) {
+                    for (String alias : fields[2].split("\\|")) {
+                        if (!alias.isBlank()) {
+                            dictionary.put(keyOf(alias), product);
+                        }
+                    }
+                }
+            }
+        }
+        return dictionary;
+    }
+
+    private static String keyOf(String name) {
+        return ItemNameCanonicalizer.matchKey(ItemNameCanonicalizer.fold(name));
+    }
+
+    private void put(String key, Product product) {
+        if (key.isEmpty()) {
+            return;
+        }
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.computeIfAbsent(key.charAt(i), c -> new Node());
+        }
+        if (node.product == null) {
+            size++;
+        }
+        node.product = product;
+    }
+
+    // Longest product whose key is the whole of key or a prefix of it ending at a word boundary
+    Product longestMatch(String key) {
+        Product match = null;
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.get(key.charAt(i));
+            if (node == null) {
+                return match;
+            }
+            if (node.product != null && (i + 1 == key.length() || key.charAt(i + 1) == ' ')) {
+                match = node.product;
+            }
+        }
+        return match;
+    }
+
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,299 @@
+package com.snapcart.service;
+
+import com.snapcart.model.CursorPage;
+import com.snapcart.model.Receipt;
+import com.snapcart.model.ReceiptBulkRequest;
+import com.snapcart.model.ReceiptBulkResult;
+import com.snapcart.model.ReceiptCursor;
+import com.snapcart.model.ReceiptJob;
+import com.snapcart.model.ReceiptPatch;
+import com.snapcart.model.ReceiptSummary;
+import com.snapcart.ocr.OcrUnavailableException;
+import com.snapcart.repository.ReactiveReceiptRepository;
+import com.snapcart.storage.BlobStore;
+import com.snapcart.storage.StoredBlob;
+import com.snapcart.util.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reactive counterpart of {@link ReceiptService} for the 'reactive' profile. Mongo reads and writes
+ * go through the reactive driver and OCR through {@link OCRService#extractTextFromImageAsync}, so
+ * no thread waits on either. Parsing and the in-memory read models are shared with ReceiptService;
+ * the blob store, search index and rollup updates block and run on the bounded elastic scheduler.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveReceiptService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveReceiptService.class);
+
+    @Autowired
+    private ReactiveReceiptRepository reactiveReceiptRepository;
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Autowired
+    private ReceiptIngestionService receiptIngestionService;
+
+    @Autowired
+    private OCRService ocrService;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private ReceiptTextStore receiptTextStore;
+
+    @Autowired
+    private ReceiptSearchIndex receiptSearchIndex;
+
+    @Autowired
+    private ReceiptPatcher receiptPatcher;
+
+    @Value("${snapcart.receipts.deduplicate:true}")
+    private boolean deduplicate;
+
+    @Value("${snapcart.ocr.resilience.defer-to-async:true}")
+    private boolean deferWhenOcrUnavailable;
+
+    /**
+     * Processes a spooled upload, taking ownership of the file. When OCR is unavailable and deferral
+     * is enabled, the upload is queued instead and the Mono fails with {@link ReceiptDeferredException}.
+     */
+    public Mono<Receipt> processOrDefer(String userId, String filename, String contentType, Path spooledFile) {
+        AtomicBoolean queued = new AtomicBoolean();
+        return process(userId, filename, contentType, spooledFile)
+                .onErrorResume(OcrUnavailableException.class,
+                        e -> defer(userId, filename, contentType, spooledFile, e, queued))
+                .doFinally(signal -> {
+                    if (!queued.get()) {
+                        deleteSpooledFile(spooledFile);
+                    }
+                });
+    }
+
+    // Queues a spooled upload as a background job, taking ownership of the file
+    public Mono<ReceiptJob> submit(String userId, String filename, String contentType, Path spooledFile) {
+        return blocking(() -> receiptIngestionService.enqueue(userId, filename, contentType, spooledFile));
+    }
+
+    public Mono<ReceiptJob> getJob(String userId, String id) {
+        return blocking(() -> receiptIngestionService.getJob(userId, id)).flatMap(Mono::justOrEmpty);
+    }
+
+    private Mono<Receipt> process(String userId, String filename, String contentType, Path imagePath) {
+        return blocking(() -> Hashing.sha256Hex(imagePath))
+                .flatMap(contentHash -> findDuplicate(userId, contentHash)
+                        .flatMap(this::hydrate)
+                        .switchIfEmpty(Mono.defer(() -> processNew(userId, filename, contentType, imagePath, contentHash))));
+    }
+
+    private Mono<Receipt> findDuplicate(String userId, String contentHash) {
+        return deduplicate ?
+                reactiveReceiptRepository.findFirstByUserIdAndContentHash(userId, contentHash) :
+                Mono.empty();
+    }
+
+    private Mono<Receipt> processNew(String userId, String filename, String contentType, Path imagePath,
+                                     String contentHash) {
+        // Only the cache lookup and preprocessing hold a thread; the engine call is awaited without one
+        return blocking(() -> ocrService.extractTextFromImageAsync(imagePath, contentHash))
+                .flatMap(future -> Mono.fromFuture(future))
+                .flatMap(extractedText -> blocking(() -> blobStore.put(imagePath))
+                        .map(imageRef -> receiptService.buildReceipt(userId, filename, contentHash,
+                                extractedText, imageRef, contentType)))
+                .flatMap(receipt -> save(null, receipt))
+                // A concurrent upload of the same image won the unique userId_contentHash index
+                .onErrorResume(DuplicateKeyException.class, e -> findDuplicate(userId, contentHash)
+                        .flatMap(this::hydrate)
+                        .switchIfEmpty(Mono.error(e)));
+    }
+
+    private Mono<Receipt> defer(String userId, String filename, String contentType, Path spooledFile,
+                                OcrUnavailableException cause, AtomicBoolean queued) {
+        if (!deferWhenOcrUnavailable) {
+            return Mono.error(cause);
+        }
+        return blocking(() -> {
+            ReceiptJob job;
+            try {
+                job = receiptIngestionService.enqueue(userId, filename, contentType, spooledFile);
+            } catch (RejectedExecutionException rejected) {
+                throw cause;
+            }
+            queued.set(true);
+            throw new ReceiptDeferredException(job);
+        });
+    }
+
+    // Newest first, read from the cursor as the response is written
+    public Flux<Receipt> streamAllReceipts(String userId) {
+        return reactiveReceiptRepository.findAllNewestFirst(userId)
+                .publishOn(Schedulers.boundedElastic())
+                .map(receiptTextStore::hydrate);
+    }
+
+    public Flux<ReceiptSummary> streamAllReceiptSummaries(String userId) {
+        return reactiveReceiptRepository.findSummariesNewestFirst(userId);
+    }
+
+    public Mono<CursorPage<Receipt>> getReceiptPage(String userId, String cursor, int limit) {
+        int pageSize = receiptService.pageSize(limit);
+        return Mono.defer(() -> reactiveReceiptRepository
+                        .findPage(userId, ReceiptService.decodeCursor(cursor), pageSize + 1)
+                        .collectList())
+                .map(rows -> ReceiptService.toPage(rows, pageSize, ReceiptCursor::after))
+                .flatMap(page -> blocking(() -> {
+                    page.getItems().forEach(receiptTextStore::hydrate);
+                    return page;
+                }));
+    }
+
+    public Mono<CursorPage<ReceiptSummary>> getReceiptSummaryPage(String userId, String cursor, int limit) {
+        int pageSize = receiptService.pageSize(limit);
+        return Mono.defer(() -> reactiveReceiptRepository
+                        .findSummaryPage(userId, ReceiptService.decodeCursor(cursor), pageSize + 1)
+                        .collectList())
+                .map(rows -> ReceiptService.toPage(rows, pageSize,
+                        summary -> new ReceiptCursor(summary.getCreatedDate(), summary.getId())));
+    }
+
+    public Flux<Receipt> searchReceipts(String userId, String query, int limit) {
+        return searchIds(userId, query, limit)
+                .flatMapMany(ids -> reactiveReceiptRepository.findByUserIdAndIdIn(userId, ids).collectList()
+                        .flatMapIterable(rows -> ReceiptService.inOrder(ids, rows, Receipt::getId)))
+                .publishOn(Schedulers.boundedElastic())
+                .map(receiptTextStore::hydrate);
+    }
+
+    public Flux<ReceiptSummary> searchReceiptSummaries(String userId, String query, int limit) {
+        return searchIds(userId, query, limit)
+                .flatMapMany(ids -> reactiveReceiptRepository.findSummariesByIds(userId, ids).collectList()
+                        .flatMapIterable(rows -> ReceiptService.inOrder(ids, rows, ReceiptSummary::getId)));
+    }
+
+    // The first search per user builds its index from Mongo, so ranking runs off the event loop
+    private Mono<List<String>> searchIds(String userId, String query, int limit) {
+        return blocking(() -> receiptSearchIndex.search(userId, query, receiptService.clampSearchLimit(limit)))
+                .filter(ids -> !ids.isEmpty());
+    }
+
+    public Mono<Receipt> getReceiptById(String userId, String id) {
+        return reactiveReceiptRepository.findByIdAndUserId(id, userId).flatMap(this::hydrate);
+    }
+
+    public Mono<StoredBlob> getReceiptImage(String userId, String id) {
+        return reactiveReceiptRepository.findImageRefByIdAndUserId(id, userId)
+                .filter(receipt -> receipt.getImageRef() != null)
+                .flatMap(receipt -> blocking(() -> blobStore.get(receipt.getImageRef()))
+                        .flatMap(Mono::justOrEmpty)
+                        .map(blob -> blob.withContentType(receipt.getImageContentType())));
+    }
+
+    // Receipts belonging to other users are left alone
+    public Mono<Void> deleteReceipt(String userId, String id) {
+        return reactiveReceiptRepository.findByIdAndUserId(id, userId)
+                .flatMap(receipt -> reactiveReceiptRepository.deleteById(id).then(recordChange(receipt, null)));
+    }
+
+    // Empty when the user has no receipt with this id
+    public Mono<Receipt> updateReceipt(String userId, String id, Receipt receipt) {
+        return reactiveReceiptRepository.findByIdAndUserId(id, userId)
+                .flatMap(existing -> {
+                    receipt.setId(id);
+                    receipt.setUserId(userId);
+                    ReceiptService.keepServerFields(existing, receipt);
+                    return save(existing, receipt);
+                })
+                .flatMap(this::hydrate);
+    }
+
+    // Same contract as ReceiptService.patchReceipt; empty when the user has no receipt with this id
+    public Mono<Receipt> patchReceipt(String userId, String id, ReceiptPatch patch) {
+        return reactiveReceiptRepository.findByIdAndUserId(id, userId)
+                .flatMap(existing -> {
+                    ReceiptPatcher.Plan plan = receiptPatcher.plan(existing, patch);
+                    return reactiveReceiptRepository
+                            .updateAtVersion(userId, id, plan.getExpectedVersion(), plan.getUpdate())
+                            .flatMap(matched -> matched ?
+                                    recordChange(existing, plan.getAfter()).thenReturn(plan.getAfter()) :
+                                    Mono.error(new OptimisticLockingFailureException(
+                                            "Receipt " + id + " was modified concurrently")));
+                })
+                .flatMap(this::hydrate);
+    }
+
+    // Same contract as ReceiptService.bulkUpdate
+    public Mono<ReceiptBulkResult> bulkUpdate(String userId, ReceiptBulkRequest request) {
+        return Mono.defer(() -> {
+            Map<String, String> categoryById = ReceiptService.categoriesById(request);
+            Set<String> deleteIds = ReceiptService.deleteIds(request);
+            categoryById.keySet().removeAll(deleteIds);
+            receiptService.checkBulkSize(categoryById.size() + deleteIds.size());
+
+            List<String> ids = new ArrayList<>(categoryById.keySet());
+            ids.addAll(deleteIds);
+            return reactiveReceiptRepository.findByUserIdAndIdIn(userId, ids).collectList()
+                    .flatMap(before -> reactiveReceiptRepository
+                            .bulkWrite(userId, ReceiptService.idsByCategory(categoryById), deleteIds)
+                            .flatMap(result -> Mono.<Void>fromRunnable(() -> before.forEach(receipt ->
+                                            receiptService.recordChange(receipt,
+                                                    ReceiptService.bulkOutcome(receipt, categoryById))))
+                                    .subscribeOn(Schedulers.boundedElastic())
+                                    .thenReturn(new ReceiptBulkResult(result.getMatchedCount(),
+                                            result.getModifiedCount(), result.getDeletedCount()))));
+        });
+    }
+
+    // Saves with the OCR text moved to the blob store, then updates the read models; before is null on create
+    private Mono<Receipt> save(Receipt before, Receipt receipt) {
+        return blocking(() -> Optional.ofNullable(receiptTextStore.externalize(receipt)))
+                .flatMap(extractedText -> reactiveReceiptRepository.save(receipt)
+                        .flatMap(saved -> recordChange(before, saved).thenReturn(saved))
+                        .doOnNext(saved -> saved.setExtractedText(extractedText.orElse(null))));
+    }
+
+    private Mono<Void> recordChange(Receipt before, Receipt after) {
+        return Mono.<Void>fromRunnable(() -> receiptService.recordChange(before, after))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<Receipt> hydrate(Receipt receipt) {
+        return blocking(() -> receiptTextStore.hydrate(receipt));
+    }
+
+    private static <T> Mono<T> blocking(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private void deleteSpooledFile(Path spooledFile) {
+        try {
+            Files.deleteIfExists(spooledFile);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled upload {}", spooledFile, e);
+        }
+    }
+}
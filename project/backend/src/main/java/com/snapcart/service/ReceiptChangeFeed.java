@@ -0,0 +1,158 @@
+package com.snapcart.service;
+
+import com.mongodb.MongoCommandException;
+import com.snapcart.model.AnalyticsUpdate;
+import com.snapcart.model.Receipt;
+import com.snapcart.model.ReceiptChangeEvent;
+import com.snapcart.model.ReceiptSummary;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.TailableCursorRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Keeps the in-memory read models of every instance in step. The rollups, recent-receipt buffers,
+ * search indexes and analytics streams are per instance and updated directly by writes made here;
+ * each write is also appended to a small capped collection that every instance tails. An instance
+ * that sees another's write drops that user's cached models, which are rebuilt from Mongo on the
+ * next read, and forwards the change to its own stream subscribers.
+ *
+ * <p>A tailable cursor on a capped collection works on a standalone MongoDB as well as on a
+ * replica set, unlike change streams. With the feed disabled the application must run as a single
+ * instance.
+ */
+@Service
+public class ReceiptChangeFeed {
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptChangeFeed.class);
+
+    // Events from instances that started just before us may be older than our start; replaying them is harmless
+    private static final long REPLAY_SECONDS = 5;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private AnalyticsRollupService analyticsRollupService;
+
+    @Autowired
+    private RecentReceiptsBuffer recentReceiptsBuffer;
+
+    @Autowired
+    private ReceiptSearchIndex receiptSearchIndex;
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private AnalyticsStreamService analyticsStreamService;
+
+    @Value("${snapcart.changes.feed.enabled:true}")
+    private boolean enabled;
+
+    @Value("${snapcart.changes.feed.size-mb:16}")
+    private long sizeMb;
+
+    // Only has to tell this process apart from the others, so it is new on every start
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private MessageListenerContainer container;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("Receipt change feed is disabled; run a single instance");
+            return;
+        }
+        ensureCollection();
+        container = new DefaultMessageListenerContainer(mongoTemplate);
+        container.register(TailableCursorRequest.builder()
+                .collection(mongoTemplate.getCollectionName(ReceiptChangeEvent.class))
+                .filter(query(where("createdDate").gte(LocalDateTime.now().minusSeconds(REPLAY_SECONDS))))
+                .publishTo(message -> apply(message.getBody()))
+                .build(), ReceiptChangeEvent.class);
+        container.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (container != null) {
+            container.stop();
+        }
+    }
+
+    // Called for every receipt write made on this instance; before/after are null on create/delete
+    public void publish(Receipt before, Receipt after) {
+        Receipt changed = after != null ? after : before;
+        ReceiptChangeEvent.Type type = before == null ? ReceiptChangeEvent.Type.CREATED :
+                after == null ? ReceiptChangeEvent.Type.DELETED : ReceiptChangeEvent.Type.UPDATED;
+        append(new ReceiptChangeEvent(nodeId, type, changed.getUserId(), changed.getId(),
+                after != null ? ReceiptSummary.of(after) : null));
+    }
+
+    // After bulk rewrites across users that bypass ReceiptService
+    public void publishCleared() {
+        append(new ReceiptChangeEvent(nodeId, ReceiptChangeEvent.Type.CLEARED, null, null, null));
+    }
+
+    private void append(ReceiptChangeEvent event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            mongoTemplate.insert(event);
+        } catch (DataAccessException e) {
+            // The write itself succeeded; other instances serve this user's cached models until they are evicted
+            log.warn("Could not publish receipt change for user {}", event.getUserId(), e);
+        }
+    }
+
+    void apply(ReceiptChangeEvent event) {
+        if (event == null || nodeId.equals(event.getNodeId())) {
+            return;
+        }
+        if (event.getType() == ReceiptChangeEvent.Type.CLEARED) {
+            analyticsRollupService.clear();
+            receiptSearchIndex.clear();
+            analyticsService.evictAllCachedAnalytics();
+            return;
+        }
+        String userId = event.getUserId();
+        analyticsRollupService.evict(userId);
+        recentReceiptsBuffer.evict(userId);
+        receiptSearchIndex.evict(userId);
+        analyticsService.evictCachedAnalytics(userId);
+        analyticsStreamService.record(userId, AnalyticsUpdate.Type.valueOf(event.getType().name()),
+                event.getReceiptId(), event.getReceipt());
+    }
+
+    private void ensureCollection() {
+        if (mongoTemplate.collectionExists(ReceiptChangeEvent.class)) {
+            return;
+        }
+        try {
+            mongoTemplate.createCollection(ReceiptChangeEvent.class,
+                    CollectionOptions.empty().capped().size(sizeMb * 1024 * 1024));
+        } catch (DataAccessException | MongoCommandException e) {
+            // Another instance created it first
+            log.debug("receipt_changes was created concurrently", e);
+        }
+        // A tailable cursor on an empty capped collection is closed at once, so seed it
+        publishCleared();
+    }
+}
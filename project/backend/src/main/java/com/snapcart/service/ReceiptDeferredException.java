@@ -0,0 +1,18 @@
+package com.snapcart.service;
+
+import com.snapcart.model.ReceiptJob;
+
+// A synchronous upload was queued for background processing instead; the job tracks it
+public class ReceiptDeferredException extends RuntimeException {
+
+    private final ReceiptJob job;
+
+    public ReceiptDeferredException(ReceiptJob job) {
+        super("Receipt queued for background processing as job " + job.getId());
+        this.job = job;
+    }
+
+    public ReceiptJob getJob() {
+        return job;
+    }
+}
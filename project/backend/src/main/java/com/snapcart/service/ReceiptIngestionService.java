@@ -0,0 +1,246 @@
+package com.snapcart.service;
+
+import com.snapcart.model.Receipt;
+import com.snapcart.model.ReceiptJob;
+import com.snapcart.ocr.OcrUnavailableException;
+import com.snapcart.repository.ReceiptJobRepository;
+import com.snapcart.util.Uploads;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class ReceiptIngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptIngestionService.class);
+
+    private static final long MIN_RETRY_DELAY_MS = 1000;
+    private static final long MAX_RETRY_DELAY_MS = 30000;
+
+    @Autowired
+    private ReceiptJobRepository receiptJobRepository;
+
+    @Autowired
+    private ReceiptService receiptService;
+
+    @Autowired
+    @Qualifier("ingestionExecutor")
+    private ThreadPoolExecutor ingestionExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${snapcart.ocr.resilience.defer-to-async:true}")
+    private boolean deferWhenOcrUnavailable;
+
+    @Value("${snapcart.ingestion.ocr-retries:5}")
+    private int ocrRetries;
+
+    @Autowired
+    @Qualifier("ingestionRetryScheduler")
+    private ScheduledExecutorService retryScheduler;
+
+    // Must stay the same across restarts of an instance (and differ between instances), since the
+    // jobs it was processing when it stopped are found by it
+    @Value("${snapcart.ingestion.node-id:}")
+    private String nodeId;
+
+    @PostConstruct
+    public void init() throws UnknownHostException {
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = InetAddress.getLocalHost().getHostName();
+        }
+
+        Gauge.builder("snapcart.ingestion.queue.depth", this, ReceiptIngestionService::getQueueDepth)
+                .description("Receipt jobs waiting for an ingestion worker")
+                .register(meterRegistry);
+        Gauge.builder("snapcart.ingestion.queue.remaining", ingestionExecutor,
+                        executor -> executor.getQueue().remainingCapacity())
+                .description("Receipt jobs the ingestion queue accepts before uploads are rejected")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Spools the upload to a temp file, records a pending job and queues it for processing.
+     * Throws {@link RejectedExecutionException} when the ingestion queue is full.
+     */
+    public ReceiptJob submit(String userId, MultipartFile file) throws IOException {
+        if (ingestionExecutor.getQueue().remainingCapacity() == 0) {
+            throw new RejectedExecutionException("Ingestion queue is full");
+        }
+
+        // The multipart part is cleaned up when the request completes, so keep our own copy
+        Path spooledFile = Uploads.spoolToTempFile(file);
+        return enqueue(userId, file.getOriginalFilename(), file.getContentType(), spooledFile);
+    }
+
+    /**
+     * Processes the upload on the calling thread. When OCR is unavailable (circuit open,
+     * concurrency limit reached or deadline missed) and deferral is enabled, the upload is
+     * queued instead and {@link ReceiptDeferredException} carries the job.
+     */
+    public Receipt processOrDefer(String userId, MultipartFile file) throws IOException {
+        Path spooledFile = Uploads.spoolToTempFile(file);
+        boolean queued = false;
+        try {
+            return receiptService.processReceipt(userId, file.getOriginalFilename(), file.getContentType(),
+                    spooledFile);
+        } catch (OcrUnavailableException e) {
+            ReceiptJob job = defer(userId, file.getOriginalFilename(), file.getContentType(), spooledFile, e);
+            queued = true;
+            throw new ReceiptDeferredException(job);
+        } finally {
+            if (!queued) {
+                Files.deleteIfExists(spooledFile);
+            }
+        }
+    }
+
+    /**
+     * Queues an upload whose OCR was unavailable, taking ownership of the spooled file. Rethrows
+     * the cause when deferral is disabled or the ingestion queue is full.
+     */
+    ReceiptJob defer(String userId, String filename, String contentType, Path spooledFile,
+                     OcrUnavailableException cause) throws IOException {
+        if (!deferWhenOcrUnavailable) {
+            throw cause;
+        }
+        try {
+            return enqueue(userId, filename, contentType, spooledFile);
+        } catch (RejectedExecutionException rejected) {
+            throw cause;
+        }
+    }
+
+    // Takes ownership of the spooled file; it is deleted when the job finishes or is rejected
+    ReceiptJob enqueue(String userId, String filename, String contentType, Path spooledFile)
+            throws IOException {
+        ReceiptJob pending = new ReceiptJob(userId, filename);
+        pending.setNodeId(nodeId);
+        ReceiptJob job = receiptJobRepository.save(pending);
+        try {
+            ingestionExecutor.execute(() -> process(job, contentType, spooledFile));
+        } catch (RejectedExecutionException e) {
+            receiptJobRepository.delete(job);
+            Files.deleteIfExists(spooledFile);
+            throw e;
+        }
+        return job;
+    }
+
+    public Optional<ReceiptJob> getJob(String userId, String id) {
+        return receiptJobRepository.findByIdAndUserId(id, userId);
+    }
+
+    public int getQueueDepth() {
+        return ingestionExecutor.getQueue().size();
+    }
+
+    private void process(ReceiptJob job, String contentType, Path spooledFile) {
+        try {
+            job.setStatus(ReceiptJob.Status.PROCESSING);
+            receiptJobRepository.save(job);
+        } catch (Exception e) {
+            fail(job, e);
+            finish(job, spooledFile);
+            return;
+        }
+        attempt(job, contentType, spooledFile, 0);
+    }
+
+    // Background jobs wait out OCR outages instead of failing straight away. The wait is a scheduled
+    // task rather than a sleeping worker, so an outage doesn't stall the jobs queued behind it.
+    private void attempt(ReceiptJob job, String contentType, Path spooledFile, int attempt) {
+        boolean retrying = false;
+        try {
+            Receipt receipt = receiptService.processReceipt(job.getUserId(), job.getFilename(), contentType,
+                    spooledFile);
+            job.setStatus(ReceiptJob.Status.COMPLETED);
+            job.setReceiptId(receipt.getId());
+        } catch (OcrUnavailableException e) {
+            if (attempt < ocrRetries) {
+                long delayMs = Math.min(MAX_RETRY_DELAY_MS, Math.max(MIN_RETRY_DELAY_MS, e.getRetryAfterMillis()));
+                log.debug("OCR unavailable for job {}, retrying in {} ms", job.getId(), delayMs);
+                retrying = scheduleRetry(job, contentType, spooledFile, attempt + 1, delayMs);
+            }
+            if (!retrying) {
+                fail(job, e);
+            }
+        } catch (Exception e) {
+            fail(job, e);
+        } finally {
+            if (!retrying) {
+                finish(job, spooledFile);
+            }
+        }
+    }
+
+    private boolean scheduleRetry(ReceiptJob job, String contentType, Path spooledFile, int attempt, long delayMs) {
+        try {
+            retryScheduler.schedule(() -> {
+                try {
+                    ingestionExecutor.execute(() -> attempt(job, contentType, spooledFile, attempt));
+                } catch (RejectedExecutionException e) {
+                    fail(job, e);
+                    finish(job, spooledFile);
+                }
+            }, delayMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the job is failed as interrupted on the next start
+            return false;
+        }
+    }
+
+    private void fail(ReceiptJob job, Exception e) {
+        log.warn("Receipt job {} failed", job.getId(), e);
+        job.setStatus(ReceiptJob.Status.FAILED);
+        job.setError(e.getMessage());
+    }
+
+    private void finish(ReceiptJob job, Path spooledFile) {
+        receiptJobRepository.save(job);
+        try {
+            Files.deleteIfExists(spooledFile);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled upload {}", spooledFile, e);
+        }
+    }
+
+    /**
+     * Spooled files do not survive a restart, so jobs this instance had in flight can never complete.
+     * Jobs held by other instances are theirs to finish.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedJobs() {
+        List<ReceiptJob> interrupted = receiptJobRepository.findByNodeIdAndStatusIn(nodeId,
+                EnumSet.of(ReceiptJob.Status.PENDING, ReceiptJob.Status.PROCESSING));
+        for (ReceiptJob job : interrupted) {
+            job.setStatus(ReceiptJob.Status.FAILED);
+            job.setError("Interrupted by server restart");
+        }
+        receiptJobRepository.saveAll(interrupted);
+    }
+}
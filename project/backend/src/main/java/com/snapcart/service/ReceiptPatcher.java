@@ -0,0 +1,196 @@
+package com.snapcart.service;
+
+import com.snapcart.model.Receipt;
+import com.snapcart.model.ReceiptItem;
+import com.snapcart.model.ReceiptPatch;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Turns a {@link ReceiptPatch} into the receipt it produces and the targeted Mongo update that
+ * produces it, so a price fix rewrites one array element rather than the whole document.
+ * Mongo rejects an update that touches the items array through two operators, so item changes
+ * map to $set on items.N (edits only), $push (adds only) or $pull (removals only), and a mix of
+ * them sets the whole array. Every update also bumps the version, which the write is guarded by.
+ */
+@Service
+public class ReceiptPatcher {
+
+    @Autowired
+    private ItemNameCanonicalizer itemNameCanonicalizer;
+
+    @Autowired
+    private OCRService ocrService;
+
+    public static final class Plan {
+        private final Receipt after;
+        private final Update update;
+        private final Long expectedVersion;
+
+        private Plan(Receipt after, Update update, Long expectedVersion) {
+            this.after = after;
+            this.update = update;
+            this.expectedVersion = expectedVersion;
+        }
+
+        public Receipt getAfter() { return after; }
+        public Update getUpdate() { return update; }
+        public Long getExpectedVersion() { return expectedVersion; }
+    }
+
+    /**
+     * Throws OptimisticLockingFailureException when the patch names a version other than the
+     * current one, and IllegalArgumentException when it changes nothing or addresses a missing item.
+     */
+    public Plan plan(Receipt before, ReceiptPatch patch) {
+        if (patch.getVersion() != null && !patch.getVersion().equals(before.getVersion())) {
+            throw new OptimisticLockingFailureException("Receipt " + before.getId() + " is at version " +
+                    before.getVersion() + ", not " + patch.getVersion());
+        }
+
+        Receipt after = copyOf(before);
+        Update update = new Update();
+        boolean changed = false;
+
+        if (patch.getStore() != null) {
+            after.setStore(patch.getStore());
+            update.set("store", patch.getStore());
+            changed = true;
+        }
+        if (patch.getCategory() != null) {
+            after.setCategory(patch.getCategory());
+            update.set("category", patch.getCategory());
+            changed = true;
+        }
+
+        boolean itemsChanged = planItems(after, patch, update);
+        if (patch.getTotalAmount() != null) {
+            after.setTotalAmount(patch.getTotalAmount());
+        } else if (itemsChanged) {
+            after.setTotalAmount(ocrService.calculateTotal(after.getItems()));
+        }
+        if (patch.getTotalAmount() != null || itemsChanged) {
+            update.set("totalAmount", after.getTotalAmount());
+            changed = true;
+        }
+
+        if (!changed) {
+            throw new IllegalArgumentException("Patch does not change anything");
+        }
+
+        // updateFirst bypasses auditing and @Version, so both are maintained here
+        LocalDateTime now = LocalDateTime.now();
+        after.setLastModifiedDate(now);
+        after.setVersion(before.getVersion() != null ? before.getVersion() + 1 : 1);
+        update.set("lastModifiedDate", now).inc("version", 1);
+        return new Plan(after, update, before.getVersion());
+    }
+
+    // Applies edits, then removals, then additions to after.items; returns true when any applied
+    private boolean planItems(Receipt after, ReceiptPatch patch, Update update) {
+        List<ReceiptPatch.ItemEdit> edits = nonNull(patch.getEditItems());
+        List<String> removals = nonNull(patch.getRemoveItems());
+        List<ReceiptItem> additions = nonNull(patch.getAddItems());
+        if (edits.isEmpty() && removals.isEmpty() && additions.isEmpty()) {
+            return false;
+        }
+
+        List<ReceiptItem> items = after.getItems() != null ? after.getItems() : new ArrayList<>();
+        after.setItems(items);
+
+        Set<Integer> edited = new HashSet<>();
+        for (ReceiptPatch.ItemEdit edit : edits) {
+            if (edit.getIndex() == null || edit.getIndex() < 0 || edit.getIndex() >= items.size()) {
+                throw new IllegalArgumentException("No item at index " + edit.getIndex());
+            }
+            ReceiptItem item = items.get(edit.getIndex());
+            if (edit.getName() != null) {
+                item.setName(edit.getName());
+                item.setProductId(null);
+                itemNameCanonicalizer.canonicalize(List.of(item));
+            }
+            if (edit.getPrice() != null) item.setPrice(edit.getPrice());
+            if (edit.getQuantity() != null) item.setQuantity(edit.getQuantity());
+            if (edit.getCategory() != null) item.setCategory(edit.getCategory());
+            edited.add(edit.getIndex());
+        }
+
+        // Names are matched as stored, i.e. canonicalized
+        Set<String> removedNames = new HashSet<>(removals);
+        int sizeBeforeRemoval = items.size();
+        items.removeIf(item -> removedNames.contains(item.getName()));
+        boolean removed = items.size() < sizeBeforeRemoval;
+
+        List<ReceiptItem> added = new ArrayList<>(additions.size());
+        for (ReceiptItem addition : additions) {
+            ReceiptItem item = new ReceiptItem(addition.getName(), addition.getPrice(), addition.getQuantity());
+            if (addition.getCategory() != null) {
+                item.setCategory(addition.getCategory());
+            }
+            added.add(item);
+        }
+        itemNameCanonicalizer.canonicalize(added);
+        items.addAll(added);
+
+        if (!removed && added.isEmpty()) {
+            for (int index : edited) {
+                update.set("items." + index, items.get(index));
+            }
+        } else if (edited.isEmpty() && !removed) {
+            update.push("items").each(added.toArray());
+        } else if (edited.isEmpty() && added.isEmpty()) {
+            update.pull("items", Query.query(Criteria.where("name").in(removedNames)));
+        } else {
+            update.set("items", items);
+        }
+        return !edited.isEmpty() || removed || !added.isEmpty();
+    }
+
+    // Shallow copy of the receipt with its own item list and items, so planning leaves before intact
+    static Receipt copyOf(Receipt receipt) {
+        Receipt copy = new Receipt(receipt.getFilename(), receipt.getImageUrl(), receipt.getExtractedText(),
+                null, receipt.getTotalAmount(), receipt.getStore());
+        copy.setId(receipt.getId());
+        copy.setUserId(receipt.getUserId());
+        copy.setCategory(receipt.getCategory());
+        copy.setContentHash(receipt.getContentHash());
+        copy.setImageRef(receipt.getImageRef());
+        copy.setImageContentType(receipt.getImageContentType());
+        copy.setTextRef(receipt.getTextRef());
+        copy.setCreatedDate(receipt.getCreatedDate());
+        copy.setLastModifiedDate(receipt.getLastModifiedDate());
+        copy.setVersion(receipt.getVersion());
+        if (receipt.getItems() != null) {
+            List<ReceiptItem> items = new ArrayList<>(receipt.getItems().size());
+            for (ReceiptItem item : receipt.getItems()) {
+                items.add(copyOf(item));
+            }
+            copy.setItems(items);
+        }
+        return copy;
+    }
+
+    private static ReceiptItem copyOf(ReceiptItem item) {
+        ReceiptItem copy = new ReceiptItem();
+        copy.setName(item.getName());
+        copy.setPrice(item.getPrice());
+        copy.setQuantity(item.getQuantity());
+        copy.setCategory(item.getCategory());
+        copy.setProductId(item.getProductId());
+        return copy;
+    }
+
+    private static <T> List<T> nonNull(List<T> list) {
+        return list != null ? list : List.of();
+    }
+}
@@ -0,0 +1,300 @@
+package com.snapcart.service;
+
+import com.snapcart.model.Receipt;
+import com.snapcart.model.ReceiptItem;
+import com.snapcart.repository.ReceiptRepository;
+import com.snapcart.util.SearchText;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * In-process inverted index over store and item names, used by receipt search. Each user's index
+ * maps words to the receipts containing them and trigrams to words, so a query word matches
+ * exactly, as a prefix, or within a small edit distance without scanning the collection. Like the
+ * analytics rollup, a user's index is built on first search and kept current by receipt writes.
+ */
+@Service
+public class ReceiptSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptSearchIndex.class);
+
+    private static final int EXACT_SCORE = 3;
+    private static final int PREFIX_SCORE = 2;
+    private static final int FUZZY_SCORE = 1;
+
+    // Best match first; among equal scores the higher (newer) ObjectId wins
+    private static final Comparator<Map.Entry<String, Integer>> BEST_FIRST = Map.Entry
+            .<String, Integer>comparingByValue()
+            .thenComparing(Map.Entry.comparingByKey())
+            .reversed();
+
+    @Autowired
+    private ReceiptRepository receiptRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${snapcart.search.max-users:1000}")
+    private int maxUsers;
+
+    // Caps how many words a short prefix like "c" expands to
+    @Value("${snapcart.search.max-prefix-terms:200}")
+    private int maxPrefixTerms;
+
+    // Access-ordered so the least recently used index is dropped first; guarded by this
+    private Map<String, UserIndex> indexes;
+
+    private Timer searchTimer;
+
+    @PostConstruct
+    public void init() {
+        indexes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserIndex> eldest) {
+                return size() > maxUsers;
+            }
+        };
+        searchTimer = Timer.builder("snapcart.search.duration")
+                .description("Time to resolve a search query against a loaded index")
+                .register(meterRegistry);
+    }
+
+    // Ids of the user's best matching receipts, best first; every query word has to match
+    public List<String> search(String userId, String query, int limit) {
+        List<String> words = SearchText.tokens(query);
+        if (words.isEmpty()) {
+            return Collections.emptyList();
+        }
+        UserIndex index = load(userId);
+        return searchTimer.record(() -> {
+            synchronized (index) {
+                return index.search(words, limit);
+            }
+        });
+    }
+
+    // Keeps loaded indexes in step with a write; before/after are null on create/delete
+    public void record(Receipt before, Receipt after) {
+        UserIndex index = existing(after != null ? after.getUserId() : before.getUserId());
+        if (index == null) {
+            return;
+        }
+        synchronized (index) {
+            if (!index.loaded) {
+                return;
+            }
+            if (before != null) {
+                index.remove(before.getId());
+            }
+            if (after != null) {
+                index.add(after);
+            }
+        }
+    }
+
+    // Drops every index; each is rebuilt on its user's next search
+    public synchronized void clear() {
+        indexes.clear();
+    }
+
+    // Drops one user's index, e.g. after another instance wrote their receipts
+    public synchronized void evict(String userId) {
+        indexes.remove(userId);
+    }
+
+    private synchronized UserIndex existing(String userId) {
+        return indexes.get(userId);
+    }
+
+    // Same build/write race as the analytics rollup: a write landing mid-build may be indexed twice, harmlessly
+    private UserIndex load(String userId) {
+        UserIndex index;
+        synchronized (this) {
+            index = indexes.computeIfAbsent(userId, id -> new UserIndex());
+        }
+        synchronized (index) {
+            if (!index.loaded) {
+                long start = System.currentTimeMillis();
+                try (Stream<Receipt> receipts = receiptRepository.streamForSearch(userId)) {
+                    receipts.forEach(index::add);
+                }
+                index.loaded = true;
+                log.debug("Built search index for user {} from {} receipts in {} ms",
+                        userId, index.termsByReceipt.size(), System.currentTimeMillis() - start);
+            }
+        }
+        return index;
+    }
+
+    // Substitutions, insertions, deletions or transpositions tolerated for a query word of this length
+    private static int maxEdits(int length) {
+        if (length <= 3) return 0;
+        return length <= 7 ? 1 : 2;
+    }
+
+    // One user's index; guarded by its own monitor
+    private class UserIndex {
+        private boolean loaded;
+        private final Map<String, String[]> termsByReceipt = new HashMap<>();
+        // Sorted so a prefix is a contiguous range of words
+        private final NavigableMap<String, Set<String>> receiptsByTerm = new TreeMap<>();
+        private final Map<String, Set<String>> termsByTrigram = new HashMap<>();
+
+        private void add(Receipt receipt) {
+            if (receipt.getId() == null) {
+                return;
+            }
+            remove(receipt.getId());
+
+            Set<String> terms = new LinkedHashSet<>(SearchText.tokens(receipt.getStore()));
+            if (receipt.getItems() != null) {
+                for (ReceiptItem item : receipt.getItems()) {
+                    terms.addAll(SearchText.tokens(item.getName()));
+                }
+            }
+            if (terms.isEmpty()) {
+                return;
+            }
+
+            termsByReceipt.put(receipt.getId(), terms.toArray(new String[0]));
+            for (String term : terms) {
+                Set<String> receipts = receiptsByTerm.get(term);
+                if (receipts == null) {
+                    receipts = new HashSet<>();
+                    receiptsByTerm.put(term, receipts);
+                    for (String trigram : SearchText.trigrams(term)) {
+                        termsByTrigram.computeIfAbsent(trigram, t -> new HashSet<>()).add(term);
+                    }
+                }
+                receipts.add(receipt.getId());
+            }
+        }
+
+        private void remove(String receiptId) {
+            String[] terms = termsByReceipt.remove(receiptId);
+            if (terms == null) {
+                return;
+            }
+            for (String term : terms) {
+                Set<String> receipts = receiptsByTerm.get(term);
+                receipts.remove(receiptId);
+                if (receipts.isEmpty()) {
+                    receiptsByTerm.remove(term);
+                    for (String trigram : SearchText.trigrams(term)) {
+                        Set<String> gramTerms = termsByTrigram.get(trigram);
+                        gramTerms.remove(term);
+                        if (gramTerms.isEmpty()) {
+                            termsByTrigram.remove(trigram);
+                        }
+                    }
+                }
+            }
+        }
+
+        private List<String> search(List<String> words, int limit) {
+            List<Map<String, Integer>> matches = new ArrayList<>(words.size());
+            int driver = 0;
+            long driverPostings = Long.MAX_VALUE;
+            for (String word : words) {
+                Map<String, Integer> terms = matchingTerms(word);
+                if (terms.isEmpty()) {
+                    return Collections.emptyList();
+                }
+                long postings = 0;
+                for (String term : terms.keySet()) {
+                    postings += receiptsByTerm.get(term).size();
+                }
+                if (postings < driverPostings) {
+                    driver = matches.size();
+                    driverPostings = postings;
+                }
+                matches.add(terms);
+            }
+
+            // Candidates come from the most selective word; the other words are checked per receipt
+            Map<String, Integer> scores = new HashMap<>();
+            for (Map.Entry<String, Integer> match : matches.get(driver).entrySet()) {
+                for (String receiptId : receiptsByTerm.get(match.getKey())) {
+                    scores.merge(receiptId, match.getValue(), Math::max);
+                }
+            }
+
+            PriorityQueue<Map.Entry<String, Integer>> best = new PriorityQueue<>(limit + 1, BEST_FIRST.reversed());
+            for (Map.Entry<String, Integer> candidate : scores.entrySet()) {
+                int score = candidate.getValue();
+                String[] receiptTerms = termsByReceipt.get(candidate.getKey());
+                for (int i = 0; i < matches.size() && score > 0; i++) {
+                    if (i != driver) {
+                        int wordScore = bestScore(receiptTerms, matches.get(i));
+                        score = wordScore > 0 ? score + wordScore : 0;
+                    }
+                }
+                if (score > 0) {
+                    best.add(Map.entry(candidate.getKey(), score));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+
+            List<Map.Entry<String, Integer>> ranked = new ArrayList<>(best);
+            ranked.sort(BEST_FIRST);
+            List<String> receiptIds = new ArrayList<>(ranked.size());
+            for (Map.Entry<String, Integer> entry : ranked) {
+                receiptIds.add(entry.getKey());
+            }
+            return receiptIds;
+        }
+
+        // Indexed words matching the query word, scored exact > prefix > fuzzy
+        private Map<String, Integer> matchingTerms(String word) {
+            Map<String, Integer> terms = new HashMap<>();
+            for (String term : receiptsByTerm.subMap(word, true, word + Character.MAX_VALUE, false).keySet()) {
+                terms.put(term, term.equals(word) ? EXACT_SCORE : PREFIX_SCORE);
+                if (terms.size() >= maxPrefixTerms) {
+                    break;
+                }
+            }
+
+            int maxEdits = maxEdits(word.length());
+            if (maxEdits == 0) {
+                return terms;
+            }
+            // A substitution, insertion or deletion breaks at most three trigrams and swapping two adjacent
+            // letters four, so a close word shares all but 4 * maxEdits of them
+            Set<String> trigrams = SearchText.trigrams(word);
+            int requiredShared = Math.max(1, trigrams.size() - 4 * maxEdits);
+            Map<String, Integer> shared = new HashMap<>();
+            for (String trigram : trigrams) {
+                for (String term : termsByTrigram.getOrDefault(trigram, Collections.emptySet())) {
+                    shared.merge(term, 1, Integer::sum);
+                }
+            }
+            for (Map.Entry<String, Integer> candidate : shared.entrySet()) {
+                String term = candidate.getKey();
+                if (candidate.getValue() >= requiredShared && !terms.containsKey(term) &&
+                        SearchText.editDistance(word, term, maxEdits) <= maxEdits) {
+                    terms.put(term, FUZZY_SCORE);
+                }
+            }
+            return terms;
+        }
+
+        private int bestScore(String[] receiptTerms, Map<String, Integer> wordMatches) {
+            int best = 0;
+            for (String term : receiptTerms) {
+                best = Math.max(best, wordMatches.getOrDefault(term, 0));
+            }
+            return best;
+        }
+    }
+}
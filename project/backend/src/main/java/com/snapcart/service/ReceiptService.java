@@ -1,15 +1,46 @@
 package com.snapcart.service;
 
+import com.mongodb.bulk.BulkWriteResult;
+import com.snapcart.model.CursorPage;
 import com.snapcart.model.Receipt;
+import com.snapcart.model.ReceiptBulkRequest;
+import com.snapcart.model.ReceiptBulkResult;
+import com.snapcart.model.ReceiptPatch;
+import com.snapcart.model.ReceiptCursor;
+import com.snapcart.model.ReceiptSummary;
 import com.snapcart.model.ReceiptItem;
 import com.snapcart.repository.ReceiptRepository;
+import com.snapcart.storage.BlobStore;
+import com.snapcart.storage.StoredBlob;
+import com.snapcart.util.Hashing;
+import com.snapcart.util.ImageTypes;
+import com.snapcart.util.StageTimers;
+import com.snapcart.util.ThreadAllocation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Service
 public class ReceiptService {
@@ -19,47 +50,473 @@ public class ReceiptService {
     
     @Autowired
     private OCRService ocrService;
+    
+    @Autowired
+    private AnalyticsRollupService analyticsRollupService;
+    
+    @Autowired
+    private RecentReceiptsBuffer recentReceiptsBuffer;
+    
+    @Autowired
+    private AnalyticsService analyticsService;
+    
+    @Autowired
+    private BlobStore blobStore;
+    
+    @Autowired
+    private ReceiptTextStore receiptTextStore;
+
+    @Autowired
+    private ReceiptSearchIndex receiptSearchIndex;
+
+    @Autowired
+    private ItemNameCanonicalizer itemNameCanonicalizer;
+
+    @Autowired
+    private AnalyticsStreamService analyticsStreamService;
+
+    @Autowired
+    private ReceiptChangeFeed receiptChangeFeed;
+
+    @Autowired
+    private ReceiptPatcher receiptPatcher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${snapcart.receipts.deduplicate:true}")
+    private boolean deduplicate;
 
-    public Receipt processReceipt(MultipartFile file) throws IOException {
+    @Value("${snapcart.receipts.max-page-size:100}")
+    private int maxPageSize;
+
+    @Value("${snapcart.search.max-results:50}")
+    private int maxSearchResults;
+
+    @Value("${snapcart.receipts.max-bulk-size:1000}")
+    private int maxBulkSize;
+
+    private StageTimers stageTimers;
+    private DistributionSummary uploadAllocatedBytes;
+    private DistributionSummary itemsParsed;
+    private Counter regularParses;
+    private Counter fallbackParses;
+
+    @PostConstruct
+    public void registerMetrics() {
+        // Time per ingestion step: hash, dedupe, ocr, store-image, parse-items, canonicalize-items, ...
+        stageTimers = new StageTimers(meterRegistry, "snapcart.receipt.stage", "stage");
+        // Only the processing thread is counted; the OCR call runs on an ocr-call thread and is
+        // reported as snapcart.ocr.call.allocated, so an upload's total is the sum of the two
+        uploadAllocatedBytes = DistributionSummary.builder("snapcart.upload.allocated")
+                .baseUnit("bytes")
+                .description("Heap allocated on the processing thread for one upload, excluding the OCR call")
+                .register(meterRegistry);
+        itemsParsed = DistributionSummary.builder("snapcart.receipt.items.parsed")
+                .description("Items parsed per receipt")
+                .register(meterRegistry);
+        // Fallback rate = fallback / (regular + fallback)
+        regularParses = Counter.builder("snapcart.receipt.parses").tag("mode", "regular")
+                .register(meterRegistry);
+        fallbackParses = Counter.builder("snapcart.receipt.parses").tag("mode", "fallback")
+                .description("Receipts where no line matched the item layout and bare prices were used")
+                .register(meterRegistry);
+    }
+
+    public Receipt processReceipt(String userId, String filename, String contentType, Path imagePath)
+            throws IOException {
+        long allocatedBefore = ThreadAllocation.currentThreadAllocatedBytes();
+        try {
+            Receipt receipt = prepareReceipt(userId, filename, contentType, imagePath);
+            return receipt.getId() != null ? receipt : saveNewReceipt(receipt);
+        } finally {
+            if (allocatedBefore >= 0) {
+                uploadAllocatedBytes.record(ThreadAllocation.currentThreadAllocatedBytes() - allocatedBefore);
+            }
+        }
+    }
+
+    /**
+     * Hashes, OCRs and parses an image and stores it in the blob store, without saving a receipt.
+     * Returns the user's existing receipt for an exact re-upload, otherwise an unsaved receipt (null id).
+     */
+    Receipt prepareReceipt(String userId, String filename, String contentType, Path imagePath) throws IOException {
+        String contentHash = stageTimers.record("hash", () -> Hashing.sha256Hex(imagePath));
+        
+        // Exact re-upload of an image this user already has
+        Optional<Receipt> duplicate = stageTimers.record("dedupe", () -> findDuplicate(userId, contentHash));
+        if (duplicate.isPresent()) {
+            return receiptTextStore.hydrate(duplicate.get());
+        }
+        
         // Extract text from image
-        String extractedText = ocrService.extractTextFromImage(file);
+        String extractedText = stageTimers.record("ocr",
+                () -> ocrService.extractTextFromImage(imagePath, contentHash));
         
+        String imageRef = stageTimers.record("store-image", () -> blobStore.put(imagePath));
+        return buildReceipt(userId, filename, contentHash, extractedText, imageRef, contentType);
+    }
+
+    private Optional<Receipt> findDuplicate(String userId, String contentHash) {
+        return deduplicate ?
+                receiptRepository.findFirstByUserIdAndContentHash(userId, contentHash) :
+                Optional.empty();
+    }
+
+    // Parses OCR text into an unsaved receipt; shared with ReactiveReceiptService
+    Receipt buildReceipt(String userId, String filename, String contentHash, String extractedText,
+                         String imageRef, String imageContentType) {
         // Parse items from text
-        List<ReceiptItem> items = ocrService.parseReceiptItems(extractedText);
+        ReceiptTextParser.ParseResult parsed = stageTimers.record("parse-items",
+                () -> ocrService.parseReceipt(extractedText));
+        List<ReceiptItem> items = parsed.getItems();
+        itemsParsed.record(items.size());
+        (parsed.isFallback() ? fallbackParses : regularParses).increment();
+        
+        // Fold OCR variants of a name into one canonical item
+        stageTimers.record("canonicalize-items", () -> itemNameCanonicalizer.canonicalize(items));
         
         // Extract store name
-        String storeName = ocrService.extractStoreName(extractedText);
+        String storeName = stageTimers.record("store-name", () -> ocrService.extractStoreName(extractedText));
         
         // Calculate total
         Double totalAmount = ocrService.calculateTotal(items);
         
         // Create receipt entity
         Receipt receipt = new Receipt(
-            file.getOriginalFilename(),
-            null, // imageUrl - could be implemented with file storage service
+            filename,
+            null, // imageUrl - the image is served from /receipts/{id}/image
             extractedText,
             items,
             totalAmount,
             storeName
         );
+        receipt.setUserId(userId);
+        receipt.setContentHash(contentHash);
+        receipt.setImageRef(imageRef);
+        receipt.setImageContentType(ImageTypes.sanitize(imageContentType));
+        return receipt;
+    }
+
+    private Receipt saveNewReceipt(Receipt receipt) {
+        // Keep the raw OCR text out of the receipts collection's working set
+        String extractedText = stageTimers.record("externalize-text", () -> receiptTextStore.externalize(receipt));
         
-        return receiptRepository.save(receipt);
+        Receipt savedReceipt;
+        try {
+            savedReceipt = stageTimers.record("save", () -> receiptRepository.save(receipt));
+        } catch (DuplicateKeyException e) {
+            // A concurrent upload of the same image won the unique userId_contentHash index
+            Optional<Receipt> winner = findDuplicate(receipt.getUserId(), receipt.getContentHash());
+            if (winner.isEmpty()) {
+                throw e;
+            }
+            return receiptTextStore.hydrate(winner.get());
+        }
+        stageTimers.record("read-models", () -> {
+            recordChange(null, savedReceipt);
+            return null;
+        });
+        savedReceipt.setExtractedText(extractedText);
+        return savedReceipt;
+    }
+
+    // Inserts prepared receipts with a single insertMany; results are in input order
+    List<Receipt> saveNewReceipts(List<Receipt> receipts) {
+        if (receipts.isEmpty()) {
+            return receipts;
+        }
+
+        List<String> extractedTexts = new ArrayList<>(receipts.size());
+        for (Receipt receipt : receipts) {
+            extractedTexts.add(stageTimers.record("externalize-text", () -> receiptTextStore.externalize(receipt)));
+        }
+        
+        // Ids are assigned up front so a failed insert shows which receipts it got to
+        receipts.forEach(receipt -> receipt.setId(new ObjectId().toHexString()));
+        List<Receipt> savedReceipts;
+        try {
+            savedReceipts = stageTimers.record("insert-batch", () -> receiptRepository.insert(receipts));
+        } catch (DuplicateKeyException e) {
+            return finishInterruptedInsert(receipts, extractedTexts);
+        }
+        for (int i = 0; i < savedReceipts.size(); i++) {
+            Receipt savedReceipt = savedReceipts.get(i);
+            recordChange(null, savedReceipt);
+            savedReceipt.setExtractedText(extractedTexts.get(i));
+        }
+        return savedReceipts;
+    }
+
+    // The ordered insert stopped at an image a concurrent upload had saved; the rest go one by one
+    private List<Receipt> finishInterruptedInsert(List<Receipt> receipts, List<String> extractedTexts) {
+        List<Receipt> savedReceipts = new ArrayList<>(receipts.size());
+        for (int i = 0; i < receipts.size(); i++) {
+            Receipt receipt = receipts.get(i);
+            Optional<Receipt> inserted = receiptRepository.findById(receipt.getId());
+            if (inserted.isPresent()) {
+                recordChange(null, inserted.get());
+                inserted.get().setExtractedText(extractedTexts.get(i));
+                savedReceipts.add(inserted.get());
+            } else {
+                receipt.setExtractedText(extractedTexts.get(i));
+                savedReceipts.add(saveNewReceipt(receipt));
+            }
+        }
+        return savedReceipts;
     }
 
-    public List<Receipt> getAllReceipts() {
-        return receiptRepository.findAll();
+    public CursorPage<Receipt> getReceiptPage(String userId, String cursor, int limit) {
+        CursorPage<Receipt> page = toPage(cursor, limit,
+                (after, size) -> receiptRepository.findPage(userId, after, size), ReceiptCursor::after);
+        page.getItems().forEach(receiptTextStore::hydrate);
+        return page;
     }
 
-    public Optional<Receipt> getReceiptById(String id) {
-        return receiptRepository.findById(id);
+    public CursorPage<ReceiptSummary> getReceiptSummaryPage(String userId, String cursor, int limit) {
+        return toPage(cursor, limit, (after, size) -> receiptRepository.findSummaryPage(userId, after, size),
+                summary -> new ReceiptCursor(summary.getCreatedDate(), summary.getId()));
     }
 
-    public void deleteReceipt(String id) {
-        receiptRepository.deleteById(id);
+    // Caller must close the stream; it holds an open Mongo cursor
+    public Stream<Receipt> streamAllReceipts(String userId) {
+        return receiptRepository.streamAllNewestFirst(userId).map(receiptTextStore::hydrate);
     }
 
-    public Receipt updateReceipt(String id, Receipt receipt) {
+    // Caller must close the stream; it holds an open Mongo cursor
+    public Stream<ReceiptSummary> streamAllReceiptSummaries(String userId) {
+        return receiptRepository.streamSummariesNewestFirst(userId);
+    }
+
+    // Ranked by the in-process search index, then read from Mongo by id
+    public List<Receipt> searchReceipts(String userId, String query, int limit) {
+        List<String> ids = receiptSearchIndex.search(userId, query, clampSearchLimit(limit));
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Receipt> receipts = inOrder(ids, receiptRepository.findByUserIdAndIdIn(userId, ids), Receipt::getId);
+        receipts.forEach(receiptTextStore::hydrate);
+        return receipts;
+    }
+
+    public List<ReceiptSummary> searchReceiptSummaries(String userId, String query, int limit) {
+        List<String> ids = receiptSearchIndex.search(userId, query, clampSearchLimit(limit));
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return inOrder(ids, receiptRepository.findSummariesByIds(userId, ids), ReceiptSummary::getId);
+    }
+
+    int clampSearchLimit(int limit) {
+        return Math.max(1, Math.min(limit, maxSearchResults));
+    }
+
+    // Puts rows fetched with $in back into the order of ids; ids deleted in the meantime are skipped
+    static <T> List<T> inOrder(List<String> ids, List<T> rows, Function<T, String> idOf) {
+        Map<String, T> byId = new HashMap<>();
+        for (T row : rows) {
+            byId.put(idOf.apply(row), row);
+        }
+        List<T> ordered = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            T row = byId.get(id);
+            if (row != null) {
+                ordered.add(row);
+            }
+        }
+        return ordered;
+    }
+
+    private <T> CursorPage<T> toPage(String cursor, int limit,
+                                     BiFunction<ReceiptCursor, Integer, List<T>> fetch,
+                                     Function<T, ReceiptCursor> cursorOf) {
+        int pageSize = pageSize(limit);
+        // Read one extra row to find out whether another page exists
+        List<T> rows = fetch.apply(decodeCursor(cursor), pageSize + 1);
+        return toPage(rows, pageSize, cursorOf);
+    }
+
+    int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, maxPageSize));
+    }
+
+    static ReceiptCursor decodeCursor(String cursor) {
+        return cursor != null && !cursor.isEmpty() ? ReceiptCursor.decode(cursor) : null;
+    }
+
+    // rows holds up to pageSize + 1 entries; the extra one only signals that there is a next page
+    static <T> CursorPage<T> toPage(List<T> rows, int pageSize, Function<T, ReceiptCursor> cursorOf) {
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
+        }
+        
+        List<T> page = rows.subList(0, pageSize);
+        return new CursorPage<>(page, cursorOf.apply(page.get(pageSize - 1)).encode());
+    }
+
+    public Optional<Receipt> getReceiptById(String userId, String id) {
+        return receiptRepository.findByIdAndUserId(id, userId).map(receiptTextStore::hydrate);
+    }
+
+    public Optional<StoredBlob> getReceiptImage(String userId, String id) throws IOException {
+        Optional<Receipt> receipt = receiptRepository.findImageRefByIdAndUserId(id, userId);
+        if (receipt.isEmpty() || receipt.get().getImageRef() == null) {
+            return Optional.empty();
+        }
+        return blobStore.get(receipt.get().getImageRef())
+                .map(blob -> blob.withContentType(receipt.get().getImageContentType()));
+    }
+
+    // Receipts belonging to other users are left alone
+    public void deleteReceipt(String userId, String id) {
+        Optional<Receipt> existing = receiptRepository.findByIdAndUserId(id, userId);
+        existing.ifPresent(receipt -> {
+            receiptRepository.deleteById(id);
+            recordChange(receipt, null);
+        });
+    }
+
+    // Empty when the user has no receipt with this id
+    public Optional<Receipt> updateReceipt(String userId, String id, Receipt receipt) {
+        Optional<Receipt> existing = receiptRepository.findByIdAndUserId(id, userId);
+        if (existing.isEmpty()) {
+            return Optional.empty();
+        }
         receipt.setId(id);
-        return receiptRepository.save(receipt);
+        receipt.setUserId(userId);
+        keepServerFields(existing.get(), receipt);
+        String extractedText = receiptTextStore.externalize(receipt);
+        Receipt savedReceipt = receiptRepository.save(receipt);
+        recordChange(existing.get(), savedReceipt);
+        savedReceipt.setExtractedText(extractedText);
+        return Optional.of(receiptTextStore.hydrate(savedReceipt));
+    }
+
+    /**
+     * Copies what a client cannot set from the stored receipt into a PUT body. Without a version the
+     * replacement would be saved as a new document; with the client's version a stale copy fails.
+     */
+    static void keepServerFields(Receipt existing, Receipt replacement) {
+        replacement.setCreatedDate(existing.getCreatedDate());
+        replacement.setContentHash(existing.getContentHash());
+        replacement.setImageRef(existing.getImageRef());
+        replacement.setImageContentType(existing.getImageContentType());
+        // New text gets its own textRef when it is externalized
+        if (replacement.getExtractedText() == null) {
+            replacement.setExtractedText(existing.getExtractedText());
+            replacement.setTextRef(existing.getTextRef());
+        } else {
+            replacement.setTextRef(null);
+        }
+        if (replacement.getVersion() == null) {
+            replacement.setVersion(existing.getVersion());
+        }
+    }
+
+    /**
+     * Applies a patch as one targeted update guarded by the receipt's version. Empty when the user
+     * has no receipt with this id; OptimisticLockingFailureException when it changed since the
+     * version the patch names, or between reading and writing it here.
+     */
+    public Optional<Receipt> patchReceipt(String userId, String id, ReceiptPatch patch) {
+        Optional<Receipt> existing = receiptRepository.findByIdAndUserId(id, userId);
+        if (existing.isEmpty()) {
+            return Optional.empty();
+        }
+        ReceiptPatcher.Plan plan = receiptPatcher.plan(existing.get(), patch);
+        if (!receiptRepository.updateAtVersion(userId, id, plan.getExpectedVersion(), plan.getUpdate())) {
+            throw new OptimisticLockingFailureException("Receipt " + id + " was modified concurrently");
+        }
+        recordChange(existing.get(), plan.getAfter());
+        return Optional.of(receiptTextStore.hydrate(plan.getAfter()));
+    }
+
+    /**
+     * Reassigns categories and deletes receipts in a single bulkWrite. Read models are updated from
+     * receipts read just before the write, so an edit landing in between is missed by them until
+     * the next edit of that receipt.
+     */
+    public ReceiptBulkResult bulkUpdate(String userId, ReceiptBulkRequest request) {
+        Map<String, String> categoryById = categoriesById(request);
+        Set<String> deleteIds = deleteIds(request);
+        categoryById.keySet().removeAll(deleteIds);
+        checkBulkSize(categoryById.size() + deleteIds.size());
+
+        List<String> ids = new ArrayList<>(categoryById.keySet());
+        ids.addAll(deleteIds);
+        List<Receipt> before = receiptRepository.findByUserIdAndIdIn(userId, ids);
+
+        BulkWriteResult result = receiptRepository.bulkWrite(userId, idsByCategory(categoryById), deleteIds);
+        for (Receipt receipt : before) {
+            recordChange(receipt, bulkOutcome(receipt, categoryById));
+        }
+        return new ReceiptBulkResult(result.getMatchedCount(), result.getModifiedCount(), result.getDeletedCount());
+    }
+
+    // Id -> category; when an id is listed more than once, the last entry wins
+    static Map<String, String> categoriesById(ReceiptBulkRequest request) {
+        Map<String, String> categoryById = new LinkedHashMap<>();
+        if (request.getRecategorize() == null) {
+            return categoryById;
+        }
+        for (ReceiptBulkRequest.CategoryChange change : request.getRecategorize()) {
+            if (change.getCategory() == null || change.getCategory().isBlank()) {
+                throw new IllegalArgumentException("Category must not be blank");
+            }
+            if (change.getIds() != null) {
+                for (String id : change.getIds()) {
+                    categoryById.put(id, change.getCategory());
+                }
+            }
+        }
+        return categoryById;
+    }
+
+    static Set<String> deleteIds(ReceiptBulkRequest request) {
+        return request.getDeleteIds() != null ? new LinkedHashSet<>(request.getDeleteIds()) : new LinkedHashSet<>();
+    }
+
+    void checkBulkSize(int operations) {
+        if (operations == 0) {
+            throw new IllegalArgumentException("Bulk request has no operations");
+        }
+        if (operations > maxBulkSize) {
+            throw new IllegalArgumentException("Bulk request has " + operations + " operations, more than " + maxBulkSize);
+        }
+    }
+
+    static Map<String, List<String>> idsByCategory(Map<String, String> categoryById) {
+        Map<String, List<String>> idsByCategory = new LinkedHashMap<>();
+        categoryById.forEach((id, category) -> idsByCategory.computeIfAbsent(category, c -> new ArrayList<>()).add(id));
+        return idsByCategory;
+    }
+
+    // The receipt as the bulkWrite left it; null when it was deleted
+    static Receipt bulkOutcome(Receipt before, Map<String, String> categoryById) {
+        String category = categoryById.get(before.getId());
+        if (category == null) {
+            return null;
+        }
+        Receipt after = ReceiptPatcher.copyOf(before);
+        after.setCategory(category);
+        after.setLastModifiedDate(LocalDateTime.now());
+        after.setVersion(before.getVersion() != null ? before.getVersion() + 1 : 1);
+        return after;
+    }
+
+    // Keeps the in-memory read models in step with a write; before/after are null on create/delete
+    void recordChange(Receipt before, Receipt after) {
+        if (before == null) {
+            analyticsRollupService.recordCreated(after);
+        } else if (after == null) {
+            analyticsRollupService.recordDeleted(before);
+        } else {
+            analyticsRollupService.recordUpdated(before, after);
+        }
+        recentReceiptsBuffer.record(before, after);
+        receiptSearchIndex.record(before, after);
+        analyticsService.evictCachedAnalytics(after != null ? after.getUserId() : before.getUserId());
+        analyticsStreamService.record(before, after);
+        receiptChangeFeed.publish(before, after);
     }
 }
\ No newline at end of file
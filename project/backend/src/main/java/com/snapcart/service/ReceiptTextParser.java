@@ -0,0 +1,349 @@
+package com.snapcart.service;
+
+import com.snapcart.model.ReceiptItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Single-pass parser for OCR'd receipt text. It produces the same items and store name as the
+ * original regex-per-line implementation, but walks the text by index and only falls back to
+ * the (precompiled) item pattern for lines containing line-terminator characters other than
+ * {@code \n}, where hand matching would have to replicate {@code ^}/{@code $}/{@code .} rules.
+ * Stateless and safe to share between threads.
+ */
+public final class ReceiptTextParser {
+
+    private static final Pattern ITEM_PATTERN =
+            Pattern.compile("^([A-Za-z][A-Za-z0-9\\s\\-&']{2,30}).*?\\$?([0-9]+\\.?[0-9]*)$", Pattern.MULTILINE);
+
+    private static final int MAX_NAME_TAIL = 30;
+    private static final int STORE_NAME_LINES = 5;
+
+    public List<ReceiptItem> parseItems(String text) {
+        return parse(text).getItems();
+    }
+
+    public ParseResult parse(String text) {
+        boolean asciiFolding = asciiLowerCaseMatchesLocale();
+        List<ReceiptItem> items = new ArrayList<>();
+        // Filled only until the first regular item is found; used when no line matches the item layout
+        List<ReceiptItem> fallbackItems = new ArrayList<>();
+
+        int length = text.length();
+        int lineStart = 0;
+        while (lineStart <= length) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) lineEnd = length;
+
+            int start = lineStart;
+            int end = lineEnd;
+            while (start < end && text.charAt(start) <= ' ') start++;
+            while (end > start && text.charAt(end - 1) <= ' ') end--;
+
+            if (!isHeaderFooterLine(text, start, end, asciiFolding)) {
+                if (end - start >= 3) {
+                    ReceiptItem item = hasLineTerminator(text, start, end) ?
+                            matchItemWithPattern(text.substring(start, end)) :
+                            matchItem(text, start, end);
+                    if (item != null) {
+                        items.add(item);
+                    }
+                }
+                if (items.isEmpty()) {
+                    ReceiptItem item = matchFallbackItem(text, start, end);
+                    if (item != null) {
+                        fallbackItems.add(item);
+                    }
+                }
+            }
+
+            lineStart = lineEnd + 1;
+        }
+
+        return items.isEmpty() ? new ParseResult(fallbackItems, true) : new ParseResult(items, false);
+    }
+
+    public String extractStoreName(String text) {
+        int length = text.length();
+        int lineStart = 0;
+
+        // Usually store name is in the first few lines
+        for (int i = 0; i < STORE_NAME_LINES && lineStart <= length; i++) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) lineEnd = length;
+
+            int start = lineStart;
+            int end = lineEnd;
+            while (start < end && text.charAt(start) <= ' ') start++;
+            while (end > start && text.charAt(end - 1) <= ' ') end--;
+
+            int lineLength = end - start;
+            if (lineLength > 3 && lineLength < 50) {
+                // Equivalent of !line.matches(".*[0-9]+.*")
+                boolean numeric = !hasLineTerminator(text, start, end) && hasDigitRun(text, start, end, 1);
+                if (!numeric) {
+                    String line = text.substring(start, end);
+                    if (!line.toLowerCase().contains("receipt")) {
+                        return line;
+                    }
+                }
+            }
+
+            lineStart = lineEnd + 1;
+        }
+
+        return "Unknown Store";
+    }
+
+    // Hand-rolled equivalent of ITEM_PATTERN.matcher(line).find() for lines without terminators.
+    // The greedy name group takes the longest prefix that still leaves room for a price suffix,
+    // and the lazy gap then stops at the first position where "$?digits[.digits]" runs to the end.
+    private ReceiptItem matchItem(String text, int start, int end) {
+        if (!isAsciiLetter(text.charAt(start))) {
+            return null;
+        }
+
+        int nameEnd = start + 1;
+        while (nameEnd < end && nameEnd - start - 1 < MAX_NAME_TAIL && isNameChar(text.charAt(nameEnd))) {
+            nameEnd++;
+        }
+        if (nameEnd - start < 3) {
+            return null;
+        }
+
+        // Positions where the price suffix may start, in ascending order:
+        // [$] B+ '.' A*   starting in [bFrom, bTo]   (bDollar before it)
+        // [$] A+          starting in [aFrom, end-1] (aDollar before it)
+        int aFrom = end;
+        while (aFrom > start && isDigit(text.charAt(aFrom - 1))) aFrom--;
+        boolean hasA = aFrom < end;
+
+        int dot = aFrom - 1;
+        int bFrom = -1;
+        int bTo = -1;
+        if (dot > start && text.charAt(dot) == '.') {
+            int k = dot;
+            while (k > start && isDigit(text.charAt(k - 1))) k--;
+            if (k < dot) {
+                bFrom = k;
+                bTo = dot - 1;
+            }
+        }
+        int bDollar = bFrom > start && text.charAt(bFrom - 1) == '$' ? bFrom - 1 : -1;
+        int aDollar = hasA && aFrom > start && text.charAt(aFrom - 1) == '$' ? aFrom - 1 : -1;
+
+        int lastPriceStart = hasA ? end - 1 : bTo;
+        if (lastPriceStart < 0) {
+            return null;
+        }
+
+        int nameLimit = Math.min(nameEnd, lastPriceStart);
+        if (nameLimit - start < 3) {
+            return null;
+        }
+
+        int priceStart;
+        if (bDollar >= nameLimit) {
+            priceStart = bDollar;
+        } else if (bFrom >= 0 && bTo >= nameLimit) {
+            priceStart = Math.max(bFrom, nameLimit);
+        } else if (aDollar >= nameLimit) {
+            priceStart = aDollar;
+        } else {
+            priceStart = Math.max(aFrom, nameLimit);
+        }
+        if (text.charAt(priceStart) == '$') {
+            priceStart++;
+        }
+
+        return toItem(text.substring(start, nameLimit).trim(), text.substring(priceStart, end));
+    }
+
+    private ReceiptItem matchItemWithPattern(String line) {
+        Matcher itemMatcher = ITEM_PATTERN.matcher(line);
+        if (itemMatcher.find()) {
+            return toItem(itemMatcher.group(1).trim(), itemMatcher.group(2));
+        }
+        return null;
+    }
+
+    private ReceiptItem toItem(String itemName, String priceStr) {
+        try {
+            double price = Double.parseDouble(priceStr);
+            if (price > 0 && price < 1000) { // reasonable price range
+                return new ReceiptItem(itemName, price, 1);
+            }
+        } catch (NumberFormatException e) {
+            // Skip invalid prices
+        }
+        return null;
+    }
+
+    // Equivalent of finding "\$?([0-9]+\.[0-9]{2})" and naming the item after removing every match
+    private ReceiptItem matchFallbackItem(String text, int start, int end) {
+        StringBuilder name = null;
+        int copyFrom = start;
+        int priceStart = -1;
+        int priceEnd = -1;
+
+        int i = start;
+        while (i < end) {
+            int digitsFrom = text.charAt(i) == '$' ? i + 1 : i;
+            int j = digitsFrom;
+            while (j < end && isDigit(text.charAt(j))) j++;
+
+            if (j > digitsFrom && j + 2 < end && text.charAt(j) == '.'
+                    && isDigit(text.charAt(j + 1)) && isDigit(text.charAt(j + 2))) {
+                if (priceStart < 0) {
+                    priceStart = digitsFrom;
+                    priceEnd = j + 3;
+                    name = new StringBuilder(end - start);
+                }
+                name.append(text, copyFrom, i);
+                copyFrom = j + 3;
+                i = j + 3;
+            } else {
+                // Every start inside the same digit run ends at the same place, so skip it
+                i = Math.max(i + 1, j);
+            }
+        }
+
+        if (priceStart < 0) {
+            return null;
+        }
+
+        name.append(text, copyFrom, end);
+        String itemName = name.toString().trim();
+        if (itemName.length() <= 2) {
+            return null;
+        }
+        return toItem(itemName, text.substring(priceStart, priceEnd));
+    }
+
+    private boolean isHeaderFooterLine(String text, int start, int end, boolean asciiFolding) {
+        boolean ascii = true;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) >= 0x80) {
+                ascii = false;
+                break;
+            }
+        }
+
+        // Skip long numbers (like transaction IDs): ".*[0-9]{3,}.*"
+        boolean longNumber = hasDigitRun(text, start, end, 3) && !hasLineTerminator(text, start, end);
+
+        if (ascii && asciiFolding) {
+            return end - start < 3 || longNumber || containsHeaderFooterKeyword(text, start, end);
+        }
+
+        String lowerLine = text.substring(start, end).toLowerCase();
+        return lowerLine.contains("total") ||
+               lowerLine.contains("tax") ||
+               lowerLine.contains("change") ||
+               lowerLine.contains("cash") ||
+               lowerLine.contains("card") ||
+               lowerLine.contains("receipt") ||
+               lowerLine.contains("thank") ||
+               lowerLine.length() < 3 ||
+               longNumber;
+    }
+
+    // ASCII case-insensitive search for the header/footer keywords ("subtotal" is covered by "total")
+    private boolean containsHeaderFooterKeyword(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = (char) (text.charAt(i) | 0x20);
+            if (c == 't') {
+                if (regionEquals(text, i, end, "total") || regionEquals(text, i, end, "tax")
+                        || regionEquals(text, i, end, "thank")) {
+                    return true;
+                }
+            } else if (c == 'c') {
+                if (regionEquals(text, i, end, "change") || regionEquals(text, i, end, "cash")
+                        || regionEquals(text, i, end, "card")) {
+                    return true;
+                }
+            } else if (c == 'r') {
+                if (regionEquals(text, i, end, "receipt")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionEquals(String text, int from, int end, String lowerKeyword) {
+        int length = lowerKeyword.length();
+        if (end - from < length) {
+            return false;
+        }
+        for (int k = 0; k < length; k++) {
+            if ((text.charAt(from + k) | 0x20) != lowerKeyword.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasDigitRun(String text, int start, int end, int minRun) {
+        int run = 0;
+        for (int i = start; i < end; i++) {
+            if (isDigit(text.charAt(i))) {
+                if (++run >= minRun) return true;
+            } else {
+                run = 0;
+            }
+        }
+        return false;
+    }
+
+    // Characters that '.', '^' and '$' treat as line terminators besides '\n'
+    private static boolean hasLineTerminator(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // String.toLowerCase() is locale sensitive (e.g. Turkish dotless i); only take the ASCII
+    // shortcut when the default locale lowercases A-Z the plain way
+    private static boolean asciiLowerCaseMatchesLocale() {
+        return "ABCDEFGHIJKLMNOPQRSTUVWXYZ".toLowerCase(Locale.getDefault())
+                .equals("abcdefghijklmnopqrstuvwxyz");
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    // [A-Za-z0-9\s\-&'] where \s is [ \t\n\x0B\f\r]
+    private static boolean isNameChar(char c) {
+        return isAsciiLetter(c) || isDigit(c) || c == ' ' || c == '\t' || c == '\n' || c == '\u000B'
+                || c == '\f' || c == '\r' || c == '-' || c == '&' || c == '\'';
+    }
+
+    public static final class ParseResult {
+        private final List<ReceiptItem> items;
+        private final boolean fallback;
+
+        private ParseResult(List<ReceiptItem> items, boolean fallback) {
+            this.items = items;
+            this.fallback = fallback;
+        }
+
+        public List<ReceiptItem> getItems() { return items; }
+
+        // True when no line matched the item layout and items came from bare prices instead
+        public boolean isFallback() { return fallback; }
+    }
+}
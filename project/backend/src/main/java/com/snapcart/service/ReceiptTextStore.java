@@ -0,0 +1,60 @@
+package com.snapcart.service;
+
+import com.snapcart.model.Receipt;
+import com.snapcart.storage.BlobStore;
+import com.snapcart.storage.StoredBlob;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+// Moves raw OCR text out of receipt documents into the blob store and back
+@Service
+public class ReceiptTextStore {
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Value("${snapcart.storage.externalize-text:true}")
+    private boolean externalizeText;
+
+    // Replaces inline extractedText with a textRef; returns the text that was moved out
+    public String externalize(Receipt receipt) {
+        String text = receipt.getExtractedText();
+        if (!externalizeText || text == null) {
+            return text;
+        }
+
+        try {
+            receipt.setTextRef(blobStore.put(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store receipt text", e);
+        }
+        receipt.setExtractedText(null);
+        return text;
+    }
+
+    public Receipt hydrate(Receipt receipt) {
+        if (receipt.getExtractedText() != null || receipt.getTextRef() == null) {
+            return receipt;
+        }
+
+        try {
+            Optional<StoredBlob> blob = blobStore.get(receipt.getTextRef());
+            if (blob.isPresent()) {
+                try (InputStream in = blob.get().openStream()) {
+                    receipt.setExtractedText(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read receipt text " + receipt.getTextRef(), e);
+        }
+        return receipt;
+    }
+}
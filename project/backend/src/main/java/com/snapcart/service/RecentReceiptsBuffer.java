@@ -0,0 +1,141 @@
+package com.snapcart.service;
+
+import com.snapcart.model.Receipt;
+import com.snapcart.model.ReceiptSummary;
+import com.snapcart.repository.ReceiptRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Each user's newest receipts (same order as the userId/createdDate/id index), kept up to date on
+ * writes so the dashboard's recent-receipts card does not touch Mongo. A buffer always holds an exact
+ * prefix of its user's newest-first ordering; requests for more than it holds fall through to the
+ * index. Buffers are primed on first use and only the most recently used users are kept.
+ */
+@Service
+public class RecentReceiptsBuffer {
+
+    private static final Comparator<ReceiptSummary> NEWEST_FIRST = Comparator
+            .comparing(ReceiptSummary::getCreatedDate, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+            .thenComparing(ReceiptSummary::getId, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .reversed();
+
+    @Autowired
+    private ReceiptRepository receiptRepository;
+
+    @Value("${snapcart.analytics.recent-buffer-size:50}")
+    private int capacity;
+
+    @Value("${snapcart.analytics.recent-buffer-max-users:1000}")
+    private int maxUsers;
+
+    // Access-ordered so the least recently used buffer is dropped first; guarded by this
+    private Map<String, Buffer> buffers;
+
+    @PostConstruct
+    public void init() {
+        buffers = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Buffer> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    public Optional<List<ReceiptSummary>> latest(String userId, int limit) {
+        Buffer buffer = load(userId);
+        synchronized (buffer) {
+            if (limit <= buffer.newest.size() || buffer.exhaustive) {
+                return Optional.of(new ArrayList<>(buffer.newest.subList(0, Math.min(limit, buffer.newest.size()))));
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Users without a buffer are skipped; theirs is primed from the index on first read
+    public void record(Receipt before, Receipt after) {
+        Buffer buffer = existing(after != null ? after.getUserId() : before.getUserId());
+        if (buffer == null) {
+            return;
+        }
+        synchronized (buffer) {
+            if (!buffer.loaded) {
+                return;
+            }
+            if (before != null) {
+                buffer.newest.removeIf(summary -> summary.getId().equals(before.getId()));
+            }
+            if (after != null) {
+                // The priming query may already have seen this write
+                buffer.newest.removeIf(summary -> summary.getId().equals(after.getId()));
+                insert(buffer, ReceiptSummary.of(after));
+            }
+        }
+    }
+
+    // Drops one user's buffer, e.g. after another instance wrote their receipts
+    public synchronized void evict(String userId) {
+        buffers.remove(userId);
+    }
+
+    private synchronized Buffer existing(String userId) {
+        return buffers.get(userId);
+    }
+
+    /**
+     * Returns the user's buffer, priming it from the index if needed. The query holds only that
+     * user's lock, so other users' reads and writes are not blocked; a write recorded meanwhile
+     * waits for the buffer and is then applied on top of the query's result.
+     */
+    private Buffer load(String userId) {
+        Buffer buffer;
+        synchronized (this) {
+            buffer = buffers.computeIfAbsent(userId, id -> new Buffer());
+        }
+        synchronized (buffer) {
+            if (!buffer.loaded) {
+                List<ReceiptSummary> loaded = receiptRepository.findSummaryPage(userId, null, capacity);
+                buffer.newest.addAll(loaded);
+                buffer.exhaustive = loaded.size() < capacity;
+                buffer.loaded = true;
+            }
+        }
+        return buffer;
+    }
+
+    private void insert(Buffer buffer, ReceiptSummary summary) {
+        List<ReceiptSummary> newest = buffer.newest;
+        int position = 0;
+        while (position < newest.size() && NEWEST_FIRST.compare(newest.get(position), summary) < 0) {
+            position++;
+        }
+        // Past the tail of a partial buffer there may be older receipts we don't hold
+        if (position == newest.size() && !buffer.exhaustive) {
+            return;
+        }
+
+        newest.add(position, summary);
+        if (newest.size() > capacity) {
+            newest.remove(newest.size() - 1);
+            buffer.exhaustive = false;
+        }
+    }
+
+    // One user's newest receipts; guarded by its own monitor
+    private static class Buffer {
+        private boolean loaded;
+        private final List<ReceiptSummary> newest = new ArrayList<>();
+        // True when the buffer holds every receipt the user has
+        private boolean exhaustive;
+    }
+}
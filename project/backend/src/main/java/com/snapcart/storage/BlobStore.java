@@ -0,0 +1,28 @@
+package com.snapcart.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Content-addressed storage for receipt images and raw OCR text. Keys are the SHA-256 of
+ * the content, so storing the same bytes twice keeps a single copy. Storing bytes that are already
+ * present refreshes their stored time, which is what the unreferenced-blob sweep goes by.
+ */
+public interface BlobStore {
+
+    String put(InputStream content) throws IOException;
+
+    String put(Path file) throws IOException;
+
+    Optional<StoredBlob> get(String key) throws IOException;
+
+    // Removes the blob unless it was stored (again) at or after storedBefore; returns whether it did
+    boolean delete(String key, Instant storedBefore) throws IOException;
+
+    // Passes the key of every blob last stored before storedBefore
+    void forEachKey(Instant storedBefore, Consumer<String> action) throws IOException;
+}
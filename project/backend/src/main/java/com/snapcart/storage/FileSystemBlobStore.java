@@ -0,0 +1,155 @@
+package com.snapcart.storage;
+
+import com.snapcart.util.Hashing;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Blobs live under <root>/<ab>/<cd>/<sha256>; writes go to a temp file and are moved into place
+@Component
+@ConditionalOnProperty(name = "snapcart.storage.type", havingValue = "filesystem", matchIfMissing = true)
+public class FileSystemBlobStore implements BlobStore {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path root;
+    private final Path incoming;
+
+    public FileSystemBlobStore(@Value("${snapcart.storage.filesystem.root:data/blobs}") String root) throws IOException {
+        this.root = Paths.get(root).toAbsolutePath();
+        this.incoming = this.root.resolve("incoming");
+        Files.createDirectories(incoming);
+    }
+
+    @Override
+    public String put(InputStream content) throws IOException {
+        Path temp = Files.createTempFile(incoming, "blob-", ".tmp");
+        try {
+            MessageDigest digest = Hashing.sha256();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            try (ReadableByteChannel in = Channels.newChannel(content);
+                 FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (in.read(buffer) != -1) {
+                    buffer.flip();
+                    digest.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            }
+            return commit(temp, HexFormat.of().formatHex(digest.digest()));
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public String put(Path file) throws IOException {
+        String key = Hashing.sha256Hex(file);
+        if (refresh(pathFor(key))) {
+            return key;
+        }
+
+        Path temp = Files.createTempFile(incoming, "blob-", ".tmp");
+        try {
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                long position = 0;
+                long size = in.size();
+                while (position < size) {
+                    position += in.transferTo(position, size - position, out);
+                }
+            }
+            return commit(temp, key);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public Optional<StoredBlob> get(String key) throws IOException {
+        Path path = pathFor(key);
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        return Optional.of(new StoredBlob(key, Files.size(path), new FileSystemResource(path), path));
+    }
+
+    @Override
+    public boolean delete(String key, Instant storedBefore) throws IOException {
+        Path path = pathFor(key);
+        try {
+            return Files.getLastModifiedTime(path).toInstant().isBefore(storedBefore) && Files.deleteIfExists(path);
+        } catch (NoSuchFileException e) {
+            return false; // already gone
+        }
+    }
+
+    @Override
+    public void forEachKey(Instant storedBefore, Consumer<String> action) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.filter(path -> !path.startsWith(incoming))
+                    .filter(path -> KEY_PATTERN.matcher(path.getFileName().toString()).matches())
+                    .filter(path -> storedBefore(path, storedBefore))
+                    .forEach(path -> action.accept(path.getFileName().toString()));
+        }
+    }
+
+    private String commit(Path temp, String key) throws IOException {
+        Path target = pathFor(key);
+        if (refresh(target)) {
+            return key; // already stored
+        }
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // a concurrent upload of the same content won the race
+        }
+        return key;
+    }
+
+    // Marks an existing blob as just stored, so the sweep leaves it alone; false when there is none
+    private static boolean refresh(Path path) throws IOException {
+        try {
+            Files.setLastModifiedTime(path, FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private static boolean storedBefore(Path path, Instant storedBefore) {
+        try {
+            return Files.isRegularFile(path) && Files.getLastModifiedTime(path).toInstant().isBefore(storedBefore);
+        } catch (IOException e) {
+            return false; // removed while walking
+        }
+    }
+
+    private Path pathFor(String key) {
+        if (!KEY_PATTERN.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid blob key");
+        }
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+}
@@ -0,0 +1,100 @@
+package com.snapcart.storage;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.snapcart.util.Hashing;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.springframework.data.mongodb.core.query.Query.query;
+import static org.springframework.data.mongodb.gridfs.GridFsCriteria.where;
+import static org.springframework.data.mongodb.gridfs.GridFsCriteria.whereFilename;
+
+// Blobs are GridFS files named by their SHA-256 in the default "fs" bucket
+@Component
+@ConditionalOnProperty(name = "snapcart.storage.type", havingValue = "gridfs")
+public class GridFsBlobStore implements BlobStore {
+
+    private static final String FILES_COLLECTION = "fs.files";
+
+    @Autowired
+    private GridFsTemplate gridFsTemplate;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public String put(InputStream content) throws IOException {
+        // The key is only known after reading everything, so spool to disk rather than heap
+        Path temp = Files.createTempFile("blob-", ".tmp");
+        try {
+            Files.copy(content, temp, StandardCopyOption.REPLACE_EXISTING);
+            return put(temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public String put(Path file) throws IOException {
+        String key = Hashing.sha256Hex(file);
+        // GridFS cannot touch a file, so the upload date stands in for the stored time
+        boolean stored = mongoTemplate.updateMulti(query(whereFilename().is(key)),
+                Update.update("uploadDate", new Date()), FILES_COLLECTION).getMatchedCount() > 0;
+        if (!stored) {
+            try (InputStream in = Files.newInputStream(file)) {
+                gridFsTemplate.store(in, key);
+            }
+        }
+        return key;
+    }
+
+    @Override
+    public Optional<StoredBlob> get(String key) {
+        GridFSFile file = find(key);
+        if (file == null) {
+            return Optional.empty();
+        }
+        GridFsResource resource = gridFsTemplate.getResource(file);
+        return Optional.of(new StoredBlob(key, file.getLength(), resource, null));
+    }
+
+    @Override
+    public boolean delete(String key, Instant storedBefore) {
+        Query stale = query(whereFilename().is(key).and("uploadDate").lt(Date.from(storedBefore)));
+        if (gridFsTemplate.find(stale).first() == null) {
+            return false;
+        }
+        gridFsTemplate.delete(stale);
+        return true;
+    }
+
+    @Override
+    public void forEachKey(Instant storedBefore, Consumer<String> action) {
+        for (GridFSFile file : gridFsTemplate.find(query(where("uploadDate").lt(Date.from(storedBefore))))) {
+            action.accept(file.getFilename());
+        }
+    }
+
+    // Two uploads of the same bytes can race past the existence check and both store a copy. The
+    // copies are identical, so the oldest is served rather than failing on the duplicate.
+    private GridFSFile find(String key) {
+        return gridFsTemplate.find(query(whereFilename().is(key)).with(Sort.by("uploadDate"))).first();
+    }
+}
@@ -0,0 +1,49 @@
+package com.snapcart.storage;
+
+import com.snapcart.util.ImageTypes;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+public class StoredBlob {
+    private final String key;
+    private final long size;
+    private final Resource resource;
+    private final Path path;
+    private final String contentType;
+
+    public StoredBlob(String key, long size, Resource resource, Path path) {
+        this(key, size, resource, path, null);
+    }
+
+    private StoredBlob(String key, long size, Resource resource, Path path, String contentType) {
+        this.key = key;
+        this.size = size;
+        this.resource = resource;
+        this.path = path;
+        this.contentType = contentType;
+    }
+
+    // Stores only know bytes; the media type comes from whoever references the blob. Types stored
+    // before uploads were checked are filtered again here.
+    public StoredBlob withContentType(String contentType) {
+        return new StoredBlob(key, size, resource, path, ImageTypes.sanitize(contentType));
+    }
+
+    public String getKey() { return key; }
+
+    public long getSize() { return size; }
+
+    public InputStream openStream() throws IOException {
+        return resource.getInputStream();
+    }
+
+    public Resource getResource() { return resource; }
+
+    // Local file backing the blob, or null when the store is not file based
+    public Path getPath() { return path; }
+
+    public String getContentType() { return contentType; }
+}
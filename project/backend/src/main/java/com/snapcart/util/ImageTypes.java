@@ -0,0 +1,31 @@
+package com.snapcart.util;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.Set;
+
+// Receipt images are served back with the type the client uploaded them with, so only raster image
+// types are kept; anything else (text/html, image/svg+xml, ...) is served as application/octet-stream
+public final class ImageTypes {
+
+    private static final Set<String> ALLOWED = Set.of(
+            "image/jpeg", "image/png", "image/gif", "image/webp", "image/bmp", "image/tiff",
+            "image/heic", "image/heif");
+
+    private ImageTypes() {}
+
+    // The bare type/subtype when it is an allowed image type, otherwise null
+    public static String sanitize(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            String type = (mediaType.getType() + "/" + mediaType.getSubtype()).toLowerCase();
+            return ALLOWED.contains(type) ? type : null;
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+    }
+}
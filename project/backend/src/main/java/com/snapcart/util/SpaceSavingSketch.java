@@ -0,0 +1,138 @@
+package com.snapcart.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving heavy-hitter sketch: approximate top-K counts in memory bounded by {@code capacity}
+ * counters, however many distinct items are added. Not thread-safe.
+ *
+ * <p>With N the total count added, every estimate overcounts by at most N / capacity and never
+ * undercounts, and every item occurring more than N / capacity times is tracked. Removals (for
+ * deleted or edited receipts) decrement tracked counters and are ignored for untracked items, so
+ * after removals the bound holds for the remaining total only approximately.
+ *
+ * <p>Sketches merge by summing counters, substituting a full sketch's minimum for items it does not
+ * track, and keeping the largest {@code capacity}; the merged sketch keeps the N / capacity bound over
+ * the combined total.
+ */
+public class SpaceSavingSketch {
+
+    private static final Comparator<Counter> SMALLEST_FIRST = Comparator
+            .comparingLong((Counter counter) -> counter.count)
+            .thenComparing(counter -> counter.item);
+
+    private final int capacity;
+    private final Map<String, Counter> counters = new HashMap<>();
+    private final NavigableSet<Counter> ranking = new TreeSet<>(SMALLEST_FIRST);
+    private long total;
+
+    public SpaceSavingSketch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    public void add(String item, long count) {
+        total += count;
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            ranking.remove(counter);
+            counter.count += count;
+            ranking.add(counter);
+        } else if (counters.size() < capacity) {
+            track(new Counter(item, count));
+        } else {
+            // Replace the smallest counter; the newcomer inherits its count, which bounds the overcount
+            Counter smallest = ranking.pollFirst();
+            counters.remove(smallest.item);
+            track(new Counter(item, smallest.count + count));
+        }
+    }
+
+    public void remove(String item, long count) {
+        total = Math.max(0, total - count);
+        Counter counter = counters.get(item);
+        if (counter == null) {
+            return;
+        }
+        ranking.remove(counter);
+        counter.count -= count;
+        if (counter.count <= 0) {
+            counters.remove(item);
+        } else {
+            ranking.add(counter);
+        }
+    }
+
+    public void merge(SpaceSavingSketch other) {
+        long missingHere = isFull() ? ranking.first().count : 0;
+        long missingThere = other.isFull() ? other.ranking.first().count : 0;
+
+        Set<String> items = new HashSet<>(counters.keySet());
+        items.addAll(other.counters.keySet());
+        List<Counter> merged = new ArrayList<>(items.size());
+        for (String item : items) {
+            Counter here = counters.get(item);
+            Counter there = other.counters.get(item);
+            long count = (here != null ? here.count : missingHere) + (there != null ? there.count : missingThere);
+            merged.add(new Counter(item, count));
+        }
+
+        counters.clear();
+        ranking.clear();
+        merged.sort(SMALLEST_FIRST.reversed());
+        for (Counter counter : merged.subList(0, Math.min(capacity, merged.size()))) {
+            track(counter);
+        }
+        total += other.total;
+    }
+
+    // Estimated counts of the n largest items, largest first
+    public Map<String, Long> top(int n) {
+        Map<String, Long> top = new LinkedHashMap<>();
+        Iterator<Counter> largestFirst = ranking.descendingIterator();
+        while (top.size() < n && largestFirst.hasNext()) {
+            Counter counter = largestFirst.next();
+            top.put(counter.item, counter.count);
+        }
+        return top;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return counters.isEmpty();
+    }
+
+    private boolean isFull() {
+        return counters.size() >= capacity;
+    }
+
+    private void track(Counter counter) {
+        counters.put(counter.item, counter);
+        ranking.add(counter);
+    }
+
+    private static class Counter {
+        private final String item;
+        private long count;
+
+        private Counter(String item, long count) {
+            this.item = item;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.snapcart.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One Micrometer timer per stage, all under the same name and told apart by a tag.
+ * Percentiles and histograms come from the management.metrics.distribution.* settings.
+ */
+public class StageTimers {
+
+    @FunctionalInterface
+    public interface Stage<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final String name;
+    private final String tagKey;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public StageTimers(MeterRegistry meterRegistry, String name, String tagKey) {
+        this.meterRegistry = meterRegistry;
+        this.name = name;
+        this.tagKey = tagKey;
+    }
+
+    public <T, E extends Exception> T record(String stage, Stage<T, E> body) throws E {
+        long startNanos = System.nanoTime();
+        try {
+            return body.run();
+        } finally {
+            timer(stage).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public Timer timer(String stage) {
+        return timers.computeIfAbsent(stage, key -> Timer.builder(name)
+                .tag(tagKey, key)
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,33 @@
+package com.snapcart.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+// Per-thread heap allocation counter (HotSpot's com.sun.management.ThreadMXBean extension)
+public final class ThreadAllocation {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = resolve();
+
+    private ThreadAllocation() {}
+
+    public static boolean isSupported() {
+        return THREAD_MX_BEAN != null;
+    }
+
+    // Bytes allocated by the current thread so far, or -1 when the JVM does not track it
+    public static long currentThreadAllocatedBytes() {
+        return THREAD_MX_BEAN != null ? THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() : -1L;
+    }
+
+    private static com.sun.management.ThreadMXBean resolve() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspotBean = (com.sun.management.ThreadMXBean) bean;
+            if (hotspotBean.isThreadAllocatedMemorySupported()) {
+                hotspotBean.setThreadAllocatedMemoryEnabled(true);
+                return hotspotBean;
+            }
+        }
+        return null;
+    }
+}
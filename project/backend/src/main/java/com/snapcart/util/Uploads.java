@@ -0,0 +1,62 @@
+package com.snapcart.util;
+
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public final class Uploads {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private Uploads() {}
+
+    // Multipart parts are already on disk (file-size-threshold=0), so this is usually a move
+    public static Path spoolToTempFile(MultipartFile file) throws IOException {
+        Path spooledFile = Files.createTempFile("receipt-", ".upload");
+        try {
+            file.transferTo(spooledFile);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spooledFile);
+            throw e;
+        }
+        return spooledFile;
+    }
+
+    // Copies the stream to a temp file, failing once more than maxBytes are read; does not close in
+    public static Path spoolToTempFile(InputStream in, long maxBytes) throws IOException {
+        Path spooledFile = Files.createTempFile("receipt-", ".upload");
+        try (OutputStream out = Files.newOutputStream(spooledFile)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long total = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += read;
+                if (total > maxBytes) {
+                    throw new IOException("File exceeds the " + maxBytes + " byte limit");
+                }
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spooledFile);
+            throw e;
+        }
+        return spooledFile;
+    }
+
+    // Reactive form for WebFlux parts; large parts are already on disk, so this is usually a move too
+    public static Mono<Path> spoolToTempFile(FilePart file) {
+        return Mono.fromCallable(() -> Files.createTempFile("receipt-", ".upload"))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(spooledFile -> file.transferTo(spooledFile)
+                        .thenReturn(spooledFile)
+                        .onErrorResume(e -> Mono.fromCallable(() -> Files.deleteIfExists(spooledFile))
+                                .then(Mono.error(e))));
+    }
+}
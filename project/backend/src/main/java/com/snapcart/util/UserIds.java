@@ -0,0 +1,20 @@
+package com.snapcart.util;
+
+import java.util.regex.Pattern;
+
+// Receipts are partitioned by the caller's user id, sent in the X-User-Id header
+public final class UserIds {
+
+    public static final String HEADER = "X-User-Id";
+
+    // Owner of receipts created before partitioning
+    public static final String DEFAULT_USER = "default";
+
+    private static final Pattern VALID = Pattern.compile("[A-Za-z0-9._@-]{1,64}");
+
+    private UserIds() {}
+
+    public static boolean isValid(String userId) {
+        return userId != null && VALID.matcher(userId).matches();
+    }
+}
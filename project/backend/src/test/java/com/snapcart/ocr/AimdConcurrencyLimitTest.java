@@ -0,0 +1,87 @@
+package com.snapcart.ocr;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AimdConcurrencyLimitTest {
+
+    private static final long TARGET_NANOS = 3_000_000_000L;
+    private static final long FAST = TARGET_NANOS / 10;
+
+    @Test
+    void initialLimitIsClampedToTheBounds() {
+        assertThat(new AimdConcurrencyLimit(50, 1, 32, TARGET_NANOS, 0.5).getLimit()).isEqualTo(32);
+        assertThat(new AimdConcurrencyLimit(0, 2, 32, TARGET_NANOS, 0.5).getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsCallsBeyondTheLimitUntilOneIsReleased() {
+        AimdConcurrencyLimit limit = new AimdConcurrencyLimit(2, 1, 32, TARGET_NANOS, 0.5);
+
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isTrue();
+        assertThat(limit.tryAcquire()).isFalse();
+        assertThat(limit.getInFlight()).isEqualTo(2);
+
+        limit.release();
+        assertThat(limit.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void slowAndDroppedCallsCutTheLimitDownToTheMinimum() {
+        AimdConcurrencyLimit limit = new AimdConcurrencyLimit(8, 1, 32, TARGET_NANOS, 0.5);
+
+        limit.onSample(TARGET_NANOS + 1, false);
+        assertThat(limit.getLimit()).isEqualTo(4);
+        limit.onSample(FAST, true);
+        assertThat(limit.getLimit()).isEqualTo(2);
+        limit.onSample(FAST, true);
+        limit.onSample(FAST, true);
+        assertThat(limit.getLimit()).isEqualTo(1);
+    }
+
+    @Test
+    void fastCallsRaiseABusyLimitByAboutOnePerRoundTrip() {
+        AimdConcurrencyLimit limit = busy(4, 32);
+
+        for (int i = 0; i < 4; i++) {
+            limit.onSample(FAST, false);
+        }
+        assertThat(limit.getLimit()).isEqualTo(4);
+
+        limit.onSample(FAST, false);
+        assertThat(limit.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void fastCallsDoNotRaiseALimitThatIsMostlyUnused() {
+        AimdConcurrencyLimit limit = new AimdConcurrencyLimit(8, 1, 32, TARGET_NANOS, 0.5);
+        limit.tryAcquire();
+
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(FAST, false);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(8);
+    }
+
+    @Test
+    void neverGrowsPastTheMaximum() {
+        AimdConcurrencyLimit limit = busy(4, 4);
+
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(FAST, false);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(4);
+    }
+
+    private static AimdConcurrencyLimit busy(int initial, int max) {
+        AimdConcurrencyLimit limit = new AimdConcurrencyLimit(initial, 1, max, TARGET_NANOS, 0.5);
+        for (int i = 0; i < initial; i++) {
+            limit.tryAcquire();
+        }
+        return limit;
+    }
+}
@@ -0,0 +1,114 @@
+package com.snapcart.ocr;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private static final long MS = 1_000_000L;
+    private static final long OPEN_NANOS = 1000 * MS;
+
+    @Test
+    void staysClosedUntilTheMinimumNumberOfCalls() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, OPEN_NANOS, 2);
+
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure(0);
+        }
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        breaker.onFailure(0);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void opensWhenTheFailureRateReachesTheThreshold() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, OPEN_NANOS, 2);
+        breaker.onSuccess();
+        breaker.onSuccess();
+        breaker.onFailure(0);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        breaker.onFailure(0);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void failuresThatLeftTheWindowNoLongerCount() {
+        CircuitBreaker breaker = new CircuitBreaker(4, 4, 0.75, OPEN_NANOS, 2);
+        breaker.onFailure(0);
+        breaker.onFailure(0);
+        for (int i = 0; i < 4; i++) {
+            breaker.onSuccess();
+        }
+
+        breaker.onFailure(0);
+        breaker.onFailure(0);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        breaker.onFailure(0);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void rejectsCallsWhileOpenAndReportsWhenToRetry() {
+        CircuitBreaker breaker = opened(0);
+
+        assertThat(breaker.tryAcquire(400 * MS)).isFalse();
+        assertThat(breaker.retryAfterMillis(400 * MS)).isEqualTo(600L);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void letsOnlyTheTrialCallsThroughOnceTheOpenPeriodEnds() {
+        CircuitBreaker breaker = opened(0);
+
+        assertThat(breaker.tryAcquire(OPEN_NANOS)).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.retryAfterMillis(OPEN_NANOS)).isEqualTo(0L);
+        assertThat(breaker.tryAcquire(OPEN_NANOS)).isTrue();
+        assertThat(breaker.tryAcquire(OPEN_NANOS)).isFalse();
+
+        breaker.release();
+        assertThat(breaker.tryAcquire(OPEN_NANOS)).isTrue();
+    }
+
+    @Test
+    void closesWithAFreshWindowOnceEveryTrialSucceeds() {
+        CircuitBreaker breaker = opened(0);
+        breaker.tryAcquire(OPEN_NANOS);
+        breaker.tryAcquire(OPEN_NANOS);
+
+        breaker.onSuccess();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        breaker.onSuccess();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        // The failures that opened it are forgotten, so the minimum applies again
+        breaker.onFailure(OPEN_NANOS);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquire(OPEN_NANOS)).isTrue();
+    }
+
+    @Test
+    void aFailedTrialReopensForAnotherFullPeriod() {
+        CircuitBreaker breaker = opened(0);
+        breaker.tryAcquire(OPEN_NANOS);
+
+        breaker.onFailure(OPEN_NANOS + 100 * MS);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire(OPEN_NANOS + 500 * MS)).isFalse();
+        assertThat(breaker.retryAfterMillis(OPEN_NANOS + 500 * MS)).isEqualTo(600L);
+        assertThat(breaker.tryAcquire(2 * OPEN_NANOS + 100 * MS)).isTrue();
+    }
+
+    private static CircuitBreaker opened(long nowNanos) {
+        CircuitBreaker breaker = new CircuitBreaker(10, 2, 0.5, OPEN_NANOS, 2);
+        breaker.onFailure(nowNanos);
+        breaker.onFailure(nowNanos);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        return breaker;
+    }
+}
@@ -0,0 +1,39 @@
+package com.snapcart.repository;
+
+import com.snapcart.model.ReceiptCursor;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The keyset filter has to match exactly the receipts that sort after the cursor in (createdDate desc, id desc)
+class ReceiptListingRepositoryImplTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    @Test
+    void keysetAfterTakesOlderReceiptsThenTiesWithALowerIdThenUndatedOnes() {
+        Document filter = ReceiptListingRepositoryImpl.keysetAfter(new ReceiptCursor(CREATED, "r5"))
+                .getCriteriaObject();
+
+        assertThat(filter).isEqualTo(new Document("$or", List.of(
+                new Document("createdDate", new Document("$lt", CREATED)),
+                new Document("$and", List.of(
+                        new Document("createdDate", CREATED),
+                        new Document("id", new Document("$lt", "r5")))),
+                new Document("createdDate", null))));
+    }
+
+    @Test
+    void keysetAfterAnUndatedReceiptOnlyTakesUndatedOnesWithALowerId() {
+        Document filter = ReceiptListingRepositoryImpl.keysetAfter(new ReceiptCursor(null, "r5"))
+                .getCriteriaObject();
+
+        assertThat(filter).isEqualTo(new Document("$and", List.of(
+                new Document("createdDate", null),
+                new Document("id", new Document("$lt", "r5")))));
+    }
+}
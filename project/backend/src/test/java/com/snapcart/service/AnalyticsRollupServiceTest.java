@@ -0,0 +1,255 @@
+package com.snapcart.service;
+
+import com.snapcart.model.AnalyticsData;
+import com.snapcart.model.Receipt;
+import com.snapcart.model.ReceiptItem;
+import com.snapcart.repository.ReceiptRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The rollup is built from one scan and then kept current by deltas; writes that land while the
+ * scan runs are queued and reconciled by receipt id and version, so none is lost or counted twice.
+ */
+class AnalyticsRollupServiceTest {
+
+    private static final String USER = "alice";
+
+    private ReceiptRepository receiptRepository;
+    private AnalyticsRollupService rollupService;
+
+    @BeforeEach
+    void setUp() {
+        receiptRepository = mock(ReceiptRepository.class);
+        rollupService = new AnalyticsRollupService();
+        ReflectionTestUtils.setField(rollupService, "receiptRepository", receiptRepository);
+        ReflectionTestUtils.setField(rollupService, "maxUsers", 10);
+        ReflectionTestUtils.setField(rollupService, "sketchCapacity", 16);
+        rollupService.init();
+    }
+
+    @Test
+    void buildsTheSnapshotFromOneScan() {
+        scanReturns(receipt("r1", 0, 10.0, "Food", 3, "MILK", "BREAD"),
+                receipt("r2", 0, 30.0, "Travel", 4, "MILK"));
+
+        AnalyticsData snapshot = rollupService.getSnapshot(USER);
+
+        assertThat(snapshot.getTotalSpent()).isEqualTo(40.0);
+        assertThat(snapshot.getTotalReceipts()).isEqualTo(2);
+        assertThat(snapshot.getAverageReceiptAmount()).isEqualTo(20.0);
+        assertThat(snapshot.getMonthlySpending()).containsExactly(Map.entry("2024-03", 10.0), Map.entry("2024-04", 30.0));
+        assertThat(snapshot.getCategorySpending()).isEqualTo(Map.of("Food", 10.0, "Travel", 30.0));
+        assertThat(snapshot.getTopItems()).containsEntry("MILK", 2L).containsEntry("BREAD", 1L);
+    }
+
+    @Test
+    void appliesWritesAsDeltasWithoutRescanning() {
+        Receipt first = receipt("r1", 0, 10.0, "Food", 3, "MILK");
+        scanReturns(first);
+        rollupService.getSnapshot(USER);
+
+        Receipt second = receipt("r2", 0, 5.0, "Food", 3, "EGGS");
+        rollupService.recordCreated(second);
+        rollupService.recordUpdated(first, receipt("r1", 1, 12.0, "Travel", 3, "MILK"));
+        rollupService.recordDeleted(second);
+
+        AnalyticsData snapshot = rollupService.getSnapshot(USER);
+        assertThat(snapshot.getTotalSpent()).isEqualTo(12.0);
+        assertThat(snapshot.getTotalReceipts()).isEqualTo(1);
+        assertThat(snapshot.getCategorySpending()).isEqualTo(Map.of("Travel", 12.0));
+        assertThat(snapshot.getTopItems()).isEqualTo(Map.of("MILK", 1L));
+        verify(receiptRepository, times(1)).streamForRollup(USER);
+    }
+
+    @Test
+    void writesForUsersWithoutARollupAreLeftToTheScan() {
+        Receipt receipt = receipt("r1", 0, 10.0, "Food", 3, "MILK");
+        rollupService.recordCreated(receipt);
+        scanReturns(receipt);
+
+        assertThat(rollupService.getSnapshot(USER).getTotalReceipts()).isEqualTo(1);
+    }
+
+    @Test
+    void createDuringTheScanThatTheScanMissedIsAdded() {
+        Receipt scanned = receipt("r1", 0, 10.0, "Food", 3, "MILK");
+        Receipt created = receipt("r2", 0, 5.0, "Food", 3, "EGGS");
+        scanWhileWriting(List.of(scanned), () -> rollupService.recordCreated(created));
+
+        AnalyticsData snapshot = rollupService.getSnapshot(USER);
+
+        assertThat(snapshot.getTotalSpent()).isEqualTo(15.0);
+        assertThat(snapshot.getTotalReceipts()).isEqualTo(2);
+    }
+
+    @Test
+    void createDuringTheScanThatTheScanSawIsCountedOnce() {
+        Receipt created = receipt("r1", 0, 10.0, "Food", 3, "MILK");
+        scanWhileWriting(List.of(created), () -> rollupService.recordCreated(created));
+
+        AnalyticsData snapshot = rollupService.getSnapshot(USER);
+
+        assertThat(snapshot.getTotalSpent()).isEqualTo(10.0);
+        assertThat(snapshot.getTopItems()).isEqualTo(Map.of("MILK", 1L));
+    }
+
+    @Test
+    void updateDuringTheScanReplacesTheOlderCopyTheScanSaw() {
+        Receipt before = receipt("r1", 2, 10.0, "Food", 3, "MILK");
+        Receipt after = receipt("r1", 3, 25.0, "Travel", 3, "EGGS");
+        scanWhileWriting(List.of(before), () -> rollupService.recordUpdated(before, after));
+
+        AnalyticsData snapshot = rollupService.getSnapshot(USER);
+
+        assertThat(snapshot.getTotalSpent()).isEqualTo(25.0);
+        assertThat(snapshot.getTotalReceipts()).isEqualTo(1);
+        assertThat(snapshot.getCategorySpending()).isEqualTo(Map.of("Travel", 25.0));
+        assertThat(snapshot.getTopItems()).isEqualTo(Map.of("EGGS", 1L));
+    }
+
+    @Test
+    void updateDuringTheScanIsSkippedWhenTheScanSawItsResult() {
+        Receipt before = receipt("r1", 2, 10.0, "Food", 3, "MILK");
+        Receipt after = receipt("r1", 3, 25.0, "Travel", 3, "EGGS");
+        scanWhileWriting(List.of(after), () -> rollupService.recordUpdated(before, after));
+
+        AnalyticsData snapshot = rollupService.getSnapshot(USER);
+
+        assertThat(snapshot.getTotalSpent()).isEqualTo(25.0);
+        assertThat(snapshot.getCategorySpending()).isEqualTo(Map.of("Travel", 25.0));
+    }
+
+    @Test
+    void deleteDuringTheScanRemovesWhatTheScanCounted() {
+        Receipt deleted = receipt("r1", 0, 10.0, "Food", 3, "MILK");
+        Receipt kept = receipt("r2", 0, 5.0, "Food", 3, "EGGS");
+        scanWhileWriting(List.of(deleted, kept), () -> rollupService.recordDeleted(deleted));
+
+        AnalyticsData snapshot = rollupService.getSnapshot(USER);
+
+        assertThat(snapshot.getTotalSpent()).isEqualTo(5.0);
+        assertThat(snapshot.getTopItems()).isEqualTo(Map.of("EGGS", 1L));
+    }
+
+    @Test
+    void deleteDuringTheScanOfAReceiptTheScanMissedIsIgnored() {
+        Receipt kept = receipt("r2", 0, 5.0, "Food", 3, "EGGS");
+        scanWhileWriting(List.of(kept), () -> rollupService.recordDeleted(receipt("r1", 0, 10.0, "Food", 3, "MILK")));
+
+        AnalyticsData snapshot = rollupService.getSnapshot(USER);
+
+        assertThat(snapshot.getTotalSpent()).isEqualTo(5.0);
+        assertThat(snapshot.getTotalReceipts()).isEqualTo(1);
+    }
+
+    @Test
+    void rebuildRescansFromScratch() {
+        scanReturns(receipt("r1", 0, 10.0, "Food", 3, "MILK"));
+        rollupService.getSnapshot(USER);
+
+        scanReturns(receipt("r2", 0, 7.0, "Travel", 5, "EGGS"));
+        rollupService.rebuild(USER);
+
+        AnalyticsData snapshot = rollupService.getSnapshot(USER);
+        assertThat(snapshot.getTotalSpent()).isEqualTo(7.0);
+        assertThat(snapshot.getMonthlySpending()).isEqualTo(Map.of("2024-05", 7.0));
+        assertThat(snapshot.getTopItems()).isEqualTo(Map.of("EGGS", 1L));
+        verify(receiptRepository, times(2)).streamForRollup(USER);
+    }
+
+    @Test
+    void failedScanLeavesNothingBehindForTheRetry() {
+        Receipt receipt = receipt("r1", 0, 10.0, "Food", 3, "MILK");
+        when(receiptRepository.streamForRollup(USER)).thenAnswer(invocation -> Stream.of(receipt, receipt)
+                .peek(new FailOnSecond()));
+
+        assertThrows(IllegalStateException.class, () -> rollupService.getSnapshot(USER));
+
+        scanReturns(receipt);
+        assertThat(rollupService.getSnapshot(USER).getTotalSpent()).isEqualTo(10.0);
+    }
+
+    @Test
+    void topItemsMergeOnlyTheRequestedMonths() {
+        scanReturns(receipt("r1", 0, 10.0, "Food", 3, "MILK", "BREAD"),
+                receipt("r2", 0, 10.0, "Food", 4, "MILK"),
+                receipt("r3", 0, 10.0, "Food", 5, "EGGS"));
+
+        assertThat(rollupService.getTopItems(USER, YearMonth.of(2024, 4), YearMonth.of(2024, 5)))
+                .isEqualTo(Map.of("MILK", 1L, "EGGS", 1L));
+        assertThat(rollupService.getTopItems(USER, null, YearMonth.of(2024, 4)))
+                .isEqualTo(Map.of("MILK", 2L, "BREAD", 1L));
+    }
+
+    private void scanReturns(Receipt... receipts) {
+        when(receiptRepository.streamForRollup(USER)).thenAnswer(invocation -> Stream.of(receipts));
+    }
+
+    // The write runs after the scan has read its first receipt, as a concurrent write would
+    private void scanWhileWriting(List<Receipt> receipts, Runnable write) {
+        when(receiptRepository.streamForRollup(USER)).thenAnswer(invocation -> {
+            List<Receipt> scanned = new ArrayList<>(receipts);
+            return scanned.stream().peek(new RunAfterFirst(write));
+        });
+    }
+
+    private static Receipt receipt(String id, long version, double total, String category, int month,
+                                   String... itemNames) {
+        List<ReceiptItem> items = new ArrayList<>();
+        for (String name : itemNames) {
+            items.add(new ReceiptItem(name, 1.0, 1));
+        }
+        Receipt receipt = new Receipt("receipt.jpg", null, null, items, total, "FRESH MART");
+        receipt.setId(id);
+        receipt.setVersion(version);
+        receipt.setUserId(USER);
+        receipt.setCategory(category);
+        receipt.setCreatedDate(LocalDateTime.of(2024, month, 1, 12, 0));
+        return receipt;
+    }
+
+    private static final class RunAfterFirst implements Consumer<Receipt> {
+        private final Runnable action;
+        private boolean done;
+
+        private RunAfterFirst(Runnable action) {
+            this.action = action;
+        }
+
+        @Override
+        public void accept(Receipt receipt) {
+            if (!done) {
+                done = true;
+                action.run();
+            }
+        }
+    }
+
+    private static final class FailOnSecond implements Consumer<Receipt> {
+        private int seen;
+
+        @Override
+        public void accept(Receipt receipt) {
+            if (++seen == 2) {
+                throw new IllegalStateException("cursor lost");
+            }
+        }
+    }
+}
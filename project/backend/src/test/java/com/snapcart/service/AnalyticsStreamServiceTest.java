@@ -0,0 +1,60 @@
+package com.snapcart.service;
+
+import com.snapcart.model.AnalyticsData;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Updates carry the totals in full but only the month, category and top item entries that changed
+class AnalyticsStreamServiceTest {
+
+    @Test
+    void deltaKeepsTheTotalsAndOnlyTheChangedEntries() {
+        AnalyticsData previous = analytics(20.0, 2, Map.of("2024-03", 10.0, "2024-04", 10.0),
+                Map.of("Food", 20.0), Map.of("MILK", 2L));
+        AnalyticsData current = analytics(35.0, 3, Map.of("2024-03", 10.0, "2024-04", 25.0),
+                Map.of("Food", 20.0, "Travel", 15.0), Map.of("MILK", 2L));
+
+        AnalyticsData delta = AnalyticsStreamService.delta(previous, current);
+
+        assertThat(delta.getTotalSpent()).isEqualTo(35.0);
+        assertThat(delta.getTotalReceipts()).isEqualTo(3);
+        assertThat(delta.getAverageReceiptAmount()).isEqualTo(35.0 / 3);
+        assertThat(delta.getMonthlySpending()).isEqualTo(Map.of("2024-04", 25.0));
+        assertThat(delta.getCategorySpending()).isEqualTo(Map.of("Travel", 15.0));
+        assertThat(delta.getTopItems()).isNull();
+    }
+
+    @Test
+    void deltaZeroesEntriesThatDisappeared() {
+        AnalyticsData previous = analytics(30.0, 2, Map.of("2024-03", 10.0, "2024-04", 20.0),
+                Map.of("Food", 10.0, "Travel", 20.0), Map.of("MILK", 1L, "EGGS", 1L));
+        AnalyticsData current = analytics(10.0, 1, Map.of("2024-03", 10.0),
+                Map.of("Food", 10.0), Map.of("MILK", 1L));
+
+        AnalyticsData delta = AnalyticsStreamService.delta(previous, current);
+
+        assertThat(delta.getMonthlySpending()).isEqualTo(Map.of("2024-04", 0.0));
+        assertThat(delta.getCategorySpending()).isEqualTo(Map.of("Travel", 0.0));
+        assertThat(delta.getTopItems()).isEqualTo(Map.of("MILK", 1L));
+    }
+
+    @Test
+    void deltaAgainstTheSameSummaryOnlyCarriesTheTotals() {
+        AnalyticsData summary = analytics(10.0, 1, Map.of("2024-03", 10.0), Map.of("Food", 10.0), Map.of("MILK", 1L));
+
+        AnalyticsData delta = AnalyticsStreamService.delta(summary, summary);
+
+        assertThat(delta.getTotalSpent()).isEqualTo(10.0);
+        assertThat(delta.getMonthlySpending()).isEmpty();
+        assertThat(delta.getCategorySpending()).isEmpty();
+        assertThat(delta.getTopItems()).isNull();
+    }
+
+    private static AnalyticsData analytics(double totalSpent, int totalReceipts, Map<String, Double> monthly,
+                                           Map<String, Double> categories, Map<String, Long> topItems) {
+        return new AnalyticsData(totalSpent, totalReceipts, totalSpent / totalReceipts, monthly, topItems, categories);
+    }
+}
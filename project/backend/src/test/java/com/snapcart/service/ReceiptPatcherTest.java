@@ -0,0 +1,172 @@
+package com.snapcart.service;
+
+import com.snapcart.model.Receipt;
+import com.snapcart.model.ReceiptItem;
+import com.snapcart.model.ReceiptPatch;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Mongo rejects an update that reaches the items array through two operators, so each mix of item
+ * changes has to map to exactly one of $set items.N, $push, $pull or a whole-array $set.
+ */
+class ReceiptPatcherTest {
+
+    private ReceiptPatcher patcher;
+    private Receipt before;
+
+    @BeforeEach
+    void setUp() {
+        OCRService ocrService = mock(OCRService.class);
+        when(ocrService.calculateTotal(anyList())).thenReturn(42.0);
+
+        patcher = new ReceiptPatcher();
+        ReflectionTestUtils.setField(patcher, "itemNameCanonicalizer", mock(ItemNameCanonicalizer.class));
+        ReflectionTestUtils.setField(patcher, "ocrService", ocrService);
+
+        before = new Receipt("receipt.jpg", null, null, new ArrayList<>(List.of(
+                new ReceiptItem("MILK", 2.49, 1),
+                new ReceiptItem("BREAD", 1.99, 1),
+                new ReceiptItem("EGGS", 3.19, 1))), 7.67, "FRESH MART");
+        before.setId("r1");
+        before.setVersion(3L);
+    }
+
+    @Test
+    void rejectsPatchForAnotherVersion() {
+        ReceiptPatch patch = new ReceiptPatch();
+        patch.setVersion(2L);
+        patch.setStore("OTHER");
+
+        assertThrows(OptimisticLockingFailureException.class, () -> patcher.plan(before, patch));
+    }
+
+    @Test
+    void guardsTheWriteWithTheCurrentVersionAndBumpsIt() {
+        ReceiptPatch patch = new ReceiptPatch();
+        patch.setVersion(3L);
+        patch.setStore("OTHER");
+
+        ReceiptPatcher.Plan plan = patcher.plan(before, patch);
+
+        assertThat(plan.getExpectedVersion()).isEqualTo(3L);
+        assertThat(plan.getAfter().getVersion()).isEqualTo(4L);
+        assertThat(operator(plan, "$inc").get("version")).isEqualTo(1);
+        assertThat(operator(plan, "$set").get("store")).isEqualTo("OTHER");
+        assertThat(before.getStore()).isEqualTo("FRESH MART");
+    }
+
+    @Test
+    void rejectsPatchThatChangesNothing() {
+        assertThrows(IllegalArgumentException.class, () -> patcher.plan(before, new ReceiptPatch()));
+    }
+
+    @Test
+    void rejectsEditOfMissingItem() {
+        ReceiptPatch patch = new ReceiptPatch();
+        patch.setEditItems(List.of(edit(3, 1.00)));
+
+        assertThrows(IllegalArgumentException.class, () -> patcher.plan(before, patch));
+    }
+
+    @Test
+    void editsOnlySetTheEditedElements() {
+        ReceiptPatch patch = new ReceiptPatch();
+        patch.setEditItems(List.of(edit(1, 2.29)));
+
+        ReceiptPatcher.Plan plan = patcher.plan(before, patch);
+
+        Document set = operator(plan, "$set");
+        assertThat(set.containsKey("items.1")).isTrue();
+        assertThat(set.containsKey("items")).isFalse();
+        assertThat(set.get("totalAmount")).isEqualTo(42.0);
+        assertThat(plan.getUpdate().getUpdateObject().containsKey("$push")).isFalse();
+        assertThat(plan.getAfter().getItems().get(1).getPrice()).isEqualTo(2.29);
+        assertThat(before.getItems().get(1).getPrice()).isEqualTo(1.99);
+    }
+
+    @Test
+    void additionsOnlyPush() {
+        ReceiptPatch patch = new ReceiptPatch();
+        patch.setAddItems(List.of(new ReceiptItem("BUTTER", 3.50, 1)));
+
+        ReceiptPatcher.Plan plan = patcher.plan(before, patch);
+
+        assertThat(plan.getUpdate().getUpdateObject().containsKey("$push")).isTrue();
+        assertThat(operator(plan, "$set").containsKey("items")).isFalse();
+        assertThat(plan.getAfter().getItems()).hasSize(4);
+    }
+
+    @Test
+    void removalsOnlyPull() {
+        ReceiptPatch patch = new ReceiptPatch();
+        patch.setRemoveItems(List.of("BREAD"));
+
+        ReceiptPatcher.Plan plan = patcher.plan(before, patch);
+
+        assertThat(plan.getUpdate().getUpdateObject().containsKey("$pull")).isTrue();
+        assertThat(operator(plan, "$set").containsKey("items")).isFalse();
+        assertThat(plan.getAfter().getItems()).hasSize(2);
+    }
+
+    @Test
+    void mixedItemChangesSetTheWholeArray() {
+        ReceiptPatch patch = new ReceiptPatch();
+        patch.setEditItems(List.of(edit(0, 2.59)));
+        patch.setAddItems(List.of(new ReceiptItem("BUTTER", 3.50, 1)));
+        patch.setRemoveItems(List.of("EGGS"));
+
+        ReceiptPatcher.Plan plan = patcher.plan(before, patch);
+
+        Document update = plan.getUpdate().getUpdateObject();
+        assertThat(update.containsKey("$push")).isFalse();
+        assertThat(update.containsKey("$pull")).isFalse();
+        assertThat(operator(plan, "$set").containsKey("items.0")).isFalse();
+        assertThat(operator(plan, "$set").get("items")).isSameAs(plan.getAfter().getItems());
+        assertThat(describe(plan.getAfter().getItems())).containsExactly("MILK 2.59", "BREAD 1.99", "BUTTER 3.5");
+    }
+
+    @Test
+    void givenTotalOverridesTheRecomputedOne() {
+        ReceiptPatch patch = new ReceiptPatch();
+        patch.setRemoveItems(List.of("EGGS"));
+        patch.setTotalAmount(5.00);
+
+        ReceiptPatcher.Plan plan = patcher.plan(before, patch);
+
+        assertThat(operator(plan, "$set").get("totalAmount")).isEqualTo(5.00);
+        assertThat(plan.getAfter().getTotalAmount()).isEqualTo(5.00);
+    }
+
+    private static ReceiptPatch.ItemEdit edit(int index, double price) {
+        ReceiptPatch.ItemEdit edit = new ReceiptPatch.ItemEdit();
+        edit.setIndex(index);
+        edit.setPrice(price);
+        return edit;
+    }
+
+    private static Document operator(ReceiptPatcher.Plan plan, String name) {
+        Document operator = (Document) plan.getUpdate().getUpdateObject().get(name);
+        return operator != null ? operator : new Document();
+    }
+
+    private static List<String> describe(List<ReceiptItem> items) {
+        List<String> described = new ArrayList<>(items.size());
+        for (ReceiptItem item : items) {
+            described.add(item.getName() + " " + item.getPrice());
+        }
+        return described;
+    }
+}
@@ -0,0 +1,165 @@
+package com.snapcart.service;
+
+import com.snapcart.model.Receipt;
+import com.snapcart.model.ReceiptItem;
+import com.snapcart.repository.ReceiptRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Words match exactly, as a prefix or, from four letters on, within one or two edits; better matches rank first
+class ReceiptSearchIndexTest {
+
+    private static final String USER = "alice";
+
+    private ReceiptRepository receiptRepository;
+    private ReceiptSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        receiptRepository = mock(ReceiptRepository.class);
+        searchIndex = new ReceiptSearchIndex();
+        ReflectionTestUtils.setField(searchIndex, "receiptRepository", receiptRepository);
+        ReflectionTestUtils.setField(searchIndex, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(searchIndex, "maxUsers", 10);
+        ReflectionTestUtils.setField(searchIndex, "maxPrefixTerms", 200);
+        searchIndex.init();
+    }
+
+    @Test
+    void exactMatchesRankAbovePrefixMatches() {
+        scanReturns(receipt("r1", "CORNER SHOP", "TEAPOT"),
+                receipt("r2", "Tea House", "GREEN TEA"));
+
+        assertThat(searchIndex.search(USER, "tea", 10)).containsExactly("r2", "r1");
+    }
+
+    @Test
+    void prefixMatchesRankAboveTypos() {
+        scanReturns(receipt("r1", "FRESH MART", "BRAED"),
+                receipt("r2", "FRESH MART", "BREADSTICKS"),
+                receipt("r3", "FRESH MART", "BREAD"));
+
+        assertThat(searchIndex.search(USER, "bread", 10)).containsExactly("r3", "r2", "r1");
+    }
+
+    @Test
+    void longerWordsTolerateTwoEdits() {
+        scanReturns(receipt("r1", "FRESH MART", "CHOCOLATE"));
+
+        assertThat(searchIndex.search(USER, "chocolte", 10)).containsExactly("r1");
+        assertThat(searchIndex.search(USER, "chocalote", 10)).containsExactly("r1");
+        assertThat(searchIndex.search(USER, "chlte", 10)).isEmpty();
+    }
+
+    @Test
+    void shortWordsOnlyMatchExactlyOrAsAPrefix() {
+        scanReturns(receipt("r1", "FRESH MART", "TEA"));
+
+        assertThat(searchIndex.search(USER, "te", 10)).containsExactly("r1");
+        assertThat(searchIndex.search(USER, "tae", 10)).isEmpty();
+    }
+
+    @Test
+    void everyWordHasToMatch() {
+        scanReturns(receipt("r1", "FRESH MART", "MILK"),
+                receipt("r2", "FRESH MART", "EGGS"));
+
+        assertThat(searchIndex.search(USER, "fresh milk", 10)).containsExactly("r1");
+        assertThat(searchIndex.search(USER, "milk eggs", 10)).isEmpty();
+    }
+
+    @Test
+    void equalScoresPreferTheNewerIdAndTheLimitKeepsTheBest() {
+        scanReturns(receipt("a1", "FRESH MART", "MILK"),
+                receipt("c3", "FRESH MART", "MILK"),
+                receipt("b2", "FRESH MART", "MILKSHAKE"));
+
+        assertThat(searchIndex.search(USER, "milk", 10)).containsExactly("c3", "a1", "b2");
+        assertThat(searchIndex.search(USER, "milk", 1)).containsExactly("c3");
+    }
+
+    @Test
+    void writesKeepALoadedIndexCurrent() {
+        Receipt original = receipt("r1", "FRESH MART", "MILK");
+        scanReturns(original);
+        searchIndex.search(USER, "milk", 10);
+
+        Receipt added = receipt("r2", "CORNER SHOP", "YOGHURT");
+        searchIndex.record(null, added);
+        assertThat(searchIndex.search(USER, "yogurt", 10)).containsExactly("r2");
+
+        searchIndex.record(original, receipt("r1", "FRESH MART", "OAT MILK"));
+        assertThat(searchIndex.search(USER, "oat", 10)).containsExactly("r1");
+
+        searchIndex.record(added, null);
+        assertThat(searchIndex.search(USER, "yoghurt", 10)).isEmpty();
+        assertThat(searchIndex.search(USER, "yogurt", 10)).isEmpty();
+        verify(receiptRepository, times(1)).streamForSearch(USER);
+    }
+
+    @Test
+    void removedWordsStopMatching() {
+        Receipt original = receipt("r1", "FRESH MART", "BUTTER");
+        scanReturns(original);
+        searchIndex.search(USER, "butter", 10);
+
+        searchIndex.record(original, receipt("r1", "FRESH MART", "MARGARINE"));
+
+        assertThat(searchIndex.search(USER, "butter", 10)).isEmpty();
+        assertThat(searchIndex.search(USER, "buter", 10)).isEmpty();
+        assertThat(searchIndex.search(USER, "margarine", 10)).containsExactly("r1");
+    }
+
+    @Test
+    void writesBeforeTheFirstSearchAreLeftToTheScan() {
+        Receipt receipt = receipt("r1", "FRESH MART", "MILK");
+        searchIndex.record(null, receipt);
+        scanReturns(receipt);
+
+        assertThat(searchIndex.search(USER, "milk", 10)).containsExactly("r1");
+    }
+
+    @Test
+    void evictedIndexIsRebuiltOnTheNextSearch() {
+        scanReturns(receipt("r1", "FRESH MART", "MILK"));
+        searchIndex.search(USER, "milk", 10);
+
+        scanReturns(receipt("r2", "FRESH MART", "MILK"));
+        searchIndex.evict(USER);
+
+        assertThat(searchIndex.search(USER, "milk", 10)).containsExactly("r2");
+    }
+
+    @Test
+    void queriesWithoutWordsMatchNothing() {
+        assertThat(searchIndex.search(USER, " -- ", 10)).isEmpty();
+        verify(receiptRepository, times(0)).streamForSearch(USER);
+    }
+
+    private void scanReturns(Receipt... receipts) {
+        when(receiptRepository.streamForSearch(USER)).thenAnswer(invocation -> Stream.of(receipts));
+    }
+
+    private static Receipt receipt(String id, String store, String... itemNames) {
+        List<ReceiptItem> items = new ArrayList<>();
+        for (String name : itemNames) {
+            items.add(new ReceiptItem(name, 1.0, 1));
+        }
+        Receipt receipt = new Receipt("receipt.jpg", null, null, items, 1.0, store);
+        receipt.setId(id);
+        receipt.setUserId(USER);
+        return receipt;
+    }
+}
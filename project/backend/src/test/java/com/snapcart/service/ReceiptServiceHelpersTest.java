@@ -0,0 +1,191 @@
+package com.snapcart.service;
+
+import com.snapcart.model.CursorPage;
+import com.snapcart.model.Receipt;
+import com.snapcart.model.ReceiptBulkRequest;
+import com.snapcart.model.ReceiptCursor;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// The static helpers ReceiptService shares with ReactiveReceiptService
+class ReceiptServiceHelpersTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    @Test
+    void keepServerFieldsRestoresWhatTheClientCannotSet() {
+        Receipt existing = stored();
+        Receipt replacement = new Receipt("renamed.jpg", null, null, List.of(), 1.0, "OTHER");
+        replacement.setImageRef("someone-elses-blob");
+        replacement.setContentHash("forged");
+
+        ReceiptService.keepServerFields(existing, replacement);
+
+        assertThat(replacement.getImageRef()).isEqualTo("image-key");
+        assertThat(replacement.getImageContentType()).isEqualTo("image/jpeg");
+        assertThat(replacement.getContentHash()).isEqualTo("hash");
+        assertThat(replacement.getCreatedDate()).isEqualTo(CREATED);
+        assertThat(replacement.getTextRef()).isEqualTo("text-key");
+        assertThat(replacement.getVersion()).isEqualTo(5L);
+        assertThat(replacement.getStore()).isEqualTo("OTHER");
+    }
+
+    @Test
+    void keepServerFieldsKeepsTheClientsVersionSoStaleCopiesFail() {
+        Receipt replacement = new Receipt();
+        replacement.setVersion(4L);
+
+        ReceiptService.keepServerFields(stored(), replacement);
+
+        assertThat(replacement.getVersion()).isEqualTo(4L);
+    }
+
+    @Test
+    void keepServerFieldsDropsTheTextRefWhenTextIsReplaced() {
+        Receipt replacement = new Receipt();
+        replacement.setExtractedText("new text");
+        replacement.setTextRef("someone-elses-text");
+
+        ReceiptService.keepServerFields(stored(), replacement);
+
+        assertThat(replacement.getExtractedText()).isEqualTo("new text");
+        assertThat(replacement.getTextRef()).isNull();
+    }
+
+    @Test
+    void categoriesByIdLetsTheLastEntryWin() {
+        ReceiptBulkRequest request = new ReceiptBulkRequest();
+        request.setRecategorize(List.of(change("Food", "a", "b"), change("Travel", "b", "c")));
+
+        Map<String, String> categoryById = ReceiptService.categoriesById(request);
+
+        assertThat(categoryById).isEqualTo(Map.of("a", "Food", "b", "Travel", "c", "Travel"));
+        assertThat(ReceiptService.categoriesById(new ReceiptBulkRequest())).isEmpty();
+    }
+
+    @Test
+    void categoriesByIdRejectsBlankCategory() {
+        ReceiptBulkRequest request = new ReceiptBulkRequest();
+        request.setRecategorize(List.of(change(" ", "a")));
+
+        assertThrows(IllegalArgumentException.class, () -> ReceiptService.categoriesById(request));
+    }
+
+    @Test
+    void bulkOutcomeAppliesTheCategoryAndBumpsTheVersion() {
+        Receipt before = stored();
+
+        Receipt after = ReceiptService.bulkOutcome(before, Map.of("r1", "Travel"));
+
+        assertThat(after.getCategory()).isEqualTo("Travel");
+        assertThat(after.getVersion()).isEqualTo(6L);
+        assertThat(after.getImageRef()).isEqualTo("image-key");
+        assertThat(before.getCategory()).isEqualTo("General");
+        assertThat(before.getVersion()).isEqualTo(5L);
+    }
+
+    @Test
+    void bulkOutcomeIsNullForReceiptsThatWereOnlyDeleted() {
+        assertThat(ReceiptService.bulkOutcome(stored(), Map.of("other", "Travel"))).isNull();
+    }
+
+    @Test
+    void inOrderRestoresTheIdOrderAndSkipsMissingRows() {
+        List<String> rows = List.of("c", "a");
+
+        assertThat(ReceiptService.inOrder(List.of("a", "b", "c"), rows, row -> row)).containsExactly("a", "c");
+    }
+
+    @Test
+    void toPageOnlyHasACursorWhenThereIsAnExtraRow() {
+        Receipt first = receipt("r1", CREATED.plusDays(2));
+        Receipt second = receipt("r2", CREATED.plusDays(1));
+        Receipt third = receipt("r3", CREATED);
+
+        CursorPage<Receipt> last = ReceiptService.toPage(List.of(first, second), 2, ReceiptCursor::after);
+        assertThat(last.getItems()).containsExactly(first, second);
+        assertThat(last.getNextCursor()).isNull();
+
+        CursorPage<Receipt> page = ReceiptService.toPage(List.of(first, second, third), 2, ReceiptCursor::after);
+        assertThat(page.getItems()).containsExactly(first, second);
+        ReceiptCursor next = ReceiptService.decodeCursor(page.getNextCursor());
+        assertThat(next.getId()).isEqualTo("r2");
+        assertThat(next.getCreatedDate()).isEqualTo(CREATED.plusDays(1));
+    }
+
+    @Test
+    void toPageOfAnEmptyResultHasNoCursor() {
+        CursorPage<Receipt> page = ReceiptService.toPage(List.of(), 2, ReceiptCursor::after);
+
+        assertThat(page.getItems()).isEmpty();
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void cursorRoundTripsWithAndWithoutACreatedDate() {
+        ReceiptCursor dated = ReceiptService.decodeCursor(new ReceiptCursor(CREATED, "r1").encode());
+        assertThat(dated.getCreatedDate()).isEqualTo(CREATED);
+        assertThat(dated.getId()).isEqualTo("r1");
+
+        ReceiptCursor undated = ReceiptService.decodeCursor(new ReceiptCursor(null, "r2").encode());
+        assertThat(undated.getCreatedDate()).isNull();
+        assertThat(undated.getId()).isEqualTo("r2");
+    }
+
+    @Test
+    void missingCursorStartsAtTheFirstPage() {
+        assertThat(ReceiptService.decodeCursor(null)).isNull();
+        assertThat(ReceiptService.decodeCursor("")).isNull();
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ReceiptService.decodeCursor("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> ReceiptService.decodeCursor("bm8tc2VwYXJhdG9y"));
+        assertThrows(IllegalArgumentException.class, () -> ReceiptService.decodeCursor("bm90LWEtZGF0ZXxyMQ"));
+    }
+
+    @Test
+    void pageSizeIsClampedToTheConfiguredMaximum() {
+        ReceiptService receiptService = new ReceiptService();
+        ReflectionTestUtils.setField(receiptService, "maxPageSize", 100);
+
+        assertThat(receiptService.pageSize(0)).isEqualTo(1);
+        assertThat(receiptService.pageSize(-5)).isEqualTo(1);
+        assertThat(receiptService.pageSize(20)).isEqualTo(20);
+        assertThat(receiptService.pageSize(100)).isEqualTo(100);
+        assertThat(receiptService.pageSize(101)).isEqualTo(100);
+    }
+
+    private static Receipt stored() {
+        Receipt receipt = receipt("r1", CREATED);
+        receipt.setContentHash("hash");
+        receipt.setImageRef("image-key");
+        receipt.setImageContentType("image/jpeg");
+        receipt.setTextRef("text-key");
+        receipt.setVersion(5L);
+        return receipt;
+    }
+
+    private static Receipt receipt(String id, LocalDateTime createdDate) {
+        Receipt receipt = new Receipt("receipt.jpg", null, null, List.of(), 7.67, "FRESH MART");
+        receipt.setId(id);
+        receipt.setUserId("alice");
+        receipt.setCreatedDate(createdDate);
+        return receipt;
+    }
+
+    private static ReceiptBulkRequest.CategoryChange change(String category, String... ids) {
+        ReceiptBulkRequest.CategoryChange change = new ReceiptBulkRequest.CategoryChange();
+        change.setCategory(category);
+        change.setIds(List.of(ids));
+        return change;
+    }
+}
@@ -0,0 +1,156 @@
+package com.snapcart.service;
+
+import com.snapcart.model.ReceiptItem;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ReceiptTextParser has to produce exactly what the regex parser it replaced did, so every receipt
+ * in the golden corpus is parsed by both and the items and store names compared.
+ */
+class ReceiptTextParserTest {
+
+    private static final String[] STORES = {
+            "FRESH MART", "Green Grocer", "CITY SUPERMARKET", "Corner Deli", "Value Foods", "Cafe Creme"
+    };
+
+    private static final String[] PRODUCTS = {
+            "MILK 2L", "Bread Wholemeal", "Eggs Dozen", "Organic Bananas", "CHEESE CHEDDAR",
+            "Coffee Beans", "Tomato Sauce", "Rice 5kg", "Apple Juice", "Chicken Breast",
+            "Dish Soap", "Ben & Jerry's", "Half-Fat Cream", "INSTANT NOODLES MULTIPACK BEEF FLAVOUR",
+            "M1LK", "Mushrooms 250g", "TAXI FARE", "Cardamom Pods"
+    };
+
+    // Layouts and edge cases seen in real OCR output
+    private static final List<String> HANDWRITTEN = List.of(
+            "",
+            "\n\n\n",
+            "FRESH MART\n123 Main Street\nMILK 2L 2.49\nBREAD 1.99\nTOTAL 4.48\n",
+            "Corner Deli\nTel 555-0199\nTurkey Sandwich $7.50\nIced Tea $2.25\nSUBTOTAL $9.75\nTAX $0.78\n",
+            "Value Foods\r\nEggs Dozen 3.19\r\nRice 5kg 8.99\r\nTOTAL 12.18\r\n",
+            "CITY SUPERMARKET\n2 x Apples 1.20 A\n1 x Pears 0.99 A\nCASH 5.00\nCHANGE 2.81\n",
+            // Nothing in item layout, so the bare-price fallback applies
+            "GREEN GROCER\n$3.50 Carrots\n4.25 Kale bunch\n** 2.00 **\nThank you!\n",
+            "RECEIPT\nPurchase\n12.00\nab 1.00\n",
+            "Cafe Creme\n\tLatte\t4.50\n  Croissant   3.20  \nCard ending 4242\n",
+            "Store 42\nStore Without Digits\nItem One 1000.00\nItem Two 999.99\nItem Three 0.00\n",
+            "Caf\u00e9 Cr\u00e8me\nCR\u00c8ME BR\u00dbL\u00c9E 6.50\nTHANK YOU\n",
+            "SHOP\nWidget 12.\nGadget 3\nGizmo .99\nDoohickey 1.2.3\n",
+            "a\nab\nabc\nabcd 1.00\n",
+            "Line\u2028Separated 2.00\nNext\u0085Line 3.00\nCarriage\rReturn 4.00\n",
+            "ITEM WITH A VERY LONG NAME THAT GOES ON AND ON 5.00\nShort 1.00\n",
+            "TOTAL\nSUBTOTAL\nTAX\n"
+    );
+
+    private final ReceiptTextParser parser = new ReceiptTextParser();
+    private final LegacyReceiptParser legacy = new LegacyReceiptParser();
+
+    @Test
+    void matchesLegacyParserOnHandwrittenReceipts() {
+        for (String text : HANDWRITTEN) {
+            assertSameResult(text);
+        }
+    }
+
+    @Test
+    void matchesLegacyParserOnGeneratedReceipts() {
+        for (String text : generatedCorpus(2000, 42)) {
+            assertSameResult(text);
+        }
+    }
+
+    // Turkish lower-cases I to a dotless i, so ASCII keyword folding must not be used there
+    @Test
+    void matchesLegacyParserUnderTurkishLocale() {
+        Locale previous = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.forLanguageTag("tr"));
+            for (String text : HANDWRITTEN) {
+                assertSameResult(text);
+            }
+            assertSameResult("MARKET\nRECEIPT NO 1\nCASH DRAWER 1.00\nTHANK YOU 2.00\nICE 1.50\n");
+            for (String text : generatedCorpus(200, 7)) {
+                assertSameResult(text);
+            }
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+
+    @Test
+    void reportsFallbackOnlyWhenNoLineHasItemLayout() {
+        assertThat(parser.parse("FRESH MART\nMILK 2L 2.49\n").isFallback()).isFalse();
+        assertThat(parser.parse("GREEN GROCER\n$3.50 Carrots\n").isFallback()).isTrue();
+    }
+
+    private void assertSameResult(String text) {
+        assertThat(describe(parser.parseItems(text)))
+                .as("items of %s", text)
+                .isEqualTo(describe(legacy.parseReceiptItems(text)));
+        assertThat(parser.extractStoreName(text))
+                .as("store name of %s", text)
+                .isEqualTo(legacy.extractStoreName(text));
+    }
+
+    private static List<String> describe(List<ReceiptItem> items) {
+        List<String> described = new ArrayList<>(items.size());
+        for (ReceiptItem item : items) {
+            described.add(item.getName() + " | " + item.getPrice() + " | " + item.getQuantity() + " | " +
+                    item.getCategory());
+        }
+        return described;
+    }
+
+    // OCR-like receipts with the layouts above, some garbled, some without any item-layout line
+    private static List<String> generatedCorpus(int count, long seed) {
+        Random random = new Random(seed);
+        List<String> corpus = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder text = new StringBuilder();
+            text.append(STORES[random.nextInt(STORES.length)]).append('\n');
+            text.append(random.nextInt(999) + 1).append(" Main Street\n");
+            text.append("RECEIPT #").append(100000 + random.nextInt(900000)).append('\n');
+
+            int itemCount = random.nextInt(30);
+            for (int j = 0; j < itemCount; j++) {
+                String name = PRODUCTS[random.nextInt(PRODUCTS.length)];
+                String price = (random.nextInt(120000) / 100) + "." + String.format("%02d", random.nextInt(100));
+                switch (random.nextInt(7)) {
+                    case 0 -> text.append(name).append("  $").append(price);
+                    case 1 -> text.append(name).append(' ').append(price);
+                    case 2 -> text.append(1 + random.nextInt(3)).append(" x ").append(name).append(' ')
+                            .append(price).append(" A");
+                    case 3 -> text.append(name).append(" ....... ").append(price);
+                    case 4 -> text.append('$').append(price).append(' ').append(name);
+                    case 5 -> text.append("\t ").append(name.toLowerCase(Locale.ROOT)).append('\t').append(price)
+                            .append(random.nextBoolean() ? "\r" : "");
+                    default -> text.append(garble(random, name + ' ' + price));
+                }
+                text.append('\n');
+            }
+
+            text.append("SUBTOTAL ").append(random.nextInt(500)).append(".00\n");
+            text.append("TAX ").append(random.nextInt(40)).append(".00\n");
+            text.append("TOTAL ").append(random.nextInt(540)).append(".00\n");
+            text.append("CARD **** ").append(1000 + random.nextInt(9000)).append('\n');
+            text.append("Thank you for shopping!\n");
+            corpus.add(text.toString());
+        }
+        return corpus;
+    }
+
+    private static String garble(Random random, String line) {
+        char[] chars = line.toCharArray();
+        char[] noise = {'|', '!', '0', '1', 'l', 'O', '.', '$', ' ', '-', '&', '\''};
+        for (int k = 0; k < 1 + random.nextInt(3); k++) {
+            chars[random.nextInt(chars.length)] = noise[random.nextInt(noise.length)];
+        }
+        return new String(chars);
+    }
+}
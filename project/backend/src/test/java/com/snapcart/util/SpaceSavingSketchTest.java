@@ -0,0 +1,142 @@
+package com.snapcart.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SpaceSavingSketchTest {
+
+    @Test
+    void countsExactlyWhileUnderCapacity() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(4);
+        sketch.add("MILK", 3);
+        sketch.add("BREAD", 1);
+        sketch.add("EGGS", 2);
+
+        assertThat(sketch.top(3)).containsExactly(Map.entry("MILK", 3L), Map.entry("EGGS", 2L), Map.entry("BREAD", 1L));
+        assertThat(sketch.top(1)).containsExactly(Map.entry("MILK", 3L));
+        assertThat(sketch.getTotal()).isEqualTo(6L);
+    }
+
+    @Test
+    void newItemReplacesTheSmallestCounterAndInheritsItsCount() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(2);
+        sketch.add("MILK", 5);
+        sketch.add("BREAD", 1);
+        sketch.add("EGGS", 1);
+
+        assertThat(sketch.top(2)).containsExactly(Map.entry("MILK", 5L), Map.entry("EGGS", 2L));
+    }
+
+    @Test
+    void tracksHeavyHittersWithinTheErrorBound() {
+        int capacity = 10;
+        SpaceSavingSketch sketch = new SpaceSavingSketch(capacity);
+        Map<String, Long> exact = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            String item = i % 5 == 0 ? "MILK" : i % 7 == 0 ? "BREAD" : "ITEM " + random.nextInt(500);
+            sketch.add(item, 1);
+            exact.merge(item, 1L, Long::sum);
+        }
+
+        assertWithinBound(sketch, exact, capacity);
+        assertThat(sketch.top(2).keySet()).containsExactly("MILK", "BREAD");
+    }
+
+    @Test
+    void removeDecrementsAndDropsCountersThatReachZero() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(4);
+        sketch.add("MILK", 3);
+        sketch.add("BREAD", 1);
+
+        sketch.remove("MILK", 1);
+        sketch.remove("BREAD", 1);
+
+        assertThat(sketch.top(4)).containsExactly(Map.entry("MILK", 2L));
+        assertThat(sketch.getTotal()).isEqualTo(2L);
+
+        sketch.remove("MILK", 2);
+        assertThat(sketch.isEmpty()).isTrue();
+    }
+
+    @Test
+    void removeOfAnUntrackedItemOnlyLowersTheTotal() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(4);
+        sketch.add("MILK", 1);
+
+        sketch.remove("EGGS", 3);
+
+        assertThat(sketch.top(4)).containsExactly(Map.entry("MILK", 1L));
+        assertThat(sketch.getTotal()).isEqualTo(0L);
+    }
+
+    @Test
+    void mergeSumsCountersOfSketchesWithRoom() {
+        SpaceSavingSketch march = new SpaceSavingSketch(4);
+        march.add("MILK", 2);
+        march.add("BREAD", 1);
+        SpaceSavingSketch april = new SpaceSavingSketch(4);
+        april.add("MILK", 1);
+        april.add("EGGS", 4);
+
+        march.merge(april);
+
+        assertThat(march.top(4)).containsExactly(Map.entry("EGGS", 4L), Map.entry("MILK", 3L), Map.entry("BREAD", 1L));
+        assertThat(march.getTotal()).isEqualTo(8L);
+    }
+
+    @Test
+    void mergeCountsItemsAFullSketchLacksAtItsMinimum() {
+        SpaceSavingSketch full = new SpaceSavingSketch(2);
+        full.add("MILK", 5);
+        full.add("BREAD", 2);
+        SpaceSavingSketch other = new SpaceSavingSketch(2);
+        other.add("EGGS", 4);
+
+        full.merge(other);
+
+        // EGGS may have been among the items the full sketch evicted, so it gets its minimum of 2
+        assertThat(full.top(2)).containsExactly(Map.entry("EGGS", 6L), Map.entry("MILK", 5L));
+        assertThat(full.getTotal()).isEqualTo(11L);
+    }
+
+    @Test
+    void mergedSketchKeepsTheErrorBoundOverTheCombinedTotal() {
+        int capacity = 8;
+        SpaceSavingSketch first = new SpaceSavingSketch(capacity);
+        SpaceSavingSketch second = new SpaceSavingSketch(capacity);
+        Map<String, Long> exact = new HashMap<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 3000; i++) {
+            String item = i % 4 == 0 ? "MILK" : "ITEM " + random.nextInt(200);
+            (i % 2 == 0 ? first : second).add(item, 1);
+            exact.merge(item, 1L, Long::sum);
+        }
+
+        first.merge(second);
+
+        assertWithinBound(first, exact, capacity);
+        assertThat(first.top(1).keySet()).containsExactly("MILK");
+    }
+
+    @Test
+    void rejectsCapacityBelowOne() {
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSavingSketch(0));
+    }
+
+    // Estimates never undercount and overcount by at most total / capacity
+    private static void assertWithinBound(SpaceSavingSketch sketch, Map<String, Long> exact, int capacity) {
+        long bound = sketch.getTotal() / capacity;
+        sketch.top(capacity).forEach((item, estimate) -> {
+            long count = exact.get(item);
+            assertThat(estimate >= count && estimate <= count + bound)
+                    .as("%s estimated %d for %d", item, estimate, count).isTrue();
+        });
+    }
+}
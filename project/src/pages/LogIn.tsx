@@ -2,6 +2,7 @@ import React, { useState } from "react";
 import { Link, useNavigate } from "react-router-dom";
 import axios from "axios";
 import loginImage from "./login.png";
+import { setCurrentUser } from "../services/api";
 
 export default function LogIn() {
   const navigate = useNavigate();
@@ -16,6 +17,7 @@ export default function LogIn() {
         password,
       });
       if (response.data) {
+        setCurrentUser(username);
         navigate("/dashboard");
       } else {
         alert("Invalid credentials");
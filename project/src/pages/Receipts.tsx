@@ -1,23 +1,49 @@
 import React, { useState, useEffect } from 'react';
 import { Calendar, Store, DollarSign, Search, Trash2, Edit, Eye } from 'lucide-react';
-import { receiptApi, Receipt } from '../services/api';
+import { receiptApi, analyticsApi, Receipt, ReceiptSummary } from '../services/api';
 import LoadingSpinner from '../components/LoadingSpinner';
 import Header from '../components/Header';
 
 const Receipts: React.FC = () => {
-  const [receipts, setReceipts] = useState<Receipt[]>([]);
+  const [receipts, setReceipts] = useState<ReceiptSummary[]>([]);
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
+  const [totalSpent, setTotalSpent] = useState(0);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [searchTerm, setSearchTerm] = useState('');
+  const [searchResults, setSearchResults] = useState<ReceiptSummary[] | null>(null);
   const [selectedReceipt, setSelectedReceipt] = useState<Receipt | null>(null);
 
   useEffect(() => {
-    fetchReceipts();
+    fetchFirstPage();
   }, []);
 
-  const fetchReceipts = async () => {
+  // Store and item names are searched server-side; the list itself is only the pages loaded so far
+  useEffect(() => {
+    const query = searchTerm.trim();
+    if (!query) {
+      setSearchResults(null);
+      return;
+    }
+    const timer = setTimeout(async () => {
+      try {
+        setSearchResults(await receiptApi.searchReceipts(query));
+      } catch (error) {
+        console.error('Failed to search receipts:', error);
+      }
+    }, 250);
+    return () => clearTimeout(timer);
+  }, [searchTerm]);
+
+  const fetchFirstPage = async () => {
     try {
-      const data = await receiptApi.getAllReceipts();
-      setReceipts(data);
+      const [page, summary] = await Promise.all([
+        receiptApi.getReceiptPage(),
+        analyticsApi.getAnalyticsSummary(),
+      ]);
+      setReceipts(page.items);
+      setNextCursor(page.nextCursor);
+      setTotalSpent(summary.totalSpent || 0);
     } catch (error) {
       console.error('Failed to fetch receipts:', error);
     } finally {
@@ -25,23 +51,45 @@ const Receipts: React.FC = () => {
     }
   };
 
+  const fetchNextPage = async () => {
+    if (!nextCursor) return;
+    setLoadingMore(true);
+    try {
+      const page = await receiptApi.getReceiptPage(nextCursor);
+      setReceipts([...receipts, ...page.items]);
+      setNextCursor(page.nextCursor);
+    } catch (error) {
+      console.error('Failed to fetch receipts:', error);
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
+  const handleViewReceipt = async (id: string) => {
+    try {
+      setSelectedReceipt(await receiptApi.getReceiptById(id));
+    } catch (error) {
+      console.error('Failed to fetch receipt:', error);
+    }
+  };
+
   const handleDeleteReceipt = async (id: string) => {
     if (window.confirm('Are you sure you want to delete this receipt?')) {
       try {
         await receiptApi.deleteReceipt(id);
+        const deleted = receipts.find(receipt => receipt.id === id);
         setReceipts(receipts.filter(receipt => receipt.id !== id));
+        setSearchResults(searchResults && searchResults.filter(receipt => receipt.id !== id));
+        if (deleted) {
+          setTotalSpent(totalSpent - (deleted.totalAmount || 0));
+        }
       } catch (error) {
         console.error('Failed to delete receipt:', error);
       }
     }
   };
 
-  const filteredReceipts = receipts.filter(receipt =>
-    receipt.store.toLowerCase().includes(searchTerm.toLowerCase()) ||
-    receipt.items.some(item => 
-      item.name.toLowerCase().includes(searchTerm.toLowerCase())
-    )
-  );
+  const filteredReceipts = searchResults ?? receipts;
 
   if (loading) {
     return <LoadingSpinner />;
@@ -59,7 +107,7 @@ const Receipts: React.FC = () => {
         </div>
         <div className="text-right">
           <p className="text-2xl font-bold text-green-600">
-            ${receipts.reduce((sum, r) => sum + (r.totalAmount || 0), 0).toFixed(2)}
+            ${totalSpent.toFixed(2)}
           </p>
           <p className="text-gray-600">Total Spent</p>
         </div>
@@ -112,36 +160,22 @@ const Receipts: React.FC = () => {
                     <p className="text-xl font-bold text-green-600">
                       ${receipt.totalAmount.toFixed(2)}
                     </p>
-                    <p className="text-sm text-gray-600">{receipt.items.length} items</p>
+                    <p className="text-sm text-gray-600">{receipt.itemCount} items</p>
                   </div>
                 </div>
               </div>
 
-              {/* Receipt Items Preview */}
-              <div className="p-6 space-y-3">
-                <h4 className="font-medium text-gray-800 mb-3">Items:</h4>
-                <div className="space-y-2 max-h-32 overflow-y-auto">
-                  {receipt.items.slice(0, 3).map((item, index) => (
-                    <div key={index} className="flex justify-between items-center text-sm">
-                      <span className="text-gray-700 truncate">{item.name}</span>
-                      <span className="font-semibold text-gray-900 ml-2">
-                        ${item.price.toFixed(2)}
-                      </span>
-                    </div>
-                  ))}
-                  {receipt.items.length > 3 && (
-                    <div className="text-sm text-gray-500 italic">
-                      +{receipt.items.length - 3} more items
-                    </div>
-                  )}
-                </div>
+              {/* Category */}
+              <div className="p-6 flex items-center space-x-2 text-gray-600">
+                <Store className="w-4 h-4" />
+                <span className="text-sm">{receipt.category}</span>
               </div>
 
               {/* Actions */}
               <div className="p-6 pt-0">
                 <div className="flex space-x-2">
                   <button
-                    onClick={() => setSelectedReceipt(receipt)}
+                    onClick={() => handleViewReceipt(receipt.id)}
                     className="flex-1 flex items-center justify-center space-x-2 py-2 px-3 bg-blue-50 text-blue-600 rounded-lg hover:bg-blue-100 transition-colors"
                   >
                     <Eye className="w-4 h-4" />
@@ -160,6 +194,18 @@ const Receipts: React.FC = () => {
         </div>
       )}
 
+      {!searchResults && nextCursor && (
+        <div className="text-center">
+          <button
+            onClick={fetchNextPage}
+            disabled={loadingMore}
+            className="py-2 px-6 bg-blue-50 text-blue-600 rounded-lg hover:bg-blue-100 transition-colors disabled:opacity-50"
+          >
+            {loadingMore ? 'Loading...' : 'Load more'}
+          </button>
+        </div>
+      )}
+
       {/* Receipt Details Modal */}
       {selectedReceipt && (
         <div className="fixed inset-0 bg-black bg-opacity-50 flex items-center justify-center p-4 z-50">
@@ -2,6 +2,8 @@ import axios from 'axios';
 
 const API_BASE_URL = 'http://localhost:8080/api';
 
+const USER_ID_KEY = 'snapcart.userId';
+
 const api = axios.create({
   baseURL: API_BASE_URL,
   headers: {
@@ -9,6 +11,25 @@ const api = axios.create({
   },
 });
 
+// The backend scopes every receipt and analytics request to the X-User-Id header and rejects requests without it
+export const setCurrentUser = (userId: string | null) => {
+  if (userId) {
+    localStorage.setItem(USER_ID_KEY, userId);
+  } else {
+    localStorage.removeItem(USER_ID_KEY);
+  }
+};
+
+export const getCurrentUser = (): string | null => localStorage.getItem(USER_ID_KEY);
+
+api.interceptors.request.use((config) => {
+  const userId = getCurrentUser();
+  if (userId) {
+    config.headers.set('X-User-Id', userId);
+  }
+  return config;
+});
+
 export interface ReceiptItem {
   name: string;
   price: number;
@@ -30,6 +51,20 @@ export interface Receipt {
   lastModifiedDate: string;
 }
 
+export interface ReceiptSummary {
+  id: string;
+  store: string;
+  totalAmount: number;
+  category: string;
+  createdDate: string;
+  itemCount: number;
+}
+
+export interface CursorPage<T> {
+  items: T[];
+  nextCursor: string | null;
+}
+
 export interface AnalyticsData {
   totalSpent: number;
   totalReceipts: number;
@@ -53,8 +88,13 @@ export const receiptApi = {
     return response.data;
   },
 
-  getAllReceipts: async (): Promise<Receipt[]> => {
-    const response = await api.get('/receipts');
+  getReceiptPage: async (cursor?: string | null, limit: number = 24): Promise<CursorPage<ReceiptSummary>> => {
+    const response = await api.get('/receipts/page', { params: { cursor: cursor || undefined, limit } });
+    return response.data;
+  },
+
+  searchReceipts: async (query: string, limit: number = 50): Promise<ReceiptSummary[]> => {
+    const response = await api.get('/receipts/search', { params: { q: query, limit } });
     return response.data;
   },
 
@@ -90,7 +130,7 @@ export const analyticsApi = {
     return response.data;
   },
 
-  getRecentReceipts: async (limit: number = 5): Promise<Receipt[]> => {
+  getRecentReceipts: async (limit: number = 5): Promise<ReceiptSummary[]> => {
     const response = await api.get(`/analytics/recent-receipts?limit=${limit}`);
     return response.data;
   },